@@ -1,38 +1,110 @@
 package src.lab.controllers;
 
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import src.lab.db.models.ExportFormat;
+import src.lab.db.models.LinkCreation;
+import src.lab.db.models.LinkDraft;
+import src.lab.db.models.LinkPage;
+import src.lab.schemas.BatchCreateLinksRequest;
+import src.lab.schemas.BatchLinkResult;
 import src.lab.schemas.CreateLinkRequest;
+import src.lab.schemas.LinkCursor;
+import src.lab.schemas.LinkPageResponse;
 import src.lab.schemas.LinkResponse;
 import src.lab.schemas.RedirectResponse;
 import src.lab.schemas.UpdateLinkRequest;
+import src.lab.services.LinkExportService;
 import src.lab.services.LinksService;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/links")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class LinksController {
 
     private final LinksService linksService;
+    private final LinkExportService linkExportService;
+    private final Validator validator;
 
-    public LinksController(LinksService linksService) {
+    public LinksController(LinksService linksService, LinkExportService linkExportService, Validator validator) {
         this.linksService = linksService;
+        this.linkExportService = linkExportService;
+        this.validator = validator;
     }
 
     @PostMapping
     public ResponseEntity<LinkResponse> createLink(@RequestAttribute String userId, @Valid @RequestBody CreateLinkRequest request) {
-        var link = linksService.createShortLink(userId, request.getUrl(), request.getClickLimit());
-        return ResponseEntity.status(HttpStatus.CREATED).body(LinkResponse.from(link));
+        LinkCreation creation = linksService.createShortLink(userId, request.getUrl(), request.getClickLimit());
+        // An idempotent repeat gets the link it created before
+        return ResponseEntity.status(creation.existing() ? HttpStatus.OK : HttpStatus.CREATED).body(LinkResponse.from(creation.link()));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchLinkResult>> createLinks(@RequestAttribute String userId, @Valid @RequestBody BatchCreateLinksRequest request) {
+        List<CreateLinkRequest> items = request.getLinks();
+        BatchLinkResult[] results = new BatchLinkResult[items.size()];
+        List<LinkDraft> drafts = new ArrayList<>();
+        List<Integer> draftIndexes = new ArrayList<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            CreateLinkRequest item = items.get(i);
+            if (item == null) {
+                results[i] = BatchLinkResult.failed(i, "Link cannot be null");
+                continue;
+            }
+            Set<ConstraintViolation<CreateLinkRequest>> violations = validator.validate(item);
+            if (!violations.isEmpty()) {
+                results[i] = BatchLinkResult.failed(i, violations.iterator().next().getMessage());
+                continue;
+            }
+            drafts.add(new LinkDraft(item.getUrl(), item.getClickLimit()));
+            draftIndexes.add(i);
+        }
+
+        if (!drafts.isEmpty()) {
+            List<LinkCreation> created = linksService.createShortLinks(userId, drafts);
+            for (int j = 0; j < created.size(); j++) {
+                int index = draftIndexes.get(j);
+                LinkCreation creation = created.get(j);
+                results[index] = creation.isSuccessful()
+                        ? BatchLinkResult.created(index, LinkResponse.from(creation.link()), creation.existing())
+                        : BatchLinkResult.failed(index, creation.error());
+            }
+        }
+
+        return ResponseEntity.ok(Arrays.asList(results));
     }
 
     @GetMapping
-    public ResponseEntity<List<LinkResponse>> getUserLinks(@RequestAttribute String userId) {
-        List<LinkResponse> links = linksService.getUserLinks(userId).stream().map(LinkResponse::from).collect(Collectors.toList());
-        return ResponseEntity.ok(links);
+    public ResponseEntity<LinkPageResponse> getUserLinks(@RequestAttribute String userId,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer limit) {
+        LinkPage page = linksService.getUserLinks(userId, LinkCursor.decode(cursor), limit);
+        return ResponseEntity.ok(LinkPageResponse.of(page));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportLinks(@RequestAttribute String userId, @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        // Written on the async executor after the handler returns, in its own read-only transaction
+        StreamingResponseBody body = out -> linkExportService.exportUserLinks(userId, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.mediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"links." + exportFormat.extension() + "\"")
+                .body(body);
     }
 
     @GetMapping("/{shortCode}")
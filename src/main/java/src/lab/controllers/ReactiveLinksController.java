@@ -0,0 +1,63 @@
+package src.lab.controllers;
+
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import src.lab.schemas.CreateLinkRequest;
+import src.lab.schemas.LinkCursor;
+import src.lab.schemas.LinkPageResponse;
+import src.lab.schemas.LinkResponse;
+import src.lab.schemas.RedirectResponse;
+import src.lab.schemas.UpdateLinkRequest;
+import src.lab.services.ReactiveLinksService;
+
+@RestController
+@RequestMapping("/api/links")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveLinksController {
+
+    private final ReactiveLinksService linksService;
+
+    public ReactiveLinksController(ReactiveLinksService linksService) {
+        this.linksService = linksService;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<LinkResponse>> createLink(@RequestAttribute String userId, @Valid @RequestBody CreateLinkRequest request) {
+        return linksService.createShortLink(userId, request.getUrl(), request.getClickLimit())
+                .map(link -> ResponseEntity.status(HttpStatus.CREATED).body(LinkResponse.from(link)));
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<LinkPageResponse>> getUserLinks(@RequestAttribute String userId,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(required = false) Integer limit) {
+        // defer turns a malformed cursor into an error signal for the exception handler
+        return Mono.defer(() -> linksService.getUserLinks(userId, LinkCursor.decode(cursor), limit))
+                .map(page -> ResponseEntity.ok(LinkPageResponse.of(page)));
+    }
+
+    @GetMapping("/{shortCode}")
+    public Mono<ResponseEntity<LinkResponse>> getLink(@PathVariable String shortCode) {
+        return linksService.getLink(shortCode).map(link -> ResponseEntity.ok(LinkResponse.from(link)));
+    }
+
+    @PatchMapping("/{shortCode}")
+    public Mono<ResponseEntity<LinkResponse>> updateLink(@PathVariable String shortCode, @RequestAttribute String userId, @Valid @RequestBody UpdateLinkRequest request) {
+        return linksService.updateLink(shortCode, userId, request.getClickLimit())
+                .map(link -> ResponseEntity.ok(LinkResponse.from(link)));
+    }
+
+    @DeleteMapping("/{shortCode}")
+    public Mono<ResponseEntity<Void>> deleteLink(@PathVariable String shortCode, @RequestAttribute String userId) {
+        return linksService.deleteLink(shortCode, userId).thenReturn(ResponseEntity.noContent().build());
+    }
+
+    @GetMapping("/{shortCode}/redirect")
+    public Mono<ResponseEntity<RedirectResponse>> redirect(@PathVariable String shortCode) {
+        return linksService.redirect(shortCode).map(url -> ResponseEntity.ok(RedirectResponse.of(url)));
+    }
+}
@@ -0,0 +1,52 @@
+package src.lab.controllers;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import src.lab.infra.settings.AppConfig;
+import src.lab.infra.shard.ShardRebalancer;
+import src.lab.infra.shard.ShardRouter;
+import src.lab.schemas.RebalanceResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// Operator endpoints, outside the per-user Authorization check; each call has to carry app.shard.admin-token,
+// and with no token configured they are closed. Servlet stack only: a rebalance blocks the calling thread
+@RestController
+@RequestMapping("/api/admin/shards")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "app.shard", name = "enabled", havingValue = "true")
+public class ShardAdminController {
+
+    private static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final ShardRebalancer shardRebalancer;
+    private final ShardRouter shardRouter;
+    private final byte[] adminToken;
+
+    public ShardAdminController(ShardRebalancer shardRebalancer, ShardRouter shardRouter, AppConfig config) {
+        this.shardRebalancer = shardRebalancer;
+        this.shardRouter = shardRouter;
+        this.adminToken = config.getShard().getAdminToken().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Runs on the request thread until every shard has been walked
+    @PostMapping("/rebalance")
+    public ResponseEntity<RebalanceResponse> rebalance(@RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+        if (!authorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(RebalanceResponse.of(shardRouter.shardCount(), shardRebalancer.rebalance()));
+    }
+
+    private boolean authorized(String token) {
+        return adminToken.length > 0 && token != null
+                && MessageDigest.isEqual(adminToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,37 @@
+package src.lab.controllers;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import src.lab.infra.cache.LinkCache;
+import src.lab.infra.settings.AppConfig;
+import src.lab.schemas.CacheStatsResponse;
+import src.lab.schemas.CodePoolStatsResponse;
+import src.lab.services.impl.PooledShortCodeGenerator;
+
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private final LinkCache linkCache;
+    private final ObjectProvider<PooledShortCodeGenerator> codePool;
+
+    public StatsController(LinkCache linkCache, ObjectProvider<PooledShortCodeGenerator> codePool) {
+        this.linkCache = linkCache;
+        this.codePool = codePool;
+    }
+
+    // LinkCache refuses any policy but none outside write-behind, so a policy is in use whenever it is set
+    @GetMapping("/cache")
+    public ResponseEntity<CacheStatsResponse> getCacheStats() {
+        boolean inUse = linkCache.getPolicy() != AppConfig.CachePolicy.NONE;
+        return ResponseEntity.ok(CacheStatsResponse.of(linkCache.getPolicy().name(), inUse, linkCache.size(), linkCache.stats()));
+    }
+
+    @GetMapping("/code-pool")
+    public ResponseEntity<CodePoolStatsResponse> getCodePoolStats() {
+        return ResponseEntity.ok(CodePoolStatsResponse.of(codePool.getIfAvailable()));
+    }
+}
@@ -0,0 +1,10 @@
+package src.lab.db.models;
+
+public enum ClickOutcome {
+    RECORDED,
+    NOT_FOUND,
+    EXPIRED,
+    LIMIT_REACHED,
+    // Not exhausted, but what is left is leased to other instances and comes back when they settle
+    QUOTA_RESERVED
+}
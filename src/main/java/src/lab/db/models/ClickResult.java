@@ -0,0 +1,18 @@
+package src.lab.db.models;
+
+public record ClickResult(ClickOutcome outcome, LinkState link) {
+    public static ClickResult recorded(LinkState link) {
+        return new ClickResult(ClickOutcome.RECORDED, link);
+    }
+
+    public static ClickResult rejected(LinkState link) {
+        if (link.isExpired()) {
+            return new ClickResult(ClickOutcome.EXPIRED, link);
+        }
+        return new ClickResult(link.clickCount() >= link.clickLimit() ? ClickOutcome.LIMIT_REACHED : ClickOutcome.QUOTA_RESERVED, link);
+    }
+
+    public static ClickResult notFound() {
+        return new ClickResult(ClickOutcome.NOT_FOUND, null);
+    }
+}
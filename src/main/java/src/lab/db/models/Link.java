@@ -2,15 +2,29 @@ package src.lab.db.models;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import src.lab.db.store.LogLinkStoreListener;
+import src.lab.infra.cache.LinkExpiryListener;
+import src.lab.infra.cache.NegativeLinkCacheListener;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "links")
+// The schema is owned by the Flyway migrations in db/migration; the indexes are listed here for reference
+@Table(name = "links", indexes = {
+        @Index(name = "idx_links_user_url_hash", columnList = "user_id, url_hash"),
+        @Index(name = "idx_links_user_id", columnList = "user_id, id"),
+        @Index(name = "idx_links_expires_at", columnList = "expires_at"),
+        @Index(name = "uk_links_user_idempotency_key", columnList = "user_id, idempotency_key", unique = true)
+})
+@EntityListeners({NegativeLinkCacheListener.class, LinkExpiryListener.class, LogLinkStoreListener.class})
 @Data
 public class Link {
+    // Sequence ids let Hibernate batch inserts; IDENTITY needs a round trip per row to learn the key.
+    // Raw SQL inserts use NEXT VALUE FOR links_seq: under pooled-lo every fetched value opens a block owned
+    // by whoever fetched it, so those ids never clash with Hibernate's
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "links_seq")
+    @SequenceGenerator(name = "links_seq", sequenceName = "links_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -19,22 +33,45 @@ public class Link {
     @Column(nullable = false, length = 2048)
     private String originalUrl;
 
+    // Hash of the normalized url, so idempotent creates find a user's existing link by index instead of comparing urls
+    private Long urlHash;
+
+    // urlHash while this is the user's idempotently created link for the url; unique per user, see V7.
+    // Only ever cleared by SQL, like the counters below
+    @Column(updatable = false)
+    private Long idempotencyKey;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Read-only view of the same column, so ownership checks and projections never touch the User proxy;
+    // writes go through user, which keeps this in step
+    @Column(name = "user_id", insertable = false, updatable = false)
+    private String userId;
+
     @Column(nullable = false)
     private int clickLimit;
 
-    @Column(nullable = false)
+    // Written only by conditional SQL updates once the row exists. Without @DynamicUpdate every flush of a
+    // loaded link would otherwise write back the counts read with it and undo clicks and leases taken since
+    @Column(nullable = false, updatable = false)
     private int clickCount = 0;
 
+    @Column(nullable = false, updatable = false)
+    private int reservedClicks = 0;
+
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
     @Column(nullable = false)
     private LocalDateTime expiresAt;
 
+    public void setUser(User user) {
+        this.user = user;
+        this.userId = user != null ? user.getId() : null;
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
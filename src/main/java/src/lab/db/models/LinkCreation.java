@@ -0,0 +1,20 @@
+package src.lab.db.models;
+
+// existing: an idempotent create returned the user's active link for the url instead of adding one
+public record LinkCreation(Link link, boolean existing, String error) {
+    public static LinkCreation created(Link link) {
+        return new LinkCreation(link, false, null);
+    }
+
+    public static LinkCreation existing(Link link) {
+        return new LinkCreation(link, true, null);
+    }
+
+    public static LinkCreation failed(String error) {
+        return new LinkCreation(null, false, error);
+    }
+
+    public boolean isSuccessful() {
+        return link != null;
+    }
+}
@@ -0,0 +1,4 @@
+package src.lab.db.models;
+
+public record LinkDraft(String originalUrl, Integer clickLimit) {
+}
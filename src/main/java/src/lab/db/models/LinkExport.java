@@ -0,0 +1,17 @@
+package src.lab.db.models;
+
+import java.time.LocalDateTime;
+
+// Read by a constructor expression, so exported rows never enter the persistence context
+public record LinkExport(
+        String shortCode,
+        String originalUrl,
+        int clickLimit,
+        int clickCount,
+        LocalDateTime createdAt,
+        LocalDateTime expiresAt
+) {
+    public boolean isActive() {
+        return !LocalDateTime.now().isAfter(expiresAt) && clickCount < clickLimit;
+    }
+}
@@ -0,0 +1,18 @@
+package src.lab.db.models;
+
+import java.util.List;
+
+public record LinkPage(List<LinkView> links, Long nextAfterId) {
+    // Callers fetch one row past the page, so the last page is recognised without a count query
+    public static LinkPage of(List<LinkView> fetched, int size) {
+        if (fetched.size() <= size) {
+            return new LinkPage(fetched, null);
+        }
+        List<LinkView> page = fetched.subList(0, size);
+        return new LinkPage(page, page.get(size - 1).id());
+    }
+
+    public boolean hasNext() {
+        return nextAfterId != null;
+    }
+}
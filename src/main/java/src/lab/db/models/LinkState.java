@@ -0,0 +1,33 @@
+package src.lab.db.models;
+
+import java.time.LocalDateTime;
+
+public record LinkState(
+        Long id,
+        String shortCode,
+        String originalUrl,
+        String userId,
+        int clickLimit,
+        int clickCount,
+        LocalDateTime expiresAt
+) {
+    public static LinkState from(Link link) {
+        return new LinkState(
+                link.getId(),
+                link.getShortCode(),
+                link.getOriginalUrl(),
+                link.getUserId(),
+                link.getClickLimit(),
+                link.getClickCount(),
+                link.getExpiresAt()
+        );
+    }
+
+    public boolean isExpired() {
+        return LocalDateTime.now().isAfter(expiresAt);
+    }
+
+    public boolean isLimitReached() {
+        return clickCount >= clickLimit;
+    }
+}
@@ -0,0 +1,33 @@
+package src.lab.db.models;
+
+import java.time.LocalDateTime;
+
+// What the link endpoints return. Read by a constructor expression, so lookups and listings never build
+// managed entities or touch the User association
+public record LinkView(
+        Long id,
+        String shortCode,
+        String originalUrl,
+        String userId,
+        int clickLimit,
+        int clickCount,
+        LocalDateTime createdAt,
+        LocalDateTime expiresAt
+) {
+    public static LinkView from(Link link) {
+        return new LinkView(
+                link.getId(),
+                link.getShortCode(),
+                link.getOriginalUrl(),
+                link.getUserId(),
+                link.getClickLimit(),
+                link.getClickCount(),
+                link.getCreatedAt(),
+                link.getExpiresAt()
+        );
+    }
+
+    public boolean isActive() {
+        return !LocalDateTime.now().isAfter(expiresAt) && clickCount < clickLimit;
+    }
+}
@@ -0,0 +1,19 @@
+package src.lab.db.models;
+
+public record QuotaGrant(ClickOutcome outcome, LinkState link, int clicks) {
+    public static QuotaGrant granted(LinkState link, int clicks) {
+        return new QuotaGrant(ClickOutcome.RECORDED, link, clicks);
+    }
+
+    public static QuotaGrant refused(ClickResult result) {
+        return new QuotaGrant(result.outcome(), result.link(), 0);
+    }
+
+    public boolean isGranted() {
+        return outcome == ClickOutcome.RECORDED;
+    }
+
+    public ClickResult toResult() {
+        return new ClickResult(outcome, link);
+    }
+}
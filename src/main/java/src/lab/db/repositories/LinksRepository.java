@@ -1,18 +1,56 @@
 package src.lab.db.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import src.lab.db.models.Link;
+import src.lab.db.models.LinkExport;
+import src.lab.db.models.LinkState;
+import src.lab.db.models.LinkView;
 
-import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface LinksRepository extends JpaRepository<Link, Long> {
+public interface LinksRepository extends JpaRepository<Link, Long>, LinksRepositoryCustom {
     Optional<Link> findByShortCode(String shortCode);
 
-    List<Link> findByUserId(String userId);
+    List<Link> findByShortCodeIn(Collection<String> shortCodes);
 
-    List<Link> findByExpiresAtBefore(LocalDateTime dateTime);
+    boolean existsByShortCode(String shortCode);
+
+    // The read paths below select columns into records: nothing enters the persistence context and
+    // the user id comes from the links row, so no User is ever loaded
+
+    @Query("""
+            select new src.lab.db.models.LinkView(l.id, l.shortCode, l.originalUrl, l.userId, l.clickLimit, l.clickCount, l.createdAt, l.expiresAt)
+            from Link l where l.shortCode = :shortCode""")
+    Optional<LinkView> findViewByShortCode(@Param("shortCode") String shortCode);
+
+    // Keyset page over idx_links_user_id: the cost depends on the page size, not on how deep the page is
+    @Query("""
+            select new src.lab.db.models.LinkView(l.id, l.shortCode, l.originalUrl, l.userId, l.clickLimit, l.clickCount, l.createdAt, l.expiresAt)
+            from Link l where l.userId = :userId and l.id > :afterId order by l.id""")
+    List<LinkView> findViewsByUserIdAfter(@Param("userId") String userId, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("""
+            select new src.lab.db.models.LinkState(l.id, l.shortCode, l.originalUrl, l.userId, l.clickLimit, l.clickCount, l.expiresAt)
+            from Link l where l.shortCode = :shortCode""")
+    Optional<LinkState> findStateByShortCode(@Param("shortCode") String shortCode);
+
+    // Streamed through a server-side cursor for exports; the caller must close the stream inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select new src.lab.db.models.LinkExport(l.shortCode, l.originalUrl, l.clickLimit, l.clickCount, l.createdAt, l.expiresAt)
+            from Link l where l.userId = :userId order by l.id""")
+    Stream<LinkExport> streamByUserId(@Param("userId") String userId);
+
+    List<Link> findByUserIdAndUrlHashIn(String userId, Collection<Long> urlHashes);
 }
@@ -0,0 +1,22 @@
+package src.lab.db.repositories;
+
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.QuotaGrant;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface LinksRepositoryCustom {
+    ClickResult registerClick(String shortCode, LocalDateTime now);
+
+    QuotaGrant reserveClicks(String shortCode, int maxClicks, LocalDateTime now, String leaseOwner, LocalDateTime leaseExpiresAt);
+
+    boolean settleClicks(Long linkId, int used, int reserved, String leaseOwner);
+
+    int reclaimExpiredLeases(LocalDateTime now, int limit);
+
+    List<String> deleteExpired(LocalDateTime cutoff, int limit);
+
+    void releaseIdempotencyKeys(String userId, Collection<Long> urlHashes, LocalDateTime now);
+}
@@ -0,0 +1,181 @@
+package src.lab.db.repositories;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.LinkState;
+import src.lab.db.models.QuotaGrant;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public class LinksRepositoryImpl implements LinksRepositoryCustom {
+
+    static final RowMapper<LinkState> LINK_STATE_MAPPER = (rs, rowNum) -> new LinkState(
+            rs.getLong("id"),
+            rs.getString("short_code"),
+            rs.getString("original_url"),
+            rs.getString("user_id"),
+            rs.getInt("click_limit"),
+            rs.getInt("click_count"),
+            rs.getObject("expires_at", LocalDateTime.class)
+    );
+
+    static final String REGISTER_CLICK_SQL = """
+            SELECT id, short_code, original_url, user_id, click_limit, click_count, expires_at
+            FROM FINAL TABLE (
+                UPDATE links SET click_count = click_count + 1
+                WHERE short_code = ? AND click_count + reserved_clicks < click_limit AND expires_at >= ?
+            )""";
+
+    private static final String RESERVE_CLICKS_SQL = """
+            SELECT id, short_code, original_url, user_id, click_limit, click_count, reserved_clicks, expires_at
+            FROM OLD TABLE (
+                UPDATE links SET reserved_clicks = reserved_clicks + LEAST(?, click_limit - click_count - reserved_clicks)
+                WHERE short_code = ? AND click_count + reserved_clicks < click_limit AND expires_at >= ?
+            )""";
+
+    private static final String SETTLE_CLICKS_SQL =
+            "UPDATE links SET click_count = click_count + ?, reserved_clicks = reserved_clicks - ? WHERE id = ?";
+
+    private static final String INSERT_LEASE_SQL =
+            "INSERT INTO click_leases (link_id, owner_id, reserved, expires_at) VALUES (?, ?, ?, ?)";
+
+    private static final String DELETE_LEASE_SQL = "DELETE FROM click_leases WHERE link_id = ? AND owner_id = ?";
+
+    // One bounded chunk through idx_click_leases_expires_at; each row is deleted by exactly one reclaiming instance
+    private static final String RECLAIM_LEASES_SQL = """
+            SELECT link_id, reserved
+            FROM OLD TABLE (
+                DELETE FROM click_leases WHERE expires_at < ? FETCH FIRST ? ROWS ONLY
+            )""";
+
+    // How much of a reclaimed reservation was served is unknown, so all of it counts as clicked; LEAST keeps a
+    // limit lowered since the grant from being overshot
+    private static final String CONSUME_RESERVATION_SQL = """
+            UPDATE links SET click_count = LEAST(click_limit, click_count + ?), reserved_clicks = reserved_clicks - ?
+            WHERE id = ?""";
+
+    // One bounded chunk through idx_links_expires_at; OLD TABLE hands back the codes it removed
+    static final String DELETE_EXPIRED_SQL = """
+            SELECT short_code
+            FROM OLD TABLE (
+                DELETE FROM links WHERE expires_at < ? FETCH FIRST ? ROWS ONLY
+            )""";
+
+    // Only an expired or exhausted link gives its key up; an active one makes the new insert fail
+    private static final String RELEASE_IDEMPOTENCY_KEY_SQL = """
+            UPDATE links SET idempotency_key = NULL
+            WHERE user_id = ? AND idempotency_key = ? AND (expires_at < ? OR click_count >= click_limit)""";
+
+    private static final String FIND_STATE_SQL = """
+            SELECT id, short_code, original_url, user_id, click_limit, click_count, expires_at
+            FROM links
+            WHERE short_code = ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public LinksRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public ClickResult registerClick(String shortCode, LocalDateTime now) {
+        flushIfInTransaction();
+        List<LinkState> updated = jdbcTemplate.query(REGISTER_CLICK_SQL, LINK_STATE_MAPPER, shortCode, now);
+        if (!updated.isEmpty()) {
+            clearIfInTransaction();
+            return ClickResult.recorded(updated.get(0));
+        }
+
+        // Only a rejected click pays for a second statement to find out why
+        return findRejection(shortCode);
+    }
+
+    // The caller's transaction has to span both statements, or a crash between them loses the reservation again
+    @Override
+    public QuotaGrant reserveClicks(String shortCode, int maxClicks, LocalDateTime now, String leaseOwner, LocalDateTime leaseExpiresAt) {
+        flushIfInTransaction();
+        // OLD TABLE returns the row as it was under the lock, which is exactly what LEAST() saw
+        List<QuotaGrant> grants = jdbcTemplate.query(RESERVE_CLICKS_SQL, (rs, rowNum) -> {
+            LinkState link = LINK_STATE_MAPPER.mapRow(rs, rowNum);
+            int available = link.clickLimit() - link.clickCount() - rs.getInt("reserved_clicks");
+            return QuotaGrant.granted(link, Math.min(maxClicks, available));
+        }, maxClicks, shortCode, now);
+
+        if (!grants.isEmpty()) {
+            QuotaGrant grant = grants.get(0);
+            jdbcTemplate.update(INSERT_LEASE_SQL, grant.link().id(), leaseOwner, grant.clicks(), leaseExpiresAt);
+            clearIfInTransaction();
+            return grant;
+        }
+        return QuotaGrant.refused(findRejection(shortCode));
+    }
+
+    // Returns false if the lease had already been reclaimed: its whole reservation was counted then, which
+    // includes every click served from it, so nothing is added
+    @Override
+    public boolean settleClicks(Long linkId, int used, int reserved, String leaseOwner) {
+        flushIfInTransaction();
+        boolean held = jdbcTemplate.update(DELETE_LEASE_SQL, linkId, leaseOwner) > 0;
+        if (held) {
+            jdbcTemplate.update(SETTLE_CLICKS_SQL, used, reserved, linkId);
+        }
+        clearIfInTransaction();
+        return held;
+    }
+
+    @Override
+    public int reclaimExpiredLeases(LocalDateTime now, int limit) {
+        flushIfInTransaction();
+        List<Object[]> reclaimed = jdbcTemplate.query(RECLAIM_LEASES_SQL,
+                (rs, rowNum) -> new Object[]{rs.getInt("reserved"), rs.getInt("reserved"), rs.getLong("link_id")}, now, limit);
+        if (!reclaimed.isEmpty()) {
+            jdbcTemplate.batchUpdate(CONSUME_RESERVATION_SQL, reclaimed);
+        }
+        clearIfInTransaction();
+        return reclaimed.size();
+    }
+
+    @Override
+    public List<String> deleteExpired(LocalDateTime cutoff, int limit) {
+        flushIfInTransaction();
+        List<String> codes = jdbcTemplate.queryForList(DELETE_EXPIRED_SQL, String.class, cutoff, limit);
+        clearIfInTransaction();
+        return codes;
+    }
+
+    @Override
+    public void releaseIdempotencyKeys(String userId, Collection<Long> urlHashes, LocalDateTime now) {
+        flushIfInTransaction();
+        jdbcTemplate.batchUpdate(RELEASE_IDEMPOTENCY_KEY_SQL, urlHashes.stream()
+                .map(urlHash -> new Object[]{userId, urlHash, now})
+                .toList());
+        clearIfInTransaction();
+    }
+
+    // Same contract as @Modifying(flushAutomatically, clearAutomatically) when called inside a transaction
+    private void flushIfInTransaction() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            entityManager.flush();
+        }
+    }
+
+    private void clearIfInTransaction() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            entityManager.clear();
+        }
+    }
+
+    private ClickResult findRejection(String shortCode) {
+        return jdbcTemplate.query(FIND_STATE_SQL, LINK_STATE_MAPPER, shortCode).stream()
+                .findFirst()
+                .map(ClickResult::rejected)
+                .orElseGet(ClickResult::notFound);
+    }
+}
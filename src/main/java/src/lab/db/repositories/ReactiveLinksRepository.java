@@ -0,0 +1,26 @@
+package src.lab.db.repositories;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.Link;
+
+import java.time.LocalDateTime;
+
+public interface ReactiveLinksRepository {
+    Mono<Link> findByShortCode(String shortCode);
+
+    Flux<Link> findByUserIdAfter(String userId, long afterId, int limit);
+
+    Mono<Boolean> existsByShortCode(String shortCode);
+
+    Mono<Void> createUserIfAbsent(String userId);
+
+    Mono<Link> insert(Link link);
+
+    Mono<ClickResult> registerClick(String shortCode, LocalDateTime now);
+
+    Mono<Link> updateClickLimit(Long id, int clickLimit);
+
+    Mono<Void> deleteById(Long id);
+}
@@ -0,0 +1,163 @@
+package src.lab.db.repositories;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.Link;
+import src.lab.db.models.LinkState;
+import src.lab.db.models.User;
+
+import java.time.LocalDateTime;
+
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveLinksRepositoryImpl implements ReactiveLinksRepository {
+
+    private static final String LINK_COLUMNS =
+            "id, short_code, original_url, user_id, click_limit, click_count, reserved_clicks, created_at, expires_at";
+
+    private static final String FIND_BY_SHORT_CODE_SQL = "SELECT " + LINK_COLUMNS + " FROM links WHERE short_code = :shortCode";
+
+    private static final String FIND_BY_USER_ID_AFTER_SQL =
+            "SELECT " + LINK_COLUMNS + " FROM links WHERE user_id = :userId AND id > :afterId ORDER BY id LIMIT :limit";
+
+    private static final String EXISTS_SQL = "SELECT COUNT(*) FROM links WHERE short_code = :shortCode";
+
+    private static final String CREATE_USER_SQL = """
+            INSERT INTO users (id, created_at)
+            SELECT :id, :createdAt
+            WHERE NOT EXISTS (SELECT 1 FROM users WHERE id = :id)""";
+
+    private static final String INSERT_SQL = """
+            SELECT %s
+            FROM FINAL TABLE (
+                INSERT INTO links (id, short_code, original_url, url_hash, user_id, click_limit, click_count, reserved_clicks, created_at, expires_at)
+                VALUES (NEXT VALUE FOR links_seq, :shortCode, :originalUrl, :urlHash, :userId, :clickLimit, 0, 0, :createdAt, :expiresAt)
+            )""".formatted(LINK_COLUMNS);
+
+    private static final String REGISTER_CLICK_SQL = """
+            SELECT %s
+            FROM FINAL TABLE (
+                UPDATE links SET click_count = click_count + 1
+                WHERE short_code = :shortCode AND click_count + reserved_clicks < click_limit AND expires_at >= :now
+            )""".formatted(LINK_COLUMNS);
+
+    private static final String UPDATE_CLICK_LIMIT_SQL = """
+            SELECT %s
+            FROM FINAL TABLE (
+                UPDATE links SET click_limit = :clickLimit WHERE id = :id
+            )""".formatted(LINK_COLUMNS);
+
+    private static final String DELETE_SQL = "DELETE FROM links WHERE id = :id";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveLinksRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<Link> findByShortCode(String shortCode) {
+        return databaseClient.sql(FIND_BY_SHORT_CODE_SQL)
+                .bind("shortCode", shortCode)
+                .map(ReactiveLinksRepositoryImpl::toLink)
+                .one();
+    }
+
+    @Override
+    public Flux<Link> findByUserIdAfter(String userId, long afterId, int limit) {
+        return databaseClient.sql(FIND_BY_USER_ID_AFTER_SQL)
+                .bind("userId", userId)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveLinksRepositoryImpl::toLink)
+                .all();
+    }
+
+    @Override
+    public Mono<Boolean> existsByShortCode(String shortCode) {
+        return databaseClient.sql(EXISTS_SQL)
+                .bind("shortCode", shortCode)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(count -> count > 0);
+    }
+
+    @Override
+    public Mono<Void> createUserIfAbsent(String userId) {
+        return databaseClient.sql(CREATE_USER_SQL)
+                .bind("id", userId)
+                .bind("createdAt", LocalDateTime.now())
+                .fetch()
+                .rowsUpdated()
+                // A concurrent first request from the same user already created the row
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.just(0L))
+                .then();
+    }
+
+    @Override
+    public Mono<Link> insert(Link link) {
+        return databaseClient.sql(INSERT_SQL)
+                .bind("shortCode", link.getShortCode())
+                .bind("originalUrl", link.getOriginalUrl())
+                .bind("urlHash", link.getUrlHash())
+                .bind("userId", link.getUserId())
+                .bind("clickLimit", link.getClickLimit())
+                .bind("createdAt", link.getCreatedAt())
+                .bind("expiresAt", link.getExpiresAt())
+                .map(ReactiveLinksRepositoryImpl::toLink)
+                .one();
+    }
+
+    @Override
+    public Mono<ClickResult> registerClick(String shortCode, LocalDateTime now) {
+        return databaseClient.sql(REGISTER_CLICK_SQL)
+                .bind("shortCode", shortCode)
+                .bind("now", now)
+                .map(row -> ClickResult.recorded(LinkState.from(toLink(row))))
+                .one()
+                .switchIfEmpty(Mono.defer(() -> findByShortCode(shortCode)
+                        .map(link -> ClickResult.rejected(LinkState.from(link)))
+                        .defaultIfEmpty(ClickResult.notFound())));
+    }
+
+    @Override
+    public Mono<Link> updateClickLimit(Long id, int clickLimit) {
+        return databaseClient.sql(UPDATE_CLICK_LIMIT_SQL)
+                .bind("id", id)
+                .bind("clickLimit", clickLimit)
+                .map(ReactiveLinksRepositoryImpl::toLink)
+                .one();
+    }
+
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return databaseClient.sql(DELETE_SQL)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .then();
+    }
+
+    private static Link toLink(Readable row) {
+        User user = new User();
+        user.setId(row.get("user_id", String.class));
+
+        Link link = new Link();
+        link.setId(row.get("id", Long.class));
+        link.setShortCode(row.get("short_code", String.class));
+        link.setOriginalUrl(row.get("original_url", String.class));
+        link.setUser(user);
+        link.setClickLimit(row.get("click_limit", Integer.class));
+        link.setClickCount(row.get("click_count", Integer.class));
+        link.setReservedClicks(row.get("reserved_clicks", Integer.class));
+        link.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        link.setExpiresAt(row.get("expires_at", LocalDateTime.class));
+        return link;
+    }
+}
@@ -0,0 +1,424 @@
+package src.lab.db.store;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import src.lab.infra.settings.AppConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only journal of buffered clicks in memory-mapped segments. Header: magic, version, segment id;
+// records: [crc32][link id][code length][code][delta][timestamp]. A position is (segment id << 32 | offset), and the
+// position up to which records reached the links table is stored in the same transaction as the counts.
+// Replay needs the links the clicks belong to, so the journal only works with a database that outlives the process
+@Component
+public class ClickJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickJournal.class);
+
+    private static final int MAGIC = 0x434C4B4A;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_FIXED_BYTES = Integer.BYTES + Long.BYTES + 1 + Integer.BYTES + Long.BYTES;
+    private static final int CODE_LENGTH_OFFSET = Integer.BYTES + Long.BYTES;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String UNAPPLIED_PREFIX = "unapplied-";
+
+    private static final String ENSURE_CHECKPOINT_SQL = """
+            INSERT INTO click_journal_checkpoint (node_id, applied_position)
+            SELECT ?, 0
+            WHERE NOT EXISTS (SELECT 1 FROM click_journal_checkpoint WHERE node_id = ?)""";
+
+    private static final String READ_CHECKPOINT_SQL = "SELECT applied_position FROM click_journal_checkpoint WHERE node_id = ?";
+    private static final String WRITE_CHECKPOINT_SQL = "UPDATE click_journal_checkpoint SET applied_position = ? WHERE node_id = ?";
+    private static final String REPLAY_CLICKS_SQL = "UPDATE links SET click_count = click_count + ? WHERE id = ? AND short_code = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final String nodeId;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // Whoever holds it forces the journal for every record appended so far, so waiting appenders share one fsync
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final List<Path> sealed = new ArrayList<>();
+    // Segments left by the previous run, replayed by recover()
+    private final List<Path> previous = new ArrayList<>();
+    // Clicks per link id in those segments, read when the journal opens. The checkpoint is not known before
+    // recover(), so clicks already applied in its segment are counted too: an upper bound, never an undercount
+    private final Map<Long, Long> previousClicks = new HashMap<>();
+
+    private long liveStart;
+    private volatile boolean recovered;
+
+    private MappedByteBuffer active;
+    private long activeId;
+    private int activeOffset;
+    private volatile long durable;
+
+    public ClickJournal(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, AppConfig config,
+                        @Value("${spring.datasource.url:}") String datasourceUrl) {
+        AppConfig.JournalConfig journalConfig = config.getLink().getClicks().getJournal();
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = journalConfig.isEnabled();
+        this.directory = Paths.get(journalConfig.getPath());
+        this.segmentBytes = journalConfig.getSegmentBytes();
+        this.fsync = journalConfig.isFsync();
+        this.nodeId = journalConfig.getNodeId();
+        if (enabled) {
+            // A node id shared by two instances makes each replay from the other's checkpoint
+            if (nodeId == null || nodeId.isBlank()) {
+                throw new IllegalStateException("app.link.clicks.journal.enabled requires app.link.clicks.journal.node-id, unique per instance");
+            }
+            // An in-memory database comes back empty, so the replayed clicks would have no links to go to
+            if (datasourceUrl != null && datasourceUrl.contains(":mem:")) {
+                throw new IllegalStateException("app.link.clicks.journal.enabled requires a persistent spring.datasource.url, not "
+                        + datasourceUrl);
+            }
+            try {
+                open();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open click journal " + directory, e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Until then a checkpoint would skip the segments of the previous run, so flushes have to wait
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    // Clicks of the link journaled by the previous run. Before recover() they are missing from click_count, and a
+    // state loaded then stays cached after it, so callers add them to such a state
+    public long previousClicks(long linkId) {
+        return previousClicks.getOrDefault(linkId, 0L);
+    }
+
+    // Returns the position right after the record
+    public long append(String shortCode, long linkId, int delta, long timestamp) {
+        byte[] code = shortCode.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_FIXED_BYTES + code.length);
+        record.putInt(0).putLong(linkId).put((byte) code.length).put(code).putInt(delta).putLong(timestamp);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), Integer.BYTES, record.capacity() - Integer.BYTES);
+        record.putInt(0, (int) crc.getValue());
+
+        appendLock.lock();
+        try {
+            if (activeOffset + record.capacity() > segmentBytes) {
+                roll();
+            }
+            active.put(activeOffset, record.array());
+            activeOffset += record.capacity();
+            return position(activeId, activeOffset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll click journal segment", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Group commit: returns once every record up to the position is on disk
+    public void commit(long position) {
+        if (!fsync || durable >= position) {
+            return;
+        }
+        commitLock.lock();
+        try {
+            if (durable >= position) {
+                return;
+            }
+            MappedByteBuffer buffer;
+            long target;
+            appendLock.lock();
+            try {
+                buffer = active;
+                target = position(activeId, activeOffset);
+            } finally {
+                appendLock.unlock();
+            }
+            // Sealed segments were forced when they were rolled
+            buffer.force();
+            durable = target;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    public long position() {
+        appendLock.lock();
+        try {
+            return position(activeId, activeOffset);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Must run in the transaction that writes the clicks up to the position
+    public void markApplied(long position) {
+        jdbcTemplate.update(WRITE_CHECKPOINT_SQL, position, nodeId);
+    }
+
+    // Called after the checkpoint commits; segments before the one holding it are fully applied
+    public void truncate(long appliedPosition) {
+        long appliedSegment = appliedPosition >>> 32;
+        List<Path> applied = new ArrayList<>();
+        appendLock.lock();
+        try {
+            sealed.removeIf(path -> {
+                if (segmentId(path) < appliedSegment) {
+                    applied.add(path);
+                    return true;
+                }
+                return false;
+            });
+        } finally {
+            appendLock.unlock();
+        }
+        for (Path path : applied) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Failed to delete applied click journal segment {}", path, e);
+            }
+        }
+    }
+
+    public int segmentCount() {
+        appendLock.lock();
+        try {
+            return sealed.size() + (active == null ? 0 : 1);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            appendLock.lock();
+            try {
+                active.force();
+            } finally {
+                appendLock.unlock();
+            }
+        }
+    }
+
+    // Runs after the snapshot restore, so the links the clicks belong to are back in the table
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void recover() {
+        if (!enabled || recovered) {
+            return;
+        }
+        try {
+            replay();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover click journal " + directory, e);
+        }
+        recovered = true;
+    }
+
+    // Appends go to a fresh segment right away; the segments found on disk wait for recover()
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            previous.addAll(files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted((a, b) -> Long.compare(segmentId(a), segmentId(b)))
+                    .toList());
+        }
+        for (Path segment : previous) {
+            ByteBuffer data = readable(segment);
+            if (data != null) {
+                readRecords(data, HEADER_BYTES, (linkId, shortCode, delta, timestamp) ->
+                        previousClicks.merge(linkId, (long) delta, Long::sum));
+            }
+        }
+        activeId = previous.isEmpty() ? 0 : segmentId(previous.get(previous.size() - 1));
+        roll();
+        liveStart = position(activeId, HEADER_BYTES);
+    }
+
+    private void replay() throws IOException {
+        jdbcTemplate.update(ENSURE_CHECKPOINT_SQL, nodeId, nodeId);
+        Long checkpoint = jdbcTemplate.queryForObject(READ_CHECKPOINT_SQL, Long.class, nodeId);
+        long applied = checkpoint == null ? 0 : checkpoint;
+        long appliedSegment = applied >>> 32;
+
+        Map<ReplayKey, Long> deltas = new LinkedHashMap<>();
+        List<Path> replayed = new ArrayList<>();
+        long[] records = {0};
+        long[] firstClick = {Long.MAX_VALUE};
+        long[] lastClick = {Long.MIN_VALUE};
+        for (Path segment : previous) {
+            long id = segmentId(segment);
+            if (id < appliedSegment) {
+                replayed.add(segment);
+                continue;
+            }
+            ByteBuffer data = readable(segment);
+            if (data == null) {
+                // Left in place: deleting it would lose whatever clicks it holds
+                log.warn("Keeping click journal segment {} with unknown format, it is not replayed", segment);
+                continue;
+            }
+            int offset = id == appliedSegment ? Math.max(HEADER_BYTES, (int) applied) : HEADER_BYTES;
+            readRecords(data, offset, (linkId, shortCode, delta, timestamp) -> {
+                deltas.merge(new ReplayKey(linkId, shortCode), (long) delta, Long::sum);
+                firstClick[0] = Math.min(firstClick[0], timestamp);
+                lastClick[0] = Math.max(lastClick[0], timestamp);
+                records[0]++;
+            });
+            replayed.add(segment);
+        }
+
+        List<ReplayKey> keys = new ArrayList<>(deltas.keySet());
+        List<Object[]> updates = keys.stream()
+                .map(key -> new Object[]{deltas.get(key), key.linkId(), key.shortCode()})
+                .toList();
+        // The checkpoint moves to the first segment of this run: everything before it is either applied now or
+        // set aside below
+        int[] rows = transactionTemplate.execute(status -> {
+            int[] updated = updates.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(REPLAY_CLICKS_SQL, updates);
+            markApplied(liveStart);
+            return updated;
+        });
+        if (!updates.isEmpty()) {
+            log.info("Replayed {} journaled clicks for {} links, clicked between {} and {}",
+                    records[0], deltas.size(), Instant.ofEpochMilli(firstClick[0]), Instant.ofEpochMilli(lastClick[0]));
+        }
+
+        // A link deleted before the crash, or missing from the database: keep its clicks for the operator
+        List<String> unapplied = new ArrayList<>();
+        for (int i = 0; rows != null && i < rows.length; i++) {
+            if (rows[i] == 0) {
+                ReplayKey key = keys.get(i);
+                unapplied.add(key.linkId() + "," + key.shortCode() + "," + deltas.get(key));
+            }
+        }
+        if (!unapplied.isEmpty()) {
+            Path file = directory.resolve(UNAPPLIED_PREFIX + System.currentTimeMillis() + ".csv");
+            unapplied.add(0, "link_id,short_code,clicks");
+            Files.write(file, unapplied, StandardCharsets.US_ASCII);
+            log.warn("Journaled clicks of {} links matched no link in the database and were written to {}",
+                    unapplied.size() - 1, file);
+        }
+
+        for (Path segment : replayed) {
+            Files.deleteIfExists(segment);
+        }
+        previous.clear();
+    }
+
+    // The mapped segment, or null when it is not a segment of this format
+    private static ByteBuffer readable(Path segment) throws IOException {
+        ByteBuffer data = map(segment, FileChannel.MapMode.READ_ONLY, Files.size(segment));
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            return null;
+        }
+        return data;
+    }
+
+    private static void readRecords(ByteBuffer data, int offset, RecordVisitor visitor) {
+        CRC32 crc = new CRC32();
+        while (offset + RECORD_FIXED_BYTES <= data.capacity()) {
+            int codeLength = data.get(offset + CODE_LENGTH_OFFSET) & 0xFF;
+            int length = RECORD_FIXED_BYTES + codeLength;
+            if (offset + length > data.capacity()) {
+                break;
+            }
+            byte[] record = new byte[length - Integer.BYTES];
+            data.get(offset + Integer.BYTES, record);
+            crc.reset();
+            crc.update(record);
+            // The zero-filled rest of a segment, or a record torn by the crash
+            if ((int) crc.getValue() != data.getInt(offset)) {
+                break;
+            }
+            ByteBuffer fields = ByteBuffer.wrap(record);
+            long linkId = fields.getLong();
+            String shortCode = new String(record, Long.BYTES + 1, codeLength, StandardCharsets.US_ASCII);
+            fields.position(Long.BYTES + 1 + codeLength);
+            visitor.visit(linkId, shortCode, fields.getInt(), fields.getLong());
+            offset += length;
+        }
+    }
+
+    // Caller holds appendLock, except in the constructor
+    private void roll() throws IOException {
+        if (active != null) {
+            active.force();
+            sealed.add(segmentPath(activeId));
+        }
+        activeId++;
+        MappedByteBuffer buffer = map(segmentPath(activeId), FileChannel.MapMode.READ_WRITE, segmentBytes);
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, activeId);
+        active = buffer;
+        activeOffset = HEADER_BYTES;
+    }
+
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode, long size) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            return channel.map(mode, 0, size);
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%020d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static long position(long segmentId, int offset) {
+        return segmentId << 32 | offset;
+    }
+
+    private record ReplayKey(long linkId, String shortCode) {
+    }
+
+    private interface RecordVisitor {
+        void visit(long linkId, String shortCode, int delta, long timestamp);
+    }
+}
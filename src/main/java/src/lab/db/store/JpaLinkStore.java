@@ -0,0 +1,36 @@
+package src.lab.db.store;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.LinkState;
+import src.lab.db.repositories.LinksRepository;
+import src.lab.infra.replica.ReplicaRouter;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(prefix = "app.link.store", name = "type", havingValue = "jpa", matchIfMissing = true)
+public class JpaLinkStore implements LinkStore {
+
+    private final LinksRepository linkRepository;
+    private final ReplicaRouter replicaRouter;
+
+    public JpaLinkStore(LinksRepository linkRepository, ReplicaRouter replicaRouter) {
+        this.linkRepository = linkRepository;
+        this.replicaRouter = replicaRouter;
+    }
+
+    // May be served by a replica; a miss there is re-read on the primary, and so is a link changed lately
+    @Override
+    public Optional<LinkState> find(String shortCode) {
+        return replicaRouter.readForCode(shortCode, () ->
+                replicaRouter.findOrPrimary(() -> linkRepository.findStateByShortCode(shortCode)));
+    }
+
+    @Override
+    public ClickResult registerClick(String shortCode, LocalDateTime now) {
+        return linkRepository.registerClick(shortCode, now);
+    }
+}
@@ -0,0 +1,14 @@
+package src.lab.db.store;
+
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.LinkState;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// What the redirect path needs from persistence: look a link up and count a click against its limit
+public interface LinkStore {
+    Optional<LinkState> find(String shortCode);
+
+    ClickResult registerClick(String shortCode, LocalDateTime now);
+}
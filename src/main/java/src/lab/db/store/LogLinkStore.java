@@ -0,0 +1,567 @@
+package src.lab.db.store;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.LinkState;
+import src.lab.infra.settings.AppConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Log-structured link store: links and clicks are appended to segment files, and an in-memory hash index maps each
+// code to its latest full record plus the click count. A redirect is one index lookup and one positioned read.
+// Records: crc32 of the rest, payload length, type, payload. A CLICK carries the new absolute count, so replay
+// takes the maximum and the order of concurrent appends does not matter. Compaction rewrites the sealed segments
+// into one, keeping only live links with their current counts
+@Component
+@ConditionalOnProperty(prefix = "app.link.store", name = "type", havingValue = "log")
+public class LogLinkStore implements LinkStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LogLinkStore.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+    private static final int RECORD_HEADER_BYTES = 9;
+    // id, expiresAt, clickLimit come before the count in a PUT payload
+    private static final int PUT_COUNT_OFFSET = RECORD_HEADER_BYTES + 8 + 8 + 4;
+    private static final byte PUT = 1;
+    private static final byte CLICK = 2;
+    private static final byte DELETE = 3;
+
+    private static final String LINKS_SQL =
+            "SELECT id, short_code, original_url, user_id, click_limit, click_count, expires_at FROM links";
+
+    // GREATEST keeps the row monotonic if a write-back is retried or races an older one
+    private static final String SYNC_CLICKS_SQL = "UPDATE links SET click_count = GREATEST(click_count, ?) WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path directory;
+    private final long segmentBytes;
+    private final double compactionGarbageRatio;
+    private final Map<String, Slot> index = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    // Read around positioned reads, written while compaction swaps the index and closes the segments it replaced
+    private final ReentrantReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+    private final List<LogSegment> sealed = new ArrayList<>();
+    private LogSegment active;
+    private long nextSegmentId;
+
+    public LogLinkStore(JdbcTemplate jdbcTemplate, AppConfig config) {
+        AppConfig.StoreConfig storeConfig = config.getLink().getStore();
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = Paths.get(storeConfig.getPath());
+        this.segmentBytes = storeConfig.getSegmentBytes();
+        this.compactionGarbageRatio = storeConfig.getCompactionGarbageRatio();
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open link log " + directory, e);
+        }
+    }
+
+    @Override
+    public Optional<LinkState> find(String shortCode) {
+        Slot slot = index.get(shortCode);
+        return slot != null ? read(shortCode, slot, slot.clickCount().get()) : Optional.empty();
+    }
+
+    @Override
+    public ClickResult registerClick(String shortCode, LocalDateTime now) {
+        Slot slot = index.get(shortCode);
+        if (slot == null) {
+            return ClickResult.notFound();
+        }
+
+        if (toMillis(now) > slot.expiresAt()) {
+            return rejected(shortCode, slot, slot.clickCount().get());
+        }
+        int count;
+        do {
+            count = slot.clickCount().get();
+            if (count >= slot.clickLimit()) {
+                return rejected(shortCode, slot, count);
+            }
+        } while (!slot.clickCount().compareAndSet(count, count + 1));
+
+        appendClick(shortCode, count + 1);
+        dirty.add(shortCode);
+        return read(shortCode, slot, count + 1).map(ClickResult::recorded).orElseGet(ClickResult::notFound);
+    }
+
+    public void put(LinkState link) {
+        appendLock.lock();
+        try {
+            // An update of the same link carries the database count, which lags behind the one counted here
+            Slot previous = index.get(link.shortCode());
+            AtomicInteger clicks = previous != null && previous.id() == link.id() ? previous.clickCount() : new AtomicInteger();
+            int count = clicks.accumulateAndGet(link.clickCount(), Math::max);
+
+            ByteBuffer record = putRecord(link, count);
+            int length = record.remaining();
+            long offset = append(record);
+            index.put(link.shortCode(), new Slot(link.id(), active, offset, length, link.clickLimit(), toMillis(link.expiresAt()), clicks));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to link log " + directory, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public void delete(String shortCode) {
+        byte[] code = shortCode.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = record(DELETE, 2 + code.length);
+        putBytes(record, code);
+        appendLock.lock();
+        try {
+            append(seal(record));
+            index.remove(shortCode);
+            dirty.remove(shortCode);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to link log " + directory, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public int segmentCount() {
+        appendLock.lock();
+        try {
+            return sealed.size() + 1;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Brings the store in line with the links table: it starts empty on the first run, and links may have changed
+    // while another store was configured
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        // Only codes known before the query may be dropped; links created meanwhile reach the index on their own
+        Set<String> unseen = new HashSet<>(index.keySet());
+        int[] loaded = {0};
+        jdbcTemplate.query(LINKS_SQL, rs -> {
+            LinkState link = new LinkState(rs.getLong("id"), rs.getString("short_code"), rs.getString("original_url"),
+                    rs.getString("user_id"), rs.getInt("click_limit"), rs.getInt("click_count"),
+                    rs.getObject("expires_at", LocalDateTime.class));
+            unseen.remove(link.shortCode());
+            Slot slot = index.get(link.shortCode());
+            if (slot == null || slot.id() != link.id() || slot.clickLimit() != link.clickLimit()
+                    || slot.expiresAt() != toMillis(link.expiresAt()) || slot.clickCount().get() < link.clickCount()) {
+                put(link);
+                loaded[0]++;
+            }
+        });
+        unseen.forEach(this::delete);
+        log.info("Link log holds {} links: {} loaded from the database, {} dropped", index.size(), loaded[0], unseen.size());
+    }
+
+    // Makes the active segment durable and writes the counted clicks back, so the REST API shows them
+    @Scheduled(fixedDelayString = "${app.link.store.sync-interval-ms}")
+    public void sync() {
+        LogSegment current;
+        appendLock.lock();
+        try {
+            current = active;
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            current.force();
+        } catch (IOException e) {
+            log.warn("Failed to sync link log segment {}", current.path(), e);
+        }
+
+        List<Object[]> updates = new ArrayList<>();
+        for (Iterator<String> it = dirty.iterator(); it.hasNext(); ) {
+            String shortCode = it.next();
+            // Removed before reading, so a click racing this one marks the code dirty again
+            it.remove();
+            Slot slot = index.get(shortCode);
+            if (slot != null) {
+                updates.add(new Object[]{slot.clickCount().get(), slot.id()});
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(SYNC_CLICKS_SQL, updates);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.link.store.compaction-interval-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void compact() {
+        if (!compactionLock.tryLock()) {
+            return;
+        }
+        try {
+            compactSealed();
+        } catch (IOException e) {
+            log.warn("Link log compaction failed", e);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        sync();
+        appendLock.lock();
+        segmentsLock.writeLock().lock();
+        try {
+            for (LogSegment segment : sealed) {
+                segment.close();
+            }
+            active.close();
+        } finally {
+            segmentsLock.writeLock().unlock();
+            appendLock.unlock();
+        }
+    }
+
+    private void compactSealed() throws IOException {
+        List<LogSegment> candidates;
+        appendLock.lock();
+        try {
+            candidates = List.copyOf(sealed);
+        } finally {
+            appendLock.unlock();
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Set<LogSegment> replaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        replaced.addAll(candidates);
+        long now = toMillis(LocalDateTime.now());
+        long totalBytes = 0;
+        for (LogSegment segment : candidates) {
+            totalBytes += segment.size() - LogSegment.HEADER_BYTES;
+        }
+        Map<String, Slot> live = new HashMap<>();
+        long liveBytes = 0;
+        for (Map.Entry<String, Slot> entry : index.entrySet()) {
+            Slot slot = entry.getValue();
+            if (replaced.contains(slot.segment())) {
+                live.put(entry.getKey(), slot);
+                if (now <= slot.expiresAt()) {
+                    liveBytes += slot.length();
+                }
+            }
+        }
+        // Old clicks, replaced versions, deletes and expired links are all garbage
+        if (totalBytes == 0 || totalBytes - liveBytes < totalBytes * compactionGarbageRatio) {
+            return;
+        }
+
+        // Counts of links about to be dropped as expired must reach the database first
+        sync();
+
+        LogSegment first = candidates.get(0);
+        LogSegment last = candidates.get(candidates.size() - 1);
+        Path target = segmentPath(last.id());
+        Path temp = target.resolveSibling(target.getFileName() + COMPACTING_SUFFIX);
+        Files.deleteIfExists(temp);
+
+        // Takes the id of the newest segment it replaces, so the clicks appended to later segments still replay after it
+        LogSegment output = LogSegment.create(temp, last.id(), first.firstCoveredId());
+        Map<String, Slot> moved = new HashMap<>();
+        List<String> expired = new ArrayList<>();
+        try {
+            for (Map.Entry<String, Slot> entry : live.entrySet()) {
+                Slot slot = entry.getValue();
+                if (now > slot.expiresAt()) {
+                    expired.add(entry.getKey());
+                    continue;
+                }
+                // Only this method closes sealed segments, so these reads need no lock
+                ByteBuffer record = slot.segment().read(slot.offset(), slot.length());
+                record.putInt(PUT_COUNT_OFFSET, slot.clickCount().get());
+                long offset = output.append(seal(record.position(record.limit())));
+                moved.put(entry.getKey(), new Slot(slot.id(), output, offset, slot.length(), slot.clickLimit(), slot.expiresAt(), slot.clickCount()));
+            }
+            output.force();
+            // A crash from here on leaves the replaced segments next to the output; recovery sees they are covered
+            output.moveTo(target);
+        } catch (IOException e) {
+            output.close();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        appendLock.lock();
+        segmentsLock.writeLock().lock();
+        try {
+            // Links changed during the copy keep their newer slot; the copied record is garbage for the next round
+            moved.forEach((shortCode, slot) -> index.replace(shortCode, live.get(shortCode), slot));
+            expired.forEach(shortCode -> index.remove(shortCode, live.get(shortCode)));
+            sealed.removeAll(candidates);
+            sealed.add(0, output);
+            for (LogSegment segment : candidates) {
+                segment.close();
+                if (segment != last) {
+                    Files.deleteIfExists(segment.path());
+                }
+            }
+        } finally {
+            segmentsLock.writeLock().unlock();
+            appendLock.unlock();
+        }
+        log.info("Compacted {} link log segments ({} bytes) into {} live links, {} expired dropped",
+                candidates.size(), totalBytes, moved.size(), expired.size());
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<LogSegment> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(COMPACTING_SUFFIX)) {
+                    // A compaction that never finished; the segments it was replacing are still there
+                    Files.delete(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(LogSegment.open(file, Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+                }
+            }
+        }
+        segments.sort((a, b) -> Long.compare(a.id(), b.id()));
+
+        // A compacted segment covers every older id from its firstCoveredId on; such leftovers outlive it only if
+        // the process died between writing it and deleting them
+        long coveredFrom = Long.MAX_VALUE;
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            LogSegment segment = segments.get(i);
+            if (segment.id() >= coveredFrom) {
+                segment.close();
+                Files.delete(segment.path());
+                segments.remove(i);
+            } else {
+                coveredFrom = Math.min(coveredFrom, segment.firstCoveredId());
+            }
+        }
+
+        long records = 0;
+        for (LogSegment segment : segments) {
+            records += replay(segment);
+        }
+        // Empty segments left by restarts carry nothing unless they stand in for older ids
+        segments.removeIf(segment -> {
+            if (segment.size() > LogSegment.HEADER_BYTES || segment.firstCoveredId() != segment.id()) {
+                return false;
+            }
+            try {
+                segment.close();
+                Files.delete(segment.path());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        });
+
+        sealed.addAll(segments);
+        nextSegmentId = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).id() + 1;
+        active = newSegment();
+        log.info("Recovered {} links from {} records in {} link log segments", index.size(), records, segments.size());
+    }
+
+    private long replay(LogSegment segment) throws IOException {
+        ByteBuffer data = segment.read(0, (int) segment.size());
+        int position = LogSegment.HEADER_BYTES;
+        long records = 0;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_BYTES <= data.limit()) {
+            int checksum = data.getInt(position);
+            int length = data.getInt(position + 4);
+            int end = position + RECORD_HEADER_BYTES + length;
+            if (length < 0 || end > data.limit()) {
+                break;
+            }
+            crc.reset();
+            crc.update(data.array(), position + 8, length + 1);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            apply(segment, position, end - position, data.slice(position + 8, length + 1));
+            position = end;
+            records++;
+        }
+        if (position < data.limit()) {
+            // Only the tail of the segment that was active at a crash can be torn
+            log.warn("Truncating {} bytes of an incomplete record at the end of {}", data.limit() - position, segment.path());
+            segment.truncate(position);
+        }
+        return records;
+    }
+
+    private void apply(LogSegment segment, long offset, int length, ByteBuffer record) {
+        switch (record.get()) {
+            case PUT -> {
+                long id = record.getLong();
+                long expiresAt = record.getLong();
+                int clickLimit = record.getInt();
+                int clickCount = record.getInt();
+                String shortCode = getString(record);
+                Slot previous = index.get(shortCode);
+                AtomicInteger clicks = previous != null && previous.id() == id ? previous.clickCount() : new AtomicInteger();
+                clicks.accumulateAndGet(clickCount, Math::max);
+                index.put(shortCode, new Slot(id, segment, offset, length, clickLimit, expiresAt, clicks));
+            }
+            case CLICK -> {
+                int clickCount = record.getInt();
+                Slot slot = index.get(getString(record));
+                if (slot != null) {
+                    slot.clickCount().accumulateAndGet(clickCount, Math::max);
+                }
+            }
+            case DELETE -> index.remove(getString(record));
+            default -> throw new IllegalStateException("Unknown link log record in " + segment.path() + " at " + offset);
+        }
+    }
+
+    private void appendClick(String shortCode, int clickCount) {
+        byte[] code = shortCode.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = record(CLICK, 4 + 2 + code.length);
+        record.putInt(clickCount);
+        putBytes(record, code);
+        appendLock.lock();
+        try {
+            append(seal(record));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to link log " + directory, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Caller holds appendLock
+    private long append(ByteBuffer record) throws IOException {
+        if (active.size() + record.remaining() > segmentBytes && active.size() > LogSegment.HEADER_BYTES) {
+            active.force();
+            sealed.add(active);
+            active = newSegment();
+        }
+        return active.append(record);
+    }
+
+    private LogSegment newSegment() throws IOException {
+        long id = nextSegmentId++;
+        return LogSegment.create(segmentPath(id), id, id);
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%020d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private ClickResult rejected(String shortCode, Slot slot, int clickCount) {
+        return read(shortCode, slot, clickCount).map(ClickResult::rejected).orElseGet(ClickResult::notFound);
+    }
+
+    // The one positioned read of a lookup: url and owner live only in the file
+    private Optional<LinkState> read(String shortCode, Slot slot, int clickCount) {
+        ByteBuffer record;
+        segmentsLock.readLock().lock();
+        try {
+            // Compaction may have moved the link since the caller looked it up; the moved slot has the same id
+            Slot current = index.get(shortCode);
+            if (current == null || current.id() != slot.id()) {
+                return Optional.empty();
+            }
+            record = current.segment().read(current.offset(), current.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read link log " + directory, e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+
+        record.position(PUT_COUNT_OFFSET + 4);
+        String code = getString(record);
+        String userId = getString(record);
+        String originalUrl = getString(record);
+        return Optional.of(new LinkState(slot.id(), code, originalUrl, userId, slot.clickLimit(), clickCount,
+                toLocalDateTime(slot.expiresAt())));
+    }
+
+    private static ByteBuffer putRecord(LinkState link, int clickCount) {
+        byte[] code = link.shortCode().getBytes(StandardCharsets.UTF_8);
+        byte[] userId = link.userId().getBytes(StandardCharsets.UTF_8);
+        byte[] url = link.originalUrl().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = record(PUT, 8 + 8 + 4 + 4 + 2 + code.length + 2 + userId.length + 2 + url.length);
+        record.putLong(link.id()).putLong(toMillis(link.expiresAt())).putInt(link.clickLimit()).putInt(clickCount);
+        putBytes(record, code);
+        putBytes(record, userId);
+        putBytes(record, url);
+        return seal(record);
+    }
+
+    private static ByteBuffer record(byte type, int payloadLength) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payloadLength);
+        return record.putInt(0).putInt(payloadLength).put(type);
+    }
+
+    // Fills in the checksum once the payload is written
+    private static ByteBuffer seal(ByteBuffer record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, record.position() - 8);
+        record.putInt(0, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private static void putBytes(ByteBuffer record, byte[] bytes) {
+        record.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort() & 0xFFFF];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private record Slot(long id, LogSegment segment, long offset, int length, int clickLimit, long expiresAt,
+                        AtomicInteger clickCount) {
+    }
+}
@@ -0,0 +1,53 @@
+package src.lab.db.store;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import src.lab.db.models.Link;
+import src.lab.db.models.LinkState;
+
+// Mirrors JPA writes into the log store when it is the configured one. Applied after commit, so a rolled-back
+// insert never becomes redirectable
+public class LogLinkStoreListener {
+
+    private final ObjectProvider<LogLinkStore> logLinkStore;
+
+    public LogLinkStoreListener(ObjectProvider<LogLinkStore> logLinkStore) {
+        this.logLinkStore = logLinkStore;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Link link) {
+        LogLinkStore store = logLinkStore.getIfAvailable();
+        if (store != null) {
+            LinkState state = LinkState.from(link);
+            afterCommit(() -> store.put(state));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Link link) {
+        LogLinkStore store = logLinkStore.getIfAvailable();
+        if (store != null) {
+            String shortCode = link.getShortCode();
+            afterCommit(() -> store.delete(shortCode));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package src.lab.db.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// One append-only file of the link log. Header: magic, version, and the id of the oldest segment this one
+// replaces, which is its own id unless compaction wrote it. Appends are serialized by LogLinkStore
+final class LogSegment implements Closeable {
+
+    static final int MAGIC = 0x4C4E4B4C;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    private final long id;
+    private final long firstCoveredId;
+    private final FileChannel channel;
+    private Path path;
+    private volatile long size;
+
+    private LogSegment(Path path, long id, long firstCoveredId, FileChannel channel, long size) {
+        this.path = path;
+        this.id = id;
+        this.firstCoveredId = firstCoveredId;
+        this.channel = channel;
+        this.size = size;
+    }
+
+    static LogSegment create(Path path, long id, long firstCoveredId) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putLong(firstCoveredId).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        return new LogSegment(path, id, firstCoveredId, channel, HEADER_BYTES);
+    }
+
+    static LogSegment open(Path path, long id) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            channel.close();
+            throw new IOException("Not a link log segment: " + path);
+        }
+        return new LogSegment(path, id, header.getLong(), channel, channel.size());
+    }
+
+    long id() {
+        return id;
+    }
+
+    long firstCoveredId() {
+        return firstCoveredId;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long size() {
+        return size;
+    }
+
+    // Returns the offset the record was written at
+    long append(ByteBuffer record) throws IOException {
+        long offset = size;
+        long position = offset;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        size = position;
+        return offset;
+    }
+
+    ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + path + " at " + offset);
+            }
+        }
+        return buffer.flip();
+    }
+
+    // Drops a torn record left by a crash in the middle of an append
+    void truncate(long newSize) throws IOException {
+        channel.truncate(newSize);
+        size = newSize;
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    void moveTo(Path target) throws IOException {
+        Files.move(path, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        path = target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,7 @@
+package src.lab.exceptions;
+
+public class ClickQuotaReservedException extends RuntimeException {
+    public ClickQuotaReservedException(String shortCode) {
+        super("Remaining clicks are reserved by other instances, try again later: " + shortCode);
+    }
+}
@@ -1,10 +1,12 @@
 package src.lab.exceptions;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import src.lab.schemas.ErrorResponse;
 
 @RestControllerAdvice
@@ -28,6 +30,18 @@ public class GlobalExceptionHandler {
         return ErrorResponse.of(ex.getMessage());
     }
 
+    @ExceptionHandler(ClickQuotaReservedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleClickQuotaReserved(ClickQuotaReservedException ex) {
+        return ErrorResponse.of(ex.getMessage());
+    }
+
+    @ExceptionHandler(LinkConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleLinkConflict(LinkConflictException ex) {
+        return ErrorResponse.of(ex.getMessage());
+    }
+
     @ExceptionHandler(UnauthorizedAccessException.class)
     @ResponseStatus(HttpStatus.FORBIDDEN)
     public ErrorResponse handleUnauthorizedAccess(UnauthorizedAccessException ex) {
@@ -40,6 +54,18 @@ public class GlobalExceptionHandler {
         return ErrorResponse.of(ex.getMessage());
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleInvalidCursor(InvalidCursorException ex) {
+        return ErrorResponse.of(ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidExportFormatException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleInvalidExportFormat(InvalidExportFormatException ex) {
+        return ErrorResponse.of(ex.getMessage());
+    }
+
     @ExceptionHandler(ShortCodeGenerationException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleShortCodeGeneration(ShortCodeGenerationException ex) {
@@ -49,11 +75,13 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleValidationErrors(MethodArgumentNotValidException ex) {
-        String errorMessage = ex.getBindingResult().getFieldErrors().stream()
-            .findFirst()
-            .map(error -> error.getDefaultMessage())
-            .orElse("Validation failed");
-        return ErrorResponse.of(errorMessage);
+        return firstFieldError(ex.getBindingResult());
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleReactiveValidationErrors(WebExchangeBindException ex) {
+        return firstFieldError(ex.getBindingResult());
     }
 
     @ExceptionHandler(Exception.class)
@@ -61,4 +89,12 @@ public class GlobalExceptionHandler {
     public ErrorResponse handleGenericException(Exception ex) {
         return ErrorResponse.of("An unexpected error occurred: " + ex.getMessage());
     }
+
+    private ErrorResponse firstFieldError(BindingResult bindingResult) {
+        String errorMessage = bindingResult.getFieldErrors().stream()
+            .findFirst()
+            .map(error -> error.getDefaultMessage())
+            .orElse("Validation failed");
+        return ErrorResponse.of(errorMessage);
+    }
 }
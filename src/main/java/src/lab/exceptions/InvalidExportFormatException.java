@@ -0,0 +1,7 @@
+package src.lab.exceptions;
+
+public class InvalidExportFormatException extends RuntimeException {
+    public InvalidExportFormatException(String format) {
+        super("Unsupported export format: " + format);
+    }
+}
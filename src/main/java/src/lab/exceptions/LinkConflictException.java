@@ -0,0 +1,7 @@
+package src.lab.exceptions;
+
+public class LinkConflictException extends RuntimeException {
+    public LinkConflictException(String shortCode) {
+        super("An active link to this URL already exists with a different click limit: " + shortCode);
+    }
+}
@@ -0,0 +1,65 @@
+package src.lab.infra;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+// Non-blocking port of AuthInterceptor with the same paths, statuses and messages
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAuthFilter implements WebFilter {
+
+    private static final PathPattern PROTECTED = PathPatternParser.defaultInstance.parse("/api/**");
+    private static final PathPattern EXCLUDED = PathPatternParser.defaultInstance.parse("/api/links/*/redirect");
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        if (!PROTECTED.matches(path) || EXCLUDED.matches(path)) {
+            return chain.filter(exchange);
+        }
+
+        String authHeader = exchange.getRequest().getHeaders().getFirst("Authorization");
+
+        if (authHeader == null || authHeader.isBlank()) {
+            return reject(exchange.getResponse(), HttpStatus.UNAUTHORIZED, "Missing Authorization header");
+        }
+
+        String userId = authHeader.startsWith("Bearer ")
+            ? authHeader.substring(7)
+            : authHeader;
+
+        userId = userId.trim();
+
+        if (userId.isEmpty()) {
+            return reject(exchange.getResponse(), HttpStatus.UNAUTHORIZED, "Invalid Authorization header");
+        }
+
+        try {
+            UUID.fromString(userId);
+        } catch (IllegalArgumentException e) {
+            return reject(exchange.getResponse(), HttpStatus.BAD_REQUEST, "Invalid UUID format");
+        }
+
+        exchange.getAttributes().put("userId", userId);
+        return chain.filter(exchange);
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, HttpStatus status, String message) {
+        response.setStatusCode(status);
+        DataBuffer body = response.bufferFactory().wrap(message.getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(body));
+    }
+}
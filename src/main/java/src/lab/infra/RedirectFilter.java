@@ -0,0 +1,103 @@
+package src.lab.infra;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import src.lab.db.models.ClickResult;
+import src.lab.services.LinksService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RedirectFilter extends OncePerRequestFilter {
+
+    private static final int MAX_SHORT_CODE_LENGTH = 32;
+    // Root paths the framework serves itself; none of them is a code of the default length
+    private static final List<String> RESERVED_PATHS = List.of("error", "actuator", "favicon", "index", "api");
+
+    // Error bodies are fixed, so they are encoded once instead of going through Jackson on every miss
+    private static final byte[] NOT_FOUND_BODY = "{\"error\":\"Link not found\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EXPIRED_BODY = "{\"error\":\"Link has expired\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LIMIT_REACHED_BODY = "{\"error\":\"Click limit reached for link\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] QUOTA_RESERVED_BODY = "{\"error\":\"Remaining clicks are reserved by other instances, try again later\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final LinksService linksService;
+
+    public RedirectFilter(LinksService linksService) {
+        this.linksService = linksService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // An error page or forward keeps the URI of the request that failed, which is not a visit
+        return request.getDispatcherType() != DispatcherType.REQUEST
+                || !"GET".equals(request.getMethod())
+                || shortCodeStart(request) < 0;
+    }
+
+    // Whether the segment of path from start on is reserved; the reactive redirect route checks it too
+    public static boolean isReservedPath(String path, int start) {
+        int length = path.length() - start;
+        for (String reserved : RESERVED_PATHS) {
+            if (reserved.length() == length && path.regionMatches(start, reserved, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String uri = request.getRequestURI();
+        ClickResult result = linksService.click(uri.substring(shortCodeStart(request)));
+
+        switch (result.outcome()) {
+            case RECORDED -> {
+                response.setStatus(HttpStatus.FOUND.value());
+                response.setHeader(HttpHeaders.LOCATION, result.link().originalUrl());
+                // Every visit has to reach us to be counted
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            }
+            case EXPIRED -> writeError(response, HttpStatus.GONE, EXPIRED_BODY);
+            case LIMIT_REACHED -> writeError(response, HttpStatus.GONE, LIMIT_REACHED_BODY);
+            case QUOTA_RESERVED -> writeError(response, HttpStatus.SERVICE_UNAVAILABLE, QUOTA_RESERVED_BODY);
+            case NOT_FOUND -> writeError(response, HttpStatus.NOT_FOUND, NOT_FOUND_BODY);
+        }
+    }
+
+    // Index of the short code in the request URI, or -1 unless the path is a single base62 segment that is not reserved
+    private static int shortCodeStart(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length() + 1;
+        int length = uri.length() - start;
+        if (length < 1 || length > MAX_SHORT_CODE_LENGTH || uri.charAt(start - 1) != '/') {
+            return -1;
+        }
+        for (int i = start; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z')) {
+                return -1;
+            }
+        }
+        return isReservedPath(uri, start) ? -1 : start;
+    }
+
+    private static void writeError(HttpServletResponse response, HttpStatus status, byte[] body) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
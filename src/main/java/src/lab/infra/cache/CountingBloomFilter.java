@@ -0,0 +1,110 @@
+package src.lab.infra.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class CountingBloomFilter {
+
+    // 4-bit counters, sixteen to a word; a counter that reaches 15 sticks there so removals can never cause false negatives
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final long COUNTER_MASK = 0xFL;
+
+    private final AtomicLongArray words;
+    private final long counters;
+    private final int hashes;
+
+    public CountingBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long expected = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new AtomicLongArray((int) Math.max(1, (bits + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD));
+        this.counters = (long) words.length() * COUNTERS_PER_WORD;
+        this.hashes = Math.max(1, (int) Math.round((double) counters / expected * Math.log(2)));
+    }
+
+    public void add(CharSequence key) {
+        long hash = hash(key);
+        for (int i = 0; i < hashes; i++) {
+            increment(index(hash, i));
+        }
+    }
+
+    public void remove(CharSequence key) {
+        long hash = hash(key);
+        for (int i = 0; i < hashes; i++) {
+            decrement(index(hash, i));
+        }
+    }
+
+    public boolean mightContain(CharSequence key) {
+        long hash = hash(key);
+        for (int i = 0; i < hashes; i++) {
+            long index = index(hash, i);
+            if (counter(words.get((int) (index / COUNTERS_PER_WORD)), index) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    public int hashFunctions() {
+        return hashes;
+    }
+
+    private void increment(long index) {
+        int word = (int) (index / COUNTERS_PER_WORD);
+        while (true) {
+            long current = words.get(word);
+            long counter = counter(current, index);
+            if (counter == COUNTER_MASK || words.compareAndSet(word, current, current + unit(index))) {
+                return;
+            }
+        }
+    }
+
+    private void decrement(long index) {
+        int word = (int) (index / COUNTERS_PER_WORD);
+        while (true) {
+            long current = words.get(word);
+            long counter = counter(current, index);
+            if (counter == 0 || counter == COUNTER_MASK || words.compareAndSet(word, current, current - unit(index))) {
+                return;
+            }
+        }
+    }
+
+    private static long counter(long word, long index) {
+        return (word >>> shift(index)) & COUNTER_MASK;
+    }
+
+    private static long unit(long index) {
+        return 1L << shift(index);
+    }
+
+    private static int shift(long index) {
+        return (int) (index % COUNTERS_PER_WORD) * 4;
+    }
+
+    // Kirsch-Mitzenmacher: k indexes from two halves of one 64-bit hash
+    private long index(long hash, int i) {
+        long h1 = hash & 0xFFFFFFFFL;
+        long h2 = hash >>> 32;
+        return ((h1 + i * h2) & Long.MAX_VALUE) % counters;
+    }
+
+    private static long hash(CharSequence key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,172 @@
+package src.lab.infra.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import src.lab.db.models.LinkState;
+import src.lab.infra.settings.AppConfig;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+@Component
+public class LinkCache {
+
+    private static final Duration MAX_EXPIRY = Duration.ofNanos(Long.MAX_VALUE);
+    private static final int INVALIDATION_STRIPES = 64;
+
+    private final AppConfig.CachePolicy policy;
+    private final Cache<String, LinkState> cache;
+    private final ShortCodeIndex index;
+    private final LongAdder indexHits = new LongAdder();
+    private final LongAdder indexMisses = new LongAdder();
+    // Bumped by every eviction from the index, per stripe of codes; a load that saw a bump while it ran drops its result
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    public LinkCache(AppConfig config) {
+        AppConfig.CacheConfig cacheConfig = config.getLink().getCache();
+        this.policy = policy(cacheConfig.getPolicy(), config.getLink().getClicks().getMode());
+        long maximumSize = cacheConfig.getMaximumSize();
+        // Caffeine bounds by W-TinyLFU, so a scan over cold codes does not flush the hot set
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(policy == AppConfig.CachePolicy.TINY_LFU ? maximumSize : 0)
+                .expireAfter(new LinkExpiry())
+                .recordStats()
+                .build();
+        this.index = policy == AppConfig.CachePolicy.INDEX
+                ? new ShortCodeIndex((int) Math.min(maximumSize, 1 << 20), (int) Math.min(maximumSize, Integer.MAX_VALUE))
+                : null;
+    }
+
+    public Optional<LinkState> get(String shortCode, Function<String, Optional<LinkState>> loader) {
+        if (policy == AppConfig.CachePolicy.NONE) {
+            return loader.apply(shortCode);
+        }
+        if (policy == AppConfig.CachePolicy.INDEX) {
+            return getIndexed(shortCode, loader);
+        }
+        return Optional.ofNullable(cache.get(shortCode, code -> loader.apply(code).orElse(null)));
+    }
+
+    public void invalidate(String shortCode) {
+        evict(shortCode);
+
+        // A concurrent redirect may reload the old row before our transaction commits
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(shortCode);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        if (index != null) {
+            index.clear();
+        }
+    }
+
+    public AppConfig.CachePolicy getPolicy() {
+        return policy;
+    }
+
+    public long size() {
+        return index != null ? index.size() : cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        if (index != null) {
+            return CacheStats.of(indexHits.sum(), indexMisses.sum(), 0, 0, 0, index.evictionCount(), 0);
+        }
+        return cache.stats();
+    }
+
+    // The index bounds itself to maximum-size, evicting the soonest-expiring of a few sampled entries
+    private Optional<LinkState> getIndexed(String shortCode, Function<String, Optional<LinkState>> loader) {
+        LinkState link = index.get(shortCode);
+        if (link != null && !link.isExpired()) {
+            indexHits.increment();
+            return Optional.of(link);
+        }
+        if (link != null) {
+            index.remove(shortCode);
+        }
+
+        indexMisses.increment();
+        int stripe = stripe(shortCode);
+        long version = invalidations.get(stripe);
+        Optional<LinkState> loaded = loader.apply(shortCode);
+        if (loaded.isPresent() && !loaded.get().isExpired()) {
+            index.put(loaded.get());
+            // Checked after the put: an eviction either bumped the version before this read or removes the entry after
+            if (invalidations.get(stripe) != version) {
+                index.remove(shortCode);
+            }
+        }
+        return loaded;
+    }
+
+    // Only write-behind reads the cache: sync and leased clicks go straight to the conditional UPDATE, which checks
+    // expiry and limit itself, so a cache in front of it would add a SELECT on every first redirect
+    private static AppConfig.CachePolicy policy(AppConfig.CachePolicy configured, AppConfig.ClickMode mode) {
+        boolean writeBehind = mode == AppConfig.ClickMode.WRITE_BEHIND;
+        if (configured == null) {
+            return writeBehind ? AppConfig.CachePolicy.TINY_LFU : AppConfig.CachePolicy.NONE;
+        }
+        if (configured != AppConfig.CachePolicy.NONE && !writeBehind) {
+            throw new IllegalStateException("app.link.cache.policy=" + configured.name().toLowerCase(Locale.ROOT).replace('_', '-')
+                    + " requires app.link.clicks.mode=write-behind; no other click mode reads the cache");
+        }
+        return configured;
+    }
+
+    private void evict(String shortCode) {
+        cache.invalidate(shortCode);
+        if (index != null) {
+            invalidations.incrementAndGet(stripe(shortCode));
+            index.remove(shortCode);
+        }
+    }
+
+    private static int stripe(String shortCode) {
+        return shortCode.hashCode() & (INVALIDATION_STRIPES - 1);
+    }
+
+    private static class LinkExpiry implements Expiry<String, LinkState> {
+
+        @Override
+        public long expireAfterCreate(String key, LinkState value, long currentTime) {
+            return nanosUntil(value.expiresAt());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, LinkState value, long currentTime, long currentDuration) {
+            return nanosUntil(value.expiresAt());
+        }
+
+        @Override
+        public long expireAfterRead(String key, LinkState value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private static long nanosUntil(LocalDateTime expiresAt) {
+            Duration remaining = Duration.between(LocalDateTime.now(), expiresAt);
+            if (remaining.isNegative()) {
+                return 0;
+            }
+            return remaining.compareTo(MAX_EXPIRY) > 0 ? Long.MAX_VALUE : remaining.toNanos();
+        }
+    }
+}
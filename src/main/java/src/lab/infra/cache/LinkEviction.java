@@ -0,0 +1,47 @@
+package src.lab.infra.cache;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import src.lab.db.store.LogLinkStore;
+
+// What deleteLink and the entity listeners do once a row is gone, for the set-based deletes that bypass them:
+// the code leaves the link cache, the negative cache and, when it is the configured store, the log store
+@Component
+public class LinkEviction {
+
+    private final LinkCache linkCache;
+    private final NegativeLinkCache negativeLinkCache;
+    private final ObjectProvider<LogLinkStore> logLinkStore;
+
+    public LinkEviction(LinkCache linkCache, NegativeLinkCache negativeLinkCache, ObjectProvider<LogLinkStore> logLinkStore) {
+        this.linkCache = linkCache;
+        this.negativeLinkCache = negativeLinkCache;
+        this.logLinkStore = logLinkStore;
+    }
+
+    public void linkDeleted(String shortCode) {
+        linkCache.invalidate(shortCode);
+        negativeLinkCache.linkDeleted(shortCode);
+
+        // After commit, like LogLinkStoreListener: a rolled-back delete must stay redirectable
+        LogLinkStore store = logLinkStore.getIfAvailable();
+        if (store != null) {
+            afterCommit(() -> store.delete(shortCode));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package src.lab.infra.cache;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import src.lab.db.models.Link;
+
+public class LinkExpiryListener {
+
+    private final LinkExpiryScheduler linkExpiryScheduler;
+
+    public LinkExpiryListener(LinkExpiryScheduler linkExpiryScheduler) {
+        this.linkExpiryScheduler = linkExpiryScheduler;
+    }
+
+    // Runs before commit: a rolled-back insert still fires later, and its delete finds no row
+    @PostPersist
+    @PostUpdate
+    public void onSave(Link link) {
+        linkExpiryScheduler.schedule(link.getShortCode(), link.getExpiresAt());
+    }
+}
@@ -0,0 +1,108 @@
+package src.lab.infra.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import src.lab.db.models.ClickOutcome;
+import src.lab.infra.settings.AppConfig;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+// Expires links at their deadline instead of waiting for the next cleanup sweep: the wheel is fed by
+// inserts, updates and a startup load, and every tick deletes what came due in batches and evicts it.
+// Cleanup stays as the backstop for links this instance never saw.
+@Component
+public class LinkExpiryScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkExpiryScheduler.class);
+    // expires_at is re-checked, so a link recreated under a reused code survives a stale entry
+    private static final String DELETE_SQL = "DELETE FROM links WHERE short_code = ? AND expires_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LinkEviction linkEviction;
+    private final NegativeLinkCache negativeLinkCache;
+    private final boolean enabled;
+    private final int deleteBatchSize;
+    private final TimingWheel<String> wheel;
+
+    // Only JDBC-level dependencies: Hibernate builds LinkExpiryListener, so nothing here may need the EntityManagerFactory
+    public LinkExpiryScheduler(JdbcTemplate jdbcTemplate, LinkEviction linkEviction, NegativeLinkCache negativeLinkCache, AppConfig config) {
+        AppConfig.ExpiryConfig expiryConfig = config.getLink().getExpiry();
+        this.jdbcTemplate = jdbcTemplate;
+        this.linkEviction = linkEviction;
+        this.negativeLinkCache = negativeLinkCache;
+        this.enabled = expiryConfig.isEnabled();
+        this.deleteBatchSize = expiryConfig.getDeleteBatchSize();
+        this.wheel = new TimingWheel<>(expiryConfig.getTickMs(), System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        // Links created while this runs are scheduled twice; the second firing deletes nothing
+        long[] count = {0};
+        jdbcTemplate.query("SELECT short_code, expires_at FROM links", rs -> {
+            schedule(rs.getString(1), rs.getObject(2, LocalDateTime.class));
+            count[0]++;
+        });
+        log.info("Scheduled expiry of {} links", count[0]);
+    }
+
+    public void schedule(String shortCode, LocalDateTime expiresAt) {
+        if (enabled) {
+            wheel.add(shortCode, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.link.expiry.tick-ms}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(System.currentTimeMillis(), expired::add);
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = 0;
+        for (int from = 0; from < expired.size(); from += deleteBatchSize) {
+            List<String> batch = expired.subList(from, Math.min(from + deleteBatchSize, expired.size()));
+            deleted += delete(batch, now);
+        }
+        log.debug("Expired {} of {} due links", deleted, expired.size());
+    }
+
+    // Auto-committed batch outside any transaction, so the caches below are updated for rows already gone
+    private int delete(List<String> batch, LocalDateTime now) {
+        List<Object[]> args = batch.stream().map(code -> new Object[]{code, now}).toList();
+        int[] counts = jdbcTemplate.batchUpdate(DELETE_SQL, args);
+        int deleted = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                String shortCode = batch.get(i);
+                // Only codes that were really deleted: a stale entry must not evict a link recreated under the same code
+                linkEviction.linkDeleted(shortCode);
+                negativeLinkCache.remember(shortCode, ClickOutcome.EXPIRED);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public int scheduled() {
+        return wheel.size();
+    }
+}
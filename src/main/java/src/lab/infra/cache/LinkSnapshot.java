@@ -0,0 +1,359 @@
+package src.lab.infra.cache;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.LinkState;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.ClickCounter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Binary snapshot of the active links. Layout: header, then an int offset per record sorted by short code,
+// then records of (createdAt, expiresAt, clickLimit, clickCount, urlHash, flags, code, userId, url). The header also
+// keeps the next short_code_blocks value, so hi-lo does not hand out the codes of restored links again. The url hash
+// and idempotency key come back with the link, or an idempotent create would no longer find it
+@Component
+public class LinkSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkSnapshot.class);
+
+    private static final int MAGIC = 0x4C4E4B53;
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 28;
+    private static final int URL_HASH_OFFSET = 24;
+    private static final int FLAGS_OFFSET = 32;
+    private static final int CODE_OFFSET = 33;
+    private static final byte HAS_URL_HASH = 1;
+    // idempotency_key is either NULL or the url hash
+    private static final byte IDEMPOTENT = 2;
+
+    private static final String ACTIVE_LINKS_SQL = """
+            SELECT short_code, original_url, url_hash, idempotency_key, user_id, click_limit, click_count, created_at, expires_at
+            FROM links
+            WHERE expires_at >= ? AND click_count < click_limit""";
+
+    private static final String RESTORE_USER_SQL = """
+            INSERT INTO users (id, created_at)
+            SELECT ?, ?
+            WHERE NOT EXISTS (SELECT 1 FROM users WHERE id = ?)""";
+
+    private static final String RESTORE_LINK_SQL = """
+            INSERT INTO links (id, short_code, original_url, url_hash, idempotency_key, user_id, click_limit, click_count,
+                               reserved_clicks, created_at, expires_at)
+            SELECT NEXT VALUE FOR links_seq, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?
+            WHERE NOT EXISTS (SELECT 1 FROM links WHERE short_code = ?)""";
+
+    private static final String NEXT_CODE_BLOCK_SQL =
+            "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'SHORT_CODE_BLOCKS'";
+
+    private static final String APPLY_CLICKS_SQL = "UPDATE links SET click_count = click_count + ? WHERE short_code = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClickCounter clickCounter;
+    private final boolean enabled;
+    private final Path path;
+    private final ReentrantReadWriteLock restoreLock = new ReentrantReadWriteLock();
+
+    // Non-null only between startup and the end of restore(); the database is authoritative afterwards
+    private volatile ByteBuffer mapped;
+    private AtomicIntegerArray snapshotClicks;
+
+    public LinkSnapshot(JdbcTemplate jdbcTemplate, AppConfig config, ClickCounter clickCounter) {
+        AppConfig.SnapshotConfig snapshotConfig = config.getLink().getSnapshot();
+        this.jdbcTemplate = jdbcTemplate;
+        this.clickCounter = clickCounter;
+        this.enabled = snapshotConfig.isEnabled();
+        this.path = Paths.get(snapshotConfig.getPath());
+        if (enabled) {
+            open();
+        }
+    }
+
+    public Optional<ClickResult> click(String shortCode) {
+        if (mapped == null) {
+            return Optional.empty();
+        }
+
+        restoreLock.readLock().lock();
+        try {
+            ByteBuffer snapshot = mapped;
+            if (snapshot == null) {
+                return Optional.empty();
+            }
+            int index = indexOf(snapshot, shortCode);
+            if (index < 0) {
+                // Possibly created after startup, so only the database can tell
+                return Optional.empty();
+            }
+
+            int offset = snapshot.getInt(HEADER_BYTES + index * Integer.BYTES);
+            int clickLimit = snapshot.getInt(offset + 16);
+            int storedCount = snapshot.getInt(offset + 20);
+            LocalDateTime expiresAt = toLocalDateTime(snapshot.getLong(offset + 8));
+
+            int extra;
+            do {
+                extra = snapshotClicks.get(index);
+                if (storedCount + extra >= clickLimit || LocalDateTime.now().isAfter(expiresAt)) {
+                    return Optional.of(ClickResult.rejected(state(snapshot, offset, storedCount + extra)));
+                }
+            } while (!snapshotClicks.compareAndSet(index, extra, extra + 1));
+
+            return Optional.of(ClickResult.recorded(state(snapshot, offset, storedCount + extra + 1)));
+        } finally {
+            restoreLock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void restore() {
+        ByteBuffer snapshot = mapped;
+        if (snapshot == null) {
+            return;
+        }
+
+        int count = snapshot.getInt(8);
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> userIds = new LinkedHashSet<>();
+        List<Object[]> links = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int offset = snapshot.getInt(HEADER_BYTES + i * Integer.BYTES);
+            LinkState link = state(snapshot, offset, snapshot.getInt(offset + 20));
+            byte flags = snapshot.get(offset + FLAGS_OFFSET);
+            Long urlHash = (flags & HAS_URL_HASH) != 0 ? snapshot.getLong(offset + URL_HASH_OFFSET) : null;
+            Long idempotencyKey = (flags & IDEMPOTENT) != 0 ? urlHash : null;
+            userIds.add(link.userId());
+            links.add(new Object[]{link.shortCode(), link.originalUrl(), urlHash, idempotencyKey, link.userId(), link.clickLimit(),
+                    link.clickCount(), toLocalDateTime(snapshot.getLong(offset)), link.expiresAt(), link.shortCode()});
+        }
+
+        // The sequence restarted with the database; move it past every block the restored codes came from
+        long codeBlocks = snapshot.getLong(20);
+        Long nextBlock = jdbcTemplate.queryForObject(NEXT_CODE_BLOCK_SQL, Long.class);
+        if (nextBlock != null && nextBlock < codeBlocks) {
+            jdbcTemplate.execute("ALTER SEQUENCE short_code_blocks RESTART WITH " + codeBlocks);
+        }
+
+        List<Object[]> users = userIds.stream().map(id -> new Object[]{id, now, id}).toList();
+        jdbcTemplate.batchUpdate(RESTORE_USER_SQL, users);
+        jdbcTemplate.batchUpdate(RESTORE_LINK_SQL, links);
+
+        // Snapshot redirects are blocked while their clicks move over, so no click is lost or counted twice
+        restoreLock.writeLock().lock();
+        try {
+            List<Object[]> clicks = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int extra = snapshotClicks.get(i);
+                if (extra > 0) {
+                    clicks.add(new Object[]{extra, links.get(i)[0]});
+                }
+            }
+            jdbcTemplate.batchUpdate(APPLY_CLICKS_SQL, clicks);
+            mapped = null;
+            snapshotClicks = null;
+            log.info("Restored {} links from snapshot {}, {} clicks served from it", count, path, clicks.size());
+        } finally {
+            restoreLock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.link.snapshot.write-interval-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void write() {
+        // Before restore completes the database holds only part of the links
+        if (!enabled || mapped != null) {
+            return;
+        }
+
+        List<Entry> entries = new ArrayList<>(jdbcTemplate.query(ACTIVE_LINKS_SQL, (rs, rowNum) -> new Entry(
+                rs.getString("short_code").getBytes(StandardCharsets.US_ASCII),
+                rs.getString("original_url").getBytes(StandardCharsets.UTF_8),
+                rs.getString("user_id").getBytes(StandardCharsets.UTF_8),
+                rs.getInt("click_limit"),
+                rs.getInt("click_count"),
+                toMillis(rs.getObject("created_at", LocalDateTime.class)),
+                toMillis(rs.getObject("expires_at", LocalDateTime.class)),
+                rs.getObject("url_hash", Long.class),
+                rs.getObject("idempotency_key", Long.class) != null
+        ), LocalDateTime.now()));
+        entries.sort(Comparator.comparing(Entry::code, Arrays::compare));
+        // Read after the links: every block their codes came from has been taken from the sequence by now
+        Long nextBlock = jdbcTemplate.queryForObject(NEXT_CODE_BLOCK_SQL, Long.class);
+
+        long size = HEADER_BYTES + (long) entries.size() * Integer.BYTES;
+        for (Entry entry : entries) {
+            size += entry.size();
+        }
+        if (size > Integer.MAX_VALUE) {
+            log.warn("Snapshot of {} links needs {} bytes, skipping", entries.size(), size);
+            return;
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(entries.size()).putLong(System.currentTimeMillis())
+                        .putLong(nextBlock != null ? nextBlock : 0);
+
+                int offset = HEADER_BYTES + entries.size() * Integer.BYTES;
+                for (Entry entry : entries) {
+                    buffer.putInt(offset);
+                    offset += entry.size();
+                }
+                for (Entry entry : entries) {
+                    entry.writeTo(buffer);
+                }
+                buffer.force();
+            }
+            // Readers only ever see the previous complete file or the new one
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.debug("Wrote snapshot of {} links to {}", entries.size(), path);
+        } catch (IOException e) {
+            log.warn("Failed to write link snapshot to {}", path, e);
+        }
+    }
+
+    // Injecting the counter only makes it outlive this bean; its own shutdown flush would still come after the
+    // write, so clicks buffered or leased in memory are flushed here first or the restored links would lose them
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            clickCounter.flushAll();
+        }
+        write();
+    }
+
+    private void open() {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                log.warn("Ignoring link snapshot {} with unknown format", path);
+                return;
+            }
+            int count = buffer.getInt(8);
+            snapshotClicks = new AtomicIntegerArray(count);
+            mapped = buffer;
+            log.info("Mapped snapshot of {} links written at {}", count, Instant.ofEpochMilli(buffer.getLong(12)));
+        } catch (IOException e) {
+            log.warn("Failed to map link snapshot {}", path, e);
+        }
+    }
+
+    private static int indexOf(ByteBuffer snapshot, String shortCode) {
+        int low = 0;
+        int high = snapshot.getInt(8) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareCode(snapshot, snapshot.getInt(HEADER_BYTES + mid * Integer.BYTES), shortCode);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Short codes are base62, so comparing bytes to chars directly avoids decoding every probe
+    private static int compareCode(ByteBuffer snapshot, int offset, String shortCode) {
+        int length = snapshot.get(offset + CODE_OFFSET) & 0xFF;
+        int common = Math.min(length, shortCode.length());
+        for (int i = 0; i < common; i++) {
+            int cmp = (snapshot.get(offset + CODE_OFFSET + 1 + i) & 0xFF) - shortCode.charAt(i);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - shortCode.length();
+    }
+
+    private static LinkState state(ByteBuffer snapshot, int offset, int clickCount) {
+        int position = offset + CODE_OFFSET;
+        int codeLength = snapshot.get(position) & 0xFF;
+        String shortCode = readString(snapshot, position + 1, codeLength);
+        position += 1 + codeLength;
+
+        int userLength = snapshot.getShort(position) & 0xFFFF;
+        String userId = readString(snapshot, position + 2, userLength);
+        position += 2 + userLength;
+
+        int urlLength = snapshot.getShort(position) & 0xFFFF;
+        String originalUrl = readString(snapshot, position + 2, urlLength);
+
+        return new LinkState(null, shortCode, originalUrl, userId, snapshot.getInt(offset + 16), clickCount,
+                toLocalDateTime(snapshot.getLong(offset + 8)));
+    }
+
+    private static String readString(ByteBuffer snapshot, int position, int length) {
+        byte[] bytes = new byte[length];
+        snapshot.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    record Entry(byte[] code, byte[] url, byte[] userId, int clickLimit, int clickCount, long createdAt, long expiresAt,
+                 Long urlHash, boolean idempotent) {
+
+        int size() {
+            return CODE_OFFSET + 1 + code.length + 2 + userId.length + 2 + url.length;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            byte flags = (byte) ((urlHash != null ? HAS_URL_HASH : 0) | (urlHash != null && idempotent ? IDEMPOTENT : 0));
+            buffer.putLong(createdAt).putLong(expiresAt).putInt(clickLimit).putInt(clickCount);
+            buffer.putLong(urlHash != null ? urlHash : 0).put(flags);
+            buffer.put((byte) code.length).put(code);
+            buffer.putShort((short) userId.length).put(userId);
+            buffer.putShort((short) url.length).put(url);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package src.lab.infra.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import src.lab.db.models.ClickOutcome;
+import src.lab.infra.settings.AppConfig;
+import src.lab.infra.shard.ShardRouter;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Codes that cannot redirect: tombstones for expired and exhausted links, briefly remembered misses for unknown
+// codes, and optionally a Bloom filter of every code. A miss is remembered for miss-seconds only, since a link
+// created on another instance is not announced here
+@Component
+public class NegativeLinkCache {
+
+    private static final Logger log = LoggerFactory.getLogger(NegativeLinkCache.class);
+    private static final int CREATION_STRIPES = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final boolean bloomFilterEnabled;
+    private final CountingBloomFilter existingCodes;
+    private final Cache<String, ClickOutcome> tombstones;
+    private final Cache<String, Boolean> misses;
+    // Bumped by every create, per stripe of codes; a miss read before a create committed is not remembered
+    private final AtomicLongArray creations = new AtomicLongArray(CREATION_STRIPES);
+    private volatile boolean loaded;
+
+    public NegativeLinkCache(JdbcTemplate jdbcTemplate, ShardRouter shardRouter, AppConfig config) {
+        AppConfig.NegativeCacheConfig cacheConfig = config.getLink().getNegativeCache();
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.bloomFilterEnabled = cacheConfig.isBloomFilterEnabled();
+        this.existingCodes = new CountingBloomFilter(cacheConfig.getExpectedLinks(), cacheConfig.getFalsePositiveRate());
+        this.tombstones = Caffeine.newBuilder()
+                .maximumSize(cacheConfig.getTombstoneSize())
+                .expireAfterWrite(Duration.ofSeconds(cacheConfig.getTombstoneSeconds()))
+                .build();
+        this.misses = Caffeine.newBuilder()
+                .maximumSize(cacheConfig.getMissSeconds() > 0 ? cacheConfig.getTombstoneSize() : 0)
+                .expireAfterWrite(Duration.ofSeconds(cacheConfig.getMissSeconds()))
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!bloomFilterEnabled) {
+            return;
+        }
+
+        // Links created while this runs are added twice, which can only cost a false positive
+        long[] count = {0};
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            shardRouter.onShard(shard, () -> {
+                jdbcTemplate.query("SELECT short_code FROM links", rs -> {
+                    existingCodes.add(rs.getString(1));
+                    count[0]++;
+                });
+                return null;
+            });
+        }
+        loaded = true;
+        log.info("Loaded {} short codes into the Bloom filter ({} bytes, {} hash functions)",
+                count[0], existingCodes.sizeInBytes(), existingCodes.hashFunctions());
+    }
+
+    public Optional<ClickOutcome> lookup(String shortCode) {
+        if (bloomFilterEnabled && loaded && !existingCodes.mightContain(shortCode)) {
+            return Optional.of(ClickOutcome.NOT_FOUND);
+        }
+        ClickOutcome tombstone = tombstones.getIfPresent(shortCode);
+        if (tombstone != null) {
+            return Optional.of(tombstone);
+        }
+        return misses.getIfPresent(shortCode) != null ? Optional.of(ClickOutcome.NOT_FOUND) : Optional.empty();
+    }
+
+    public void remember(String shortCode, ClickOutcome outcome) {
+        tombstones.put(shortCode, outcome);
+    }
+
+    // Taken before the lookup whose miss is then passed to rememberMiss
+    public long missStamp(String shortCode) {
+        return creations.get(stripe(shortCode));
+    }
+
+    public void rememberMiss(String shortCode, long stamp) {
+        int stripe = stripe(shortCode);
+        if (creations.get(stripe) != stamp) {
+            return;
+        }
+        misses.put(shortCode, Boolean.TRUE);
+        // Checked after the put: a create either bumped the stripe before this read or invalidates the entry after
+        if (creations.get(stripe) != stamp) {
+            misses.invalidate(shortCode);
+        }
+    }
+
+    public void forget(String shortCode) {
+        tombstones.invalidate(shortCode);
+
+        // A redirect before our transaction commits still sees the old row and may tombstone the code again
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tombstones.invalidate(shortCode);
+                }
+            });
+        }
+    }
+
+    public void linkCreated(String shortCode) {
+        existingCodes.add(shortCode);
+        tombstones.invalidate(shortCode);
+        forgetMiss(shortCode);
+
+        // A redirect before our transaction commits still misses the row and would remember that
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    forgetMiss(shortCode);
+                }
+            });
+        }
+    }
+
+    public void linkDeleted(String shortCode) {
+        tombstones.invalidate(shortCode);
+
+        // Removing before commit would turn a rolled-back delete into a false "not found"
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    existingCodes.remove(shortCode);
+                }
+            });
+        } else {
+            existingCodes.remove(shortCode);
+        }
+    }
+
+    public void clearTombstones() {
+        tombstones.invalidateAll();
+        misses.invalidateAll();
+    }
+
+    private void forgetMiss(String shortCode) {
+        creations.incrementAndGet(stripe(shortCode));
+        misses.invalidate(shortCode);
+    }
+
+    private static int stripe(String shortCode) {
+        return shortCode.hashCode() & (CREATION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,30 @@
+package src.lab.infra.cache;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import src.lab.db.models.Link;
+
+public class NegativeLinkCacheListener {
+
+    private final NegativeLinkCache negativeLinkCache;
+
+    public NegativeLinkCacheListener(NegativeLinkCache negativeLinkCache) {
+        this.negativeLinkCache = negativeLinkCache;
+    }
+
+    @PostPersist
+    public void onPersist(Link link) {
+        negativeLinkCache.linkCreated(link.getShortCode());
+    }
+
+    @PostUpdate
+    public void onUpdate(Link link) {
+        negativeLinkCache.forget(link.getShortCode());
+    }
+
+    @PostRemove
+    public void onRemove(Link link) {
+        negativeLinkCache.linkDeleted(link.getShortCode());
+    }
+}
@@ -0,0 +1,308 @@
+package src.lab.infra.cache;
+
+import src.lab.db.models.LinkState;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+// Open-addressing table keyed by the short code packed into a long, with the link fields in flat primitive arrays.
+// A base62 code of up to 10 characters fits in 60 bits; the length goes into the top 4 bits so that
+// "0a" and "a" differ, and 0 is free to mark an empty slot. Once maximumSize entries are in, a new code replaces the
+// entry expiring first among a few sampled ones.
+public class ShortCodeIndex {
+
+    public static final int MAX_CODE_LENGTH = 10;
+
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 16;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final int EVICTION_SAMPLES = 5;
+    private static final Day[] DAYS = new Day[64];
+
+    private final StampedLock lock = new StampedLock();
+    private final int maximumSize;
+    private Table table;
+    private int size;
+    private long evictions;
+
+    public ShortCodeIndex(int expectedSize) {
+        this(expectedSize, Integer.MAX_VALUE);
+    }
+
+    public ShortCodeIndex(int expectedSize, int maximumSize) {
+        this.maximumSize = Math.max(1, maximumSize);
+        table = new Table(capacityFor(Math.min(expectedSize, this.maximumSize)));
+    }
+
+    public static long encode(CharSequence shortCode) {
+        int length = shortCode.length();
+        if (length == 0 || length > MAX_CODE_LENGTH) {
+            return EMPTY;
+        }
+
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = digit(shortCode.charAt(i));
+            if (digit < 0) {
+                return EMPTY;
+            }
+            value = value * 62 + digit;
+        }
+        return ((long) length << 60) | value;
+    }
+
+    public LinkState get(String shortCode) {
+        long key = encode(shortCode);
+        if (key == EMPTY) {
+            return null;
+        }
+
+        // Readers never block each other; a concurrent write just sends them round again under the read lock
+        long stamp = lock.tryOptimisticRead();
+        LinkState link = table.find(key, shortCode);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                link = table.find(key, shortCode);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return link;
+    }
+
+    public boolean put(LinkState link) {
+        long key = encode(link.shortCode());
+        if (key == EMPTY) {
+            return false;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = table.slotOf(key);
+            if (table.key(slot) == EMPTY) {
+                if (size >= maximumSize) {
+                    // Deletion shifts the probe run, so the slot for the new key is looked up again
+                    table.delete(table.evictionCandidate(ThreadLocalRandom.current().nextInt(table.capacity())));
+                    size--;
+                    evictions++;
+                    slot = table.slotOf(key);
+                }
+                if ((size + 1) * 4L > table.capacity() * 3L) {
+                    table = table.resize(table.capacity() * 2);
+                    slot = table.slotOf(key);
+                }
+                size++;
+            }
+            table.set(slot, key, link);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(String shortCode) {
+        long key = encode(shortCode);
+        if (key == EMPTY) {
+            return;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = table.slotOf(key);
+            if (table.key(slot) != EMPTY) {
+                table.delete(slot);
+                size--;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(MIN_CAPACITY);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long capacity() {
+        return table.capacity();
+    }
+
+    public long evictionCount() {
+        return evictions;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, expectedSize * 4L / 3 + 1);
+        return (int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    // One generation of the table. Each slot's primitives sit side by side in one long[] row and its two strings
+    // in one String[] row, so a hit costs two cache misses instead of one per field. A resize builds a new
+    // generation, so readers never mix arrays of different lengths.
+    private static final class Table {
+        private static final int LONGS = 4;
+        private static final int KEY = 0;
+        private static final int ID = 1;
+        private static final int EXPIRES_AT = 2;
+        private static final int CLICKS = 3;
+
+        private final long[] longs;
+        private final String[] strings;
+        private final int mask;
+
+        Table(int capacity) {
+            longs = new long[capacity * LONGS];
+            strings = new String[capacity * 2];
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        long key(int slot) {
+            return longs[slot * LONGS + KEY];
+        }
+
+        LinkState find(long key, String shortCode) {
+            int slot = hash(key) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                int row = slot * LONGS;
+                long current = longs[row + KEY];
+                if (current == EMPTY) {
+                    return null;
+                }
+                if (current == key) {
+                    long id = longs[row + ID];
+                    long clicks = longs[row + CLICKS];
+                    return new LinkState(id == 0L ? null : id, shortCode, strings[slot * 2], strings[slot * 2 + 1],
+                            (int) (clicks >>> 32), (int) clicks, toLocalDateTime(longs[row + EXPIRES_AT]));
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        // Of the first few entries from the start slot on, the one expiring first: close to its expiry a link is
+        // worth least, and an expired one is never served again anyway. The table must not be empty
+        int evictionCandidate(int start) {
+            int candidate = -1;
+            int sampled = 0;
+            for (int i = 0, slot = start; i <= mask && sampled < EVICTION_SAMPLES; i++, slot = (slot + 1) & mask) {
+                if (key(slot) != EMPTY) {
+                    if (candidate < 0 || longs[slot * LONGS + EXPIRES_AT] < longs[candidate * LONGS + EXPIRES_AT]) {
+                        candidate = slot;
+                    }
+                    sampled++;
+                }
+            }
+            return candidate;
+        }
+
+        // Slot holding the key, or the empty slot where it belongs
+        int slotOf(long key) {
+            int slot = hash(key) & mask;
+            while (key(slot) != EMPTY && key(slot) != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        void set(int slot, long key, LinkState link) {
+            int row = slot * LONGS;
+            longs[row + KEY] = key;
+            longs[row + ID] = link.id() != null ? link.id() : 0L;
+            longs[row + EXPIRES_AT] = toMillis(link.expiresAt());
+            longs[row + CLICKS] = ((long) link.clickLimit() << 32) | (link.clickCount() & 0xFFFFFFFFL);
+            strings[slot * 2] = link.originalUrl();
+            strings[slot * 2 + 1] = link.userId();
+        }
+
+        // Backward-shift deletion: later entries of the probe run move up, so no tombstones are needed
+        void delete(int gap) {
+            int slot = gap;
+            while (true) {
+                slot = (slot + 1) & mask;
+                long key = key(slot);
+                if (key == EMPTY) {
+                    break;
+                }
+                int ideal = hash(key) & mask;
+                if (((slot - ideal) & mask) >= ((slot - gap) & mask)) {
+                    copy(this, slot, gap);
+                    gap = slot;
+                }
+            }
+            longs[gap * LONGS + KEY] = EMPTY;
+            strings[gap * 2] = null;
+            strings[gap * 2 + 1] = null;
+        }
+
+        Table resize(int capacity) {
+            Table resized = new Table(capacity);
+            for (int slot = 0; slot <= mask; slot++) {
+                long key = key(slot);
+                if (key != EMPTY) {
+                    resized.copy(this, slot, resized.slotOf(key));
+                }
+            }
+            return resized;
+        }
+
+        private void copy(Table from, int fromSlot, int toSlot) {
+            System.arraycopy(from.longs, fromSlot * LONGS, longs, toSlot * LONGS, LONGS);
+            System.arraycopy(from.strings, fromSlot * 2, strings, toSlot * 2, 2);
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 36;
+        }
+        return -1;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1_000_000;
+    }
+
+    // Rebuilding the date from epoch days dominates a hit, and expiry dates cluster on a few days, so the date part is reused
+    private static LocalDateTime toLocalDateTime(long millis) {
+        long day = Math.floorDiv(millis, MILLIS_PER_DAY);
+        int slot = (int) day & (DAYS.length - 1);
+        Day cached = DAYS[slot];
+        if (cached == null || cached.epochDay != day) {
+            cached = new Day(day, LocalDate.ofEpochDay(day));
+            DAYS[slot] = cached;
+        }
+        return LocalDateTime.of(cached.date, LocalTime.ofNanoOfDay(Math.floorMod(millis, MILLIS_PER_DAY) * 1_000_000));
+    }
+
+    private record Day(long epochDay, LocalDate date) {
+    }
+}
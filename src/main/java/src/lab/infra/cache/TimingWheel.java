@@ -0,0 +1,126 @@
+package src.lab.infra.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel: level l has 64 slots of 64^l ticks each, so four levels cover 64^4 ticks
+// (about 194 days at one-second ticks). Adding is O(1); each entry is touched once per level on its way
+// down, so advancing costs the same whether the wheel holds a thousand deadlines or ten million.
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final List<Entry<T>>[][] slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Entry<T>> due = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        this.slots = new List[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots[level][slot] = new ArrayList<>();
+            }
+        }
+    }
+
+    public void add(T item, long deadlineMillis) {
+        // Rounded up, so an item never fires before its deadline
+        long deadlineTick = Math.ceilDiv(deadlineMillis, tickMillis);
+        lock.lock();
+        try {
+            place(new Entry<>(item, deadlineTick));
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Fires every item whose deadline is at or before nowMillis
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        List<T> fired = new ArrayList<>();
+        lock.lock();
+        try {
+            drain(due, fired);
+            while (currentTick < targetTick) {
+                currentTick++;
+                // A cascaded entry due exactly now lands in due rather than in a level-0 slot
+                cascade();
+                drain(due, fired);
+                drain(slots[0][(int) (currentTick & SLOT_MASK)], fired);
+            }
+            size -= fired.size();
+        } finally {
+            lock.unlock();
+        }
+        // Outside the lock, so a slow consumer never blocks add()
+        fired.forEach(expired);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Entries of a higher-level slot are redistributed when the clock enters the slot's range
+    private void cascade() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            long unit = 1L << (SLOT_BITS * level);
+            if ((currentTick & (unit - 1)) != 0) {
+                continue;
+            }
+            List<Entry<T>> slot = slots[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+            if (slot.isEmpty()) {
+                continue;
+            }
+            List<Entry<T>> entries = new ArrayList<>(slot);
+            slot.clear();
+            entries.forEach(this::place);
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        if (delta <= 0) {
+            due.add(entry);
+            return;
+        }
+        // Deadlines past the top level park in its furthest slot and are placed again when it cascades
+        long tick = delta < SPAN ? entry.deadlineTick : currentTick + SPAN - 1;
+        delta = tick - currentTick;
+        int level = 0;
+        while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        slots[level][(int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)].add(entry);
+    }
+
+    private void drain(List<Entry<T>> entries, List<T> fired) {
+        for (Entry<T> entry : entries) {
+            fired.add(entry.item);
+        }
+        entries.clear();
+    }
+
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+}
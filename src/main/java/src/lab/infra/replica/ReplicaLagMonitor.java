@@ -0,0 +1,51 @@
+package src.lab.infra.replica;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Heartbeat lag check: stamp the primary, then see how old the stamp is on every replica. The estimate is
+// coarse by up to lag-check-ms, which is why max-lag-ms should be a few checks long
+@Component
+@ConditionalOnProperty(prefix = "app.replica", name = "enabled", havingValue = "true")
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+    private static final String BEAT_SQL = "UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1";
+    private static final String READ_BEAT_SQL = "SELECT beat_at FROM replica_heartbeat WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReplicaRouter replicaRouter;
+    private final List<JdbcTemplate> replicas;
+
+    public ReplicaLagMonitor(JdbcTemplate jdbcTemplate, ReplicaRouter replicaRouter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.replicaRouter = replicaRouter;
+        this.replicas = replicaRouter.replicas().stream().map(JdbcTemplate::new).toList();
+    }
+
+    @Scheduled(fixedDelayString = "${app.replica.lag-check-ms}")
+    public void check() {
+        LocalDateTime now = LocalDateTime.now();
+        // Outside a transaction, so this goes to the primary
+        jdbcTemplate.update(BEAT_SQL, now);
+
+        for (int i = 0; i < replicas.size(); i++) {
+            try {
+                LocalDateTime seen = replicas.get(i).queryForObject(READ_BEAT_SQL, LocalDateTime.class);
+                replicaRouter.updateLag(i, Math.max(0, Duration.between(seen, now).toMillis()));
+            } catch (DataAccessException e) {
+                log.debug("Lag check failed for replica {}", i, e);
+                replicaRouter.markUnreachable(i);
+            }
+        }
+    }
+}
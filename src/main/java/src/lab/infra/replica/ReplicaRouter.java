@@ -0,0 +1,183 @@
+package src.lab.infra.replica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.stereotype.Component;
+import src.lab.infra.settings.AppConfig;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+// Decides where a read-only connection comes from. Replicas take turns; one whose last measured lag is over
+// max-lag-ms is skipped, and with none left the read goes to the primary. Disabled, every read is a primary read
+@Component
+public class ReplicaRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+    private static final long UNKNOWN_LAG = Long.MAX_VALUE;
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final List<String> urls;
+    private final List<DataSource> replicas;
+    private final long maxLagMillis;
+    private final AtomicLongArray lagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Cache<String, Boolean> recentWriters;
+    private final Cache<String, Boolean> recentlyChangedCodes;
+
+    public ReplicaRouter(AppConfig config) {
+        AppConfig.ReplicaConfig replicaConfig = config.getReplica();
+        this.enabled = replicaConfig.isEnabled() && !replicaConfig.getUrls().isEmpty();
+        this.urls = enabled ? List.copyOf(replicaConfig.getUrls()) : List.of();
+        this.replicas = urls.stream()
+                .map(url -> (DataSource) DataSourceBuilder.create()
+                        .url(url)
+                        .username(replicaConfig.getUsername())
+                        .password(replicaConfig.getPassword())
+                        .build())
+                .toList();
+        this.maxLagMillis = replicaConfig.getMaxLagMs();
+        // Until the first lag check nothing is known about a replica, so reads start on the primary
+        this.lagMillis = new AtomicLongArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            lagMillis.set(i, maxLagMillis > 0 ? UNKNOWN_LAG : 0);
+        }
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(replicaConfig.getReadYourWritesMs()))
+                .build();
+        // A replica within max-lag-ms may still serve the old row, and its lag can grow until the next check
+        long changeWindow = Math.max(replicaConfig.getReadYourWritesMs(), maxLagMillis + replicaConfig.getLagCheckMs());
+        this.recentlyChangedCodes = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(changeWindow))
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // The read-only side of the primary DataSource: physical connections come from a replica when one is fresh enough
+    public DataSource readOnlyDataSource(DataSource primary) {
+        return new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return pick().orElse(primary).getConnection();
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return pick().orElse(primary).getConnection(username, password);
+            }
+        };
+    }
+
+    public Optional<DataSource> pick() {
+        if (!enabled || PRIMARY_PINNED.get() != null) {
+            return Optional.empty();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = (start + i) % replicas.size();
+            if (maxLagMillis <= 0 || lagMillis.get(replica) <= maxLagMillis) {
+                return Optional.of(replicas.get(replica));
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Connections opened inside read go to the primary; only a transaction begun inside it follows, see
+    // ReplicaDataSourceConfig
+    public <T> T onPrimary(Supplier<T> read) {
+        if (!enabled || PRIMARY_PINNED.get() != null) {
+            return read.get();
+        }
+        PRIMARY_PINNED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            PRIMARY_PINNED.remove();
+        }
+    }
+
+    // A replica that has not caught up answers "missing" for a link created a moment ago; only the primary may say so.
+    // Must be called outside a transaction, so that the second lookup opens a connection of its own
+    public <T> Optional<T> findOrPrimary(Supplier<Optional<T>> find) {
+        Optional<T> found = find.get();
+        if (found.isPresent() || !enabled || PRIMARY_PINNED.get() != null) {
+            return found;
+        }
+        return onPrimary(find);
+    }
+
+    // Read-your-writes: for read-your-writes-ms after a write, the user's own reads see the primary
+    public void recordWrite(String userId) {
+        if (enabled) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    public <T> T readFor(String userId, Supplier<T> read) {
+        if (enabled && recentWriters.getIfPresent(userId) != null) {
+            return onPrimary(read);
+        }
+        return read.get();
+    }
+
+    // A link updated or deleted a moment ago is read from the primary, so a cache never keeps the replica's old row
+    public void recordChange(String shortCode) {
+        if (enabled) {
+            recentlyChangedCodes.put(shortCode, Boolean.TRUE);
+        }
+    }
+
+    public <T> T readForCode(String shortCode, Supplier<T> read) {
+        if (enabled && recentlyChangedCodes.getIfPresent(shortCode) != null) {
+            return onPrimary(read);
+        }
+        return read.get();
+    }
+
+    public List<DataSource> replicas() {
+        return replicas;
+    }
+
+    public void updateLag(int replica, long lag) {
+        long previous = lagMillis.getAndSet(replica, lag);
+        if (maxLagMillis <= 0) {
+            return;
+        }
+        if (lag > maxLagMillis && previous <= maxLagMillis) {
+            log.warn("Replica {} is behind by {} ms, reads go elsewhere", urls.get(replica), lag == UNKNOWN_LAG ? "unknown" : lag);
+        } else if (lag <= maxLagMillis && previous > maxLagMillis) {
+            log.info("Replica {} is back within {} ms of the primary", urls.get(replica), maxLagMillis);
+        }
+    }
+
+    public void markUnreachable(int replica) {
+        updateLag(replica, UNKNOWN_LAG);
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
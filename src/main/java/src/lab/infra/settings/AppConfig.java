@@ -4,22 +4,167 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @ConfigurationProperties(prefix = "app")
 @Data
 public class AppConfig {
     private LinkConfig link = new LinkConfig();
     private CleanupConfig cleanup = new CleanupConfig();
+    private ReactiveConfig reactive = new ReactiveConfig();
+    private ReplicaConfig replica = new ReplicaConfig();
+    private ShardConfig shard = new ShardConfig();
 
     @Data
     public static class LinkConfig {
         private int ttlHours;
         private int defaultClickLimit;
         private int shortCodeLength;
+        private boolean idempotentCreate = false;
+        private int pageSize = 100;
+        private int maxPageSize = 1000;
+        private CodeConfig codes = new CodeConfig();
+        private CacheConfig cache = new CacheConfig();
+        private ClickConfig clicks = new ClickConfig();
+        private NegativeCacheConfig negativeCache = new NegativeCacheConfig();
+        private SnapshotConfig snapshot = new SnapshotConfig();
+        private ExpiryConfig expiry = new ExpiryConfig();
+        private StoreConfig store = new StoreConfig();
+    }
+
+    @Data
+    public static class CodeConfig {
+        private CodeStrategy strategy = CodeStrategy.HASH;
+        private int blockSize = 1000;
+        private long salt = 0x5DEECE66DL;
+        private PoolConfig pool = new PoolConfig();
+    }
+
+    @Data
+    public static class PoolConfig {
+        private boolean enabled = false;
+        private int capacity = 10_000;
+        private int lowWaterMark = 2_000;
+    }
+
+    public enum CodeStrategy {
+        HASH,
+        MURMUR,
+        HI_LO
+    }
+
+    @Data
+    public static class CacheConfig {
+        // Unset: tiny-lfu with write-behind clicks, none otherwise
+        private CachePolicy policy;
+        private long maximumSize = 100_000;
+    }
+
+    public enum CachePolicy {
+        NONE,
+        TINY_LFU,
+        INDEX
+    }
+
+    @Data
+    public static class ClickConfig {
+        private ClickMode mode = ClickMode.SYNC;
+        private long flushIntervalMs = 1000;
+        private int syncThreshold = 50;
+        private int leaseSize = 100;
+        private int leaseSeconds = 30;
+        private JournalConfig journal = new JournalConfig();
+    }
+
+    @Data
+    public static class JournalConfig {
+        private boolean enabled = false;
+        private String path = "data/click-journal";
+        private int segmentBytes = 16 * 1024 * 1024;
+        private boolean fsync = true;
+        private String nodeId;
+    }
+
+    @Data
+    public static class NegativeCacheConfig {
+        private boolean bloomFilterEnabled = false;
+        private long expectedLinks = 1_000_000;
+        private double falsePositiveRate = 0.01;
+        private long tombstoneSize = 100_000;
+        private int tombstoneSeconds = 60;
+        private int missSeconds = 5;
+    }
+
+    @Data
+    public static class SnapshotConfig {
+        private boolean enabled = false;
+        private String path = "data/links.snapshot";
+        private int writeIntervalSeconds = 60;
+    }
+
+    public enum ClickMode {
+        SYNC,
+        WRITE_BEHIND,
+        LEASED
+    }
+
+    @Data
+    public static class ExpiryConfig {
+        private boolean enabled = false;
+        private long tickMs = 1000;
+        private int deleteBatchSize = 500;
+    }
+
+    @Data
+    public static class StoreConfig {
+        private StoreType type = StoreType.JPA;
+        private String path = "data/links-log";
+        private long segmentBytes = 64L * 1024 * 1024;
+        private double compactionGarbageRatio = 0.5;
+        private int compactionIntervalSeconds = 300;
+        private long syncIntervalMs = 1000;
+    }
+
+    public enum StoreType {
+        JPA,
+        LOG
     }
 
     @Data
     public static class CleanupConfig {
         private int rateMinutes;
+        private int chunkSize = 1000;
+        private int timeBudgetSeconds = 30;
+        private long pauseMs = 50;
+    }
+
+    @Data
+    public static class ReactiveConfig {
+        private String r2dbcUrl = "r2dbc:h2:mem:///urlshortener";
+    }
+
+    @Data
+    public static class ReplicaConfig {
+        private boolean enabled = false;
+        private List<String> urls = new ArrayList<>();
+        private String username = "sa";
+        private String password = "";
+        private long maxLagMs = 5000;
+        private long lagCheckMs = 1000;
+        private long readYourWritesMs = 5000;
+    }
+
+    @Data
+    public static class ShardConfig {
+        private boolean enabled = false;
+        private List<String> urls = new ArrayList<>();
+        private String username = "sa";
+        private String password = "";
+        private int rebalanceBatchSize = 500;
+        private boolean rebalanceOnStartup = false;
+        private int layoutCheckSeconds = 30;
+        private String adminToken = "";
     }
 }
@@ -0,0 +1,62 @@
+package src.lab.infra.settings;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import src.lab.db.models.ClickResult;
+import src.lab.infra.RedirectFilter;
+import src.lab.schemas.ErrorResponse;
+import src.lab.services.ReactiveLinksService;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig {
+
+    // Built here rather than by R2DBC auto-configuration, so no second transaction manager competes with JPA's
+    @Bean
+    public ConnectionFactory connectionFactory(AppConfig config) {
+        return ConnectionFactories.get(config.getReactive().getR2dbcUrl());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    // Reactive counterpart of RedirectFilter: router functions are matched before annotated controllers
+    @Bean
+    public RouterFunction<ServerResponse> redirectRoute(ReactiveLinksService linksService) {
+        return RouterFunctions.route(GET("/{shortCode:[0-9A-Za-z]{1,32}}")
+                        .and(request -> !RedirectFilter.isReservedPath(request.requestPath().pathWithinApplication().value(), 1)), request ->
+                linksService.click(request.pathVariable("shortCode")).flatMap(ReactiveWebConfig::toResponse));
+    }
+
+    private static Mono<ServerResponse> toResponse(ClickResult result) {
+        return switch (result.outcome()) {
+            case RECORDED -> ServerResponse.status(HttpStatus.FOUND)
+                    .header(HttpHeaders.LOCATION, result.link().originalUrl())
+                    .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                    .build();
+            case EXPIRED -> error(HttpStatus.GONE, "Link has expired");
+            case LIMIT_REACHED -> error(HttpStatus.GONE, "Click limit reached for link");
+            case QUOTA_RESERVED -> error(HttpStatus.SERVICE_UNAVAILABLE, "Remaining clicks are reserved by other instances, try again later");
+            case NOT_FOUND -> error(HttpStatus.NOT_FOUND, "Link not found");
+        };
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).bodyValue(ErrorResponse.of(message));
+    }
+}
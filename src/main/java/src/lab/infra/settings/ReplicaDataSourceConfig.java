@@ -0,0 +1,28 @@
+package src.lab.infra.settings;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import src.lab.infra.replica.ReplicaRouter;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.replica", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    // Replaces the auto-configured pool. The proxy fetches a physical connection only at the first statement,
+    // after the transaction manager has marked it read-only, so @Transactional(readOnly = true) work lands on
+    // a replica and everything else, including Flyway and plain JdbcTemplate calls, on the primary. That
+    // connection stays with the transaction until it ends: a routing decision (ReplicaRouter.onPrimary,
+    // ShardRouter.onShard) taken after the first statement no longer moves it
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, ReplicaRouter replicaRouter) {
+        DataSource primary = properties.initializeDataSourceBuilder().build();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(replicaRouter.readOnlyDataSource(primary));
+        return dataSource;
+    }
+}
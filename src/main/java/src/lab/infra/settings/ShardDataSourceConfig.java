@@ -0,0 +1,53 @@
+package src.lab.infra.settings;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import src.lab.infra.shard.ShardRouter;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.shard", name = "enabled", havingValue = "true")
+public class ShardDataSourceConfig {
+
+    // Each shard hands out links_seq values from its own range, so link ids stay unique across shards
+    // and a link keeps its id when it is moved to another one
+    private static final int SHARD_ID_BITS = 40;
+
+    // Replaces the auto-configured pool. As with replicas (see ReplicaDataSourceConfig), the proxy fetches a
+    // physical connection only at the first statement, so a transaction started inside ShardRouter.onShard runs
+    // entirely on that shard.
+    // Flyway's auto-configuration migrates shard 0 through this DataSource; the other shards are migrated here
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, ShardRouter shardRouter,
+                                 @Value("${spring.jpa.open-in-view:true}") boolean openInView,
+                                 @Value("${spring.flyway.locations:classpath:db/migration}") String[] locations) {
+        if (openInView) {
+            // An EntityManager kept open for the whole request holds on to the first shard it connected to
+            throw new IllegalStateException("app.shard.enabled requires spring.jpa.open-in-view=false");
+        }
+
+        DataSource primary = properties.initializeDataSourceBuilder().build();
+        for (int shard = 1; shard < shardRouter.shardCount(); shard++) {
+            DataSource dataSource = shardRouter.dataSource(shard);
+            Flyway.configure().dataSource(dataSource).locations(locations).load().migrate();
+            reserveIdRange(new JdbcTemplate(dataSource), shard);
+        }
+        return new LazyConnectionDataSourceProxy(shardRouter.routingDataSource(primary));
+    }
+
+    // Under pooled-lo a fetched value opens a block owned by whoever fetched it, so the value drawn here is simply skipped
+    private static void reserveIdRange(JdbcTemplate jdbcTemplate, int shard) {
+        long base = (long) shard << SHARD_ID_BITS;
+        Long next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR links_seq", Long.class);
+        if (next != null && next < base) {
+            jdbcTemplate.execute("ALTER SEQUENCE links_seq RESTART WITH " + base);
+        }
+    }
+}
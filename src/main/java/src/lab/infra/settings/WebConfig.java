@@ -1,11 +1,18 @@
 package src.lab.infra.settings;
 
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import src.lab.infra.AuthInterceptor;
+import src.lab.infra.RedirectFilter;
 
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class WebConfig implements WebMvcConfigurer {
 
     private final AuthInterceptor authInterceptor;
@@ -18,6 +25,16 @@ public class WebConfig implements WebMvcConfigurer {
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(authInterceptor)
                 .addPathPatterns("/api/**")
-                .excludePathPatterns("/api/links/*/redirect");
+                .excludePathPatterns("/api/links/*/redirect", "/api/admin/**");
+    }
+
+    @Bean
+    public FilterRegistrationBean<RedirectFilter> redirectFilterRegistration(RedirectFilter redirectFilter) {
+        FilterRegistrationBean<RedirectFilter> registration = new FilterRegistrationBean<>(redirectFilter);
+        registration.addUrlPatterns("/*");
+        registration.setDispatcherTypes(DispatcherType.REQUEST);
+        // Ahead of every other filter: a redirect needs neither request decoding nor the MVC pipeline
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
     }
 }
@@ -0,0 +1,210 @@
+package src.lab.infra.shard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import src.lab.infra.settings.AppConfig;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Moves links that sit on a shard other than the one their code hashes to, which is what adding a shard to
+// app.shard.urls leaves behind. Each shard is walked by id; a misplaced link is locked on its source, copied
+// to its owner with the same id and deleted from the source in that transaction. A rerun after a crash finds
+// the copy already there and only finishes the delete. A completed pass is recorded in shard_layout on shard 0;
+// until the current shard count has a row there, every instance looks codes up on all shards
+@Component
+@ConditionalOnProperty(prefix = "app.shard", name = "enabled", havingValue = "true")
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final String SCAN_SQL = "SELECT id, short_code FROM links WHERE id > ? ORDER BY id FETCH FIRST ? ROWS ONLY";
+
+    // Every column of links: the lock reads them and the copy writes them, so a migration adding a column only
+    // has to add it here
+    private static final List<String> LINK_COLUMNS = List.of("id", "short_code", "original_url", "url_hash",
+            "idempotency_key", "user_id", "click_limit", "click_count", "reserved_clicks", "created_at", "expires_at");
+
+    private static final String LOCK_LINK_SQL =
+            "SELECT " + String.join(", ", LINK_COLUMNS) + " FROM links WHERE id = ? FOR UPDATE";
+
+    private static final String FIND_USER_SQL = "SELECT created_at FROM users WHERE id = ?";
+
+    private static final String COPY_USER_SQL = """
+            INSERT INTO users (id, created_at)
+            SELECT ?, ?
+            WHERE NOT EXISTS (SELECT 1 FROM users WHERE id = ?)""";
+
+    private static final String FIND_CODE_SQL = "SELECT id FROM links WHERE short_code = ?";
+
+    private static final String COPY_LINK_SQL = "INSERT INTO links (" + String.join(", ", LINK_COLUMNS) + ") VALUES ("
+            + String.join(", ", Collections.nCopies(LINK_COLUMNS.size(), "?")) + ")";
+
+    private static final String DELETE_LINK_SQL = "DELETE FROM links WHERE id = ?";
+
+    private static final String FIND_LAYOUT_SQL = "SELECT COUNT(*) FROM shard_layout WHERE shard_count = ?";
+
+    private static final String RECORD_LAYOUT_SQL = "MERGE INTO shard_layout (shard_count, rebalanced_at) KEY (shard_count) VALUES (?, LOCALTIMESTAMP)";
+
+    private static final String ANY_LINK_SQL = "SELECT CASE WHEN EXISTS (SELECT 1 FROM links) THEN 1 ELSE 0 END";
+
+    private final ShardRouter shardRouter;
+    private final int batchSize;
+    private final boolean onStartup;
+
+    public ShardRebalancer(ShardRouter shardRouter, AppConfig config) {
+        this.shardRouter = shardRouter;
+        this.batchSize = config.getShard().getRebalanceBatchSize();
+        this.onStartup = config.getShard().isRebalanceOnStartup();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebalanceOnStartup() {
+        if (onStartup) {
+            rebalance();
+        } else {
+            checkLayout();
+        }
+    }
+
+    // Picks up a rebalance another instance completed. Shards without a single link are balanced by definition,
+    // which lets a fresh deployment skip the fallback lookups
+    @Scheduled(fixedDelayString = "${app.shard.layout-check-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void checkLayout() {
+        if (shardRouter.isBalanced()) {
+            return;
+        }
+        JdbcTemplate layout = new JdbcTemplate(shardRouter.dataSource(0));
+        if (layout.queryForObject(FIND_LAYOUT_SQL, Integer.class, shardRouter.shardCount()) > 0) {
+            shardRouter.markBalanced();
+            log.info("Rebalance across {} shards found recorded", shardRouter.shardCount());
+        } else if (allShardsEmpty()) {
+            recordBalanced();
+        } else {
+            log.warn("Links are not rebalanced across {} shards; lookups by code fall back to every shard", shardRouter.shardCount());
+        }
+    }
+
+    // Lookups by code on this instance fall back to the other shards while it runs; other instances keep doing so
+    // until checkLayout finds the pass recorded
+    public Result rebalance() {
+        shardRouter.markUnbalanced();
+        long moved = 0;
+        long conflicts = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            Result result = rebalanceShard(shard);
+            moved += result.moved();
+            conflicts += result.conflicts();
+        }
+        log.info("Rebalanced {} links across {} shards, {} left in place on a code conflict", moved, shardRouter.shardCount(), conflicts);
+        recordBalanced();
+        return new Result(moved, conflicts);
+    }
+
+    private void recordBalanced() {
+        new JdbcTemplate(shardRouter.dataSource(0)).update(RECORD_LAYOUT_SQL, shardRouter.shardCount());
+        shardRouter.markBalanced();
+    }
+
+    private boolean allShardsEmpty() {
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            if (new JdbcTemplate(shardRouter.dataSource(shard)).queryForObject(ANY_LINK_SQL, Integer.class) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Result rebalanceShard(int shard) {
+        DataSource source = shardRouter.dataSource(shard);
+        JdbcTemplate sourceJdbc = new JdbcTemplate(source);
+        TransactionTemplate sourceTransaction = new TransactionTemplate(new DataSourceTransactionManager(source));
+
+        long moved = 0;
+        long conflicts = 0;
+        long afterId = 0;
+        while (true) {
+            List<Map<String, Object>> batch = sourceJdbc.queryForList(SCAN_SQL, afterId, batchSize);
+            for (Map<String, Object> row : batch) {
+                long id = ((Number) row.get("id")).longValue();
+                int owner = shardRouter.shardOf((String) row.get("short_code"));
+                if (owner != shard) {
+                    JdbcTemplate target = new JdbcTemplate(shardRouter.dataSource(owner));
+                    Move move = sourceTransaction.execute(status -> move(sourceJdbc, target, id));
+                    if (move == Move.MOVED) {
+                        moved++;
+                    } else if (move == Move.CONFLICT) {
+                        conflicts++;
+                    }
+                }
+            }
+            if (batch.size() < batchSize) {
+                break;
+            }
+            afterId = ((Number) batch.get(batch.size() - 1).get("id")).longValue();
+        }
+
+        if (moved > 0) {
+            log.info("Moved {} links off shard {}", moved, shard);
+        }
+        return new Result(moved, conflicts);
+    }
+
+    // The row lock keeps clicks on the source waiting until the row is gone from it; they then miss there and
+    // are retried on the owner, which already has the copy with every click counted before the lock.
+    // The collision check at creation only looked at the owner of its time, so the owner may already hold another
+    // link with the code; that one is what redirects reach, and the misplaced link is left where it is
+    private static Move move(JdbcTemplate source, JdbcTemplate target, long id) {
+        List<Map<String, Object>> locked = source.queryForList(LOCK_LINK_SQL, id);
+        if (locked.isEmpty()) {
+            // Deleted since the scan
+            return Move.GONE;
+        }
+        Map<String, Object> link = locked.get(0);
+        String shortCode = (String) link.get("short_code");
+        List<Long> holders = target.queryForList(FIND_CODE_SQL, Long.class, shortCode);
+        if (!holders.isEmpty() && holders.get(0) != id) {
+            return conflict(shortCode, id, holders.get(0));
+        }
+
+        if (holders.isEmpty()) {
+            Object userId = link.get("user_id");
+            // The foreign key keeps the user row in place while the link is locked
+            Object userCreatedAt = source.queryForObject(FIND_USER_SQL, Object.class, userId);
+            target.update(COPY_USER_SQL, userId, userCreatedAt, userId);
+            try {
+                target.update(COPY_LINK_SQL, LINK_COLUMNS.stream().map(link::get).toArray());
+            } catch (DuplicateKeyException e) {
+                // The code was created on the owner since the check
+                return conflict(shortCode, id, null);
+            }
+        }
+        source.update(DELETE_LINK_SQL, id);
+        return Move.MOVED;
+    }
+
+    private static Move conflict(String shortCode, long id, Long ownerId) {
+        log.warn("Link {} with code {} left on its shard: the owning shard already has link {} with that code", id, shortCode, ownerId);
+        return Move.CONFLICT;
+    }
+
+    private enum Move {
+        MOVED, GONE, CONFLICT
+    }
+
+    // conflicts counts misplaced links whose code the owning shard already had for another link
+    public record Result(long moved, long conflicts) {
+    }
+}
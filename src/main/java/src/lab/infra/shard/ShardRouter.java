@@ -0,0 +1,300 @@
+package src.lab.infra.shard;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.stereotype.Component;
+import src.lab.infra.settings.AppConfig;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Decides which database a connection comes from. Shard 0 is spring.datasource, the others are app.shard.urls;
+// a short code lives on the shard jump consistent hashing picks for it, so adding a shard moves only the codes
+// the new one takes over. Disabled, there is one shard and everything runs inline on it
+@Component
+public class ShardRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final int shardCount;
+    private final List<DataSource> shards = new ArrayList<>();
+    private final ExecutorService fanOutExecutor;
+    private volatile boolean balanced;
+
+    public ShardRouter(AppConfig config) {
+        AppConfig.ShardConfig shardConfig = config.getShard();
+        this.enabled = shardConfig.isEnabled() && !shardConfig.getUrls().isEmpty();
+        if (enabled) {
+            List<String> unsupported = unsupportedFeatures(config);
+            if (!unsupported.isEmpty()) {
+                throw new IllegalStateException("app.shard.enabled cannot be combined with " + String.join(", ", unsupported));
+            }
+        }
+
+        // Slot 0 is filled in by routingDataSource with the primary pool
+        shards.add(null);
+        if (enabled) {
+            for (String url : shardConfig.getUrls()) {
+                shards.add(DataSourceBuilder.create()
+                        .url(url)
+                        .username(shardConfig.getUsername())
+                        .password(shardConfig.getPassword())
+                        .build());
+            }
+        }
+        this.shardCount = shards.size();
+        this.fanOutExecutor = enabled ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        // Until ShardRebalancer finds a completed rebalance recorded for this shard count
+        this.balanced = !enabled;
+    }
+
+    // These keep state keyed by link id or read the links table as a whole on one database
+    private static List<String> unsupportedFeatures(AppConfig config) {
+        AppConfig.LinkConfig link = config.getLink();
+        List<String> unsupported = new ArrayList<>();
+        if (link.getClicks().getMode() != AppConfig.ClickMode.SYNC) {
+            unsupported.add("app.link.clicks.mode=" + link.getClicks().getMode());
+        }
+        if (link.getClicks().getJournal().isEnabled()) {
+            unsupported.add("app.link.clicks.journal");
+        }
+        if (link.getStore().getType() != AppConfig.StoreType.JPA) {
+            unsupported.add("app.link.store.type=" + link.getStore().getType());
+        }
+        if (link.getSnapshot().isEnabled()) {
+            unsupported.add("app.link.snapshot");
+        }
+        if (link.getExpiry().isEnabled()) {
+            unsupported.add("app.link.expiry");
+        }
+        if (config.getReplica().isEnabled()) {
+            unsupported.add("app.replica");
+        }
+        return unsupported;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(String shortCode) {
+        return shardOf(shortCode, shardCount);
+    }
+
+    // Jump consistent hash (Lamping, Veach): growing from n to n + 1 shards moves 1/(n + 1) of the codes,
+    // all of them to the new shard. String.hashCode is fixed by the language spec, so placement survives restarts
+    public static int shardOf(String shortCode, int shardCount) {
+        long key = mix(shortCode.hashCode());
+        long shard = -1;
+        long next = 0;
+        while (next < shardCount) {
+            shard = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((shard + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) shard;
+    }
+
+    // The DataSource that hands out connections of the current shard: whatever onShard set, shard 0 otherwise
+    public DataSource routingDataSource(DataSource primary) {
+        shards.set(0, primary);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                Integer shard = CURRENT.get();
+                return shard != null ? shard : 0;
+            }
+        };
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.initialize();
+        log.info("Routing links across {} shards", shardCount);
+        return routing;
+    }
+
+    public DataSource dataSource(int shard) {
+        return shards.get(shard);
+    }
+
+    // Connections opened inside action come from the shard; for a transaction that means beginning it in here,
+    // see ShardDataSourceConfig
+    public <T> T onShard(int shard, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public <T> T forCode(String shortCode, Supplier<T> action) {
+        return onShard(shardOf(shortCode), action);
+    }
+
+    // Until a rebalance for the current shard count has completed, a link may still sit where a smaller count put
+    // it; a miss on the owner is retried on the others, and last on the owner again in case the link arrived there
+    // meanwhile. Inside a transaction every retry reuses the connection it started with, so only a call outside
+    // one finds a moving link; a write that needs one finds its shard with locate first
+    public <T> T forCode(String shortCode, Supplier<T> action, Predicate<T> miss) {
+        int owner = shardOf(shortCode);
+        T result = onShard(owner, action);
+        if (balanced || !miss.test(result)) {
+            return result;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (shard != owner) {
+                T moved = onShard(shard, action);
+                if (!miss.test(moved)) {
+                    return moved;
+                }
+            }
+        }
+        return onShard(owner, action);
+    }
+
+    // The shard holding the code right now: its owner once balanced, without asking. Otherwise the first shard where
+    // found is true, the owner if none. Called outside a transaction, so each probe gets a connection of its shard
+    public int locate(String shortCode, BooleanSupplier found) {
+        int owner = shardOf(shortCode);
+        if (balanced || onShard(owner, found::getAsBoolean)) {
+            return owner;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (shard != owner && onShard(shard, found::getAsBoolean)) {
+                return shard;
+            }
+        }
+        return owner;
+    }
+
+    // Runs action once per shard, in parallel, and returns the results in shard order. Each run is on a thread of
+    // its own, outside the caller's transaction; with a single shard it runs inline and joins it
+    public <T> List<T> fanOut(Supplier<T> action) {
+        List<T> results = new ArrayList<>(shardCount);
+        if (!enabled) {
+            results.add(action.get());
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(fanOutExecutor.submit(() -> onShard(target, action)));
+        }
+        for (Future<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    // Codes grouped by owning shard, in shard order and keeping the order they came in
+    public Map<Integer, List<String>> groupByShard(Collection<String> shortCodes) {
+        if (!enabled) {
+            return shortCodes.isEmpty() ? Map.of() : Map.of(0, List.copyOf(shortCodes));
+        }
+        Map<Integer, List<String>> groups = new TreeMap<>();
+        for (String shortCode : shortCodes) {
+            groups.computeIfAbsent(shardOf(shortCode), shard -> new ArrayList<>()).add(shortCode);
+        }
+        return groups;
+    }
+
+    // Runs lookup once per shard with the codes it owns. Unbalanced, every shard is asked for all of them in
+    // parallel, since any code may still sit on a shard other than its owner
+    public <T> List<T> forCodes(Collection<String> shortCodes, Function<List<String>, List<T>> lookup) {
+        List<T> found = new ArrayList<>();
+        if (!balanced) {
+            List<String> codes = List.copyOf(shortCodes);
+            fanOut(() -> lookup.apply(codes)).forEach(found::addAll);
+            return found;
+        }
+        groupByShard(shortCodes).forEach((shard, codes) -> found.addAll(onShard(shard, () -> lookup.apply(codes))));
+        return found;
+    }
+
+    public boolean isBalanced() {
+        return balanced;
+    }
+
+    public void markBalanced() {
+        balanced = true;
+    }
+
+    public void markUnbalanced() {
+        if (enabled) {
+            balanced = false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdown();
+        }
+        // Shard 0 is the application's pool and is closed with it
+        for (DataSource shard : shards.subList(1, shardCount)) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard", e);
+        }
+    }
+
+    // SplitMix64 finalizer: spreads the 32-bit String hash over the 64-bit key jump hashing expects
+    private static long mix(long hash) {
+        long z = hash + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
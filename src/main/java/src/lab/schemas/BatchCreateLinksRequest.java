@@ -0,0 +1,15 @@
+package src.lab.schemas;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+// Items are validated one by one so that a bad item fails alone instead of rejecting the whole batch
+@Data
+public class BatchCreateLinksRequest {
+    @NotEmpty(message = "Links cannot be empty")
+    @Size(max = 1000, message = "Too many links in one batch (max 1000)")
+    private List<CreateLinkRequest> links;
+}
@@ -0,0 +1,11 @@
+package src.lab.schemas;
+
+public record BatchLinkResult(int index, LinkResponse link, boolean existing, String error) {
+    public static BatchLinkResult created(int index, LinkResponse link, boolean existing) {
+        return new BatchLinkResult(index, link, existing, null);
+    }
+
+    public static BatchLinkResult failed(int index, String error) {
+        return new BatchLinkResult(index, null, false, error);
+    }
+}
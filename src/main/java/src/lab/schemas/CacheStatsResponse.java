@@ -0,0 +1,10 @@
+package src.lab.schemas;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+// inUse is false unless redirects read the cache, which only write-behind click counting does
+public record CacheStatsResponse(String policy, boolean inUse, long size, long hits, long misses, long evictions, double hitRate) {
+    public static CacheStatsResponse of(String policy, boolean inUse, long size, CacheStats stats) {
+        return new CacheStatsResponse(policy, inUse, size, stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate());
+    }
+}
@@ -0,0 +1,18 @@
+package src.lab.schemas;
+
+import src.lab.services.impl.PooledShortCodeGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+public record CodePoolStatsResponse(boolean enabled, int depth, int capacity, int lowWaterMark, long refills,
+                                    long lastRefillMillis, long maxRefillMillis, long emptyPolls) {
+    public static CodePoolStatsResponse of(PooledShortCodeGenerator pool) {
+        if (pool == null) {
+            return new CodePoolStatsResponse(false, 0, 0, 0, 0, 0, 0, 0);
+        }
+        return new CodePoolStatsResponse(true, pool.depth(), pool.capacity(), pool.lowWaterMark(), pool.refills(),
+                TimeUnit.NANOSECONDS.toMillis(pool.lastRefillNanos()),
+                TimeUnit.NANOSECONDS.toMillis(pool.maxRefillNanos()),
+                pool.emptyPolls());
+    }
+}
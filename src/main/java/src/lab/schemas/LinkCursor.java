@@ -0,0 +1,40 @@
+package src.lab.schemas;
+
+import src.lab.exceptions.InvalidCursorException;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+// The cursor is the last id of the previous page; clients must treat it as an opaque token
+public final class LinkCursor {
+
+    private LinkCursor() {
+    }
+
+    public static String encode(Long afterId) {
+        if (afterId == null) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(afterId).array());
+    }
+
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+        if (bytes.length != Long.BYTES) {
+            throw new InvalidCursorException(cursor);
+        }
+        long afterId = ByteBuffer.wrap(bytes).getLong();
+        if (afterId < 0) {
+            throw new InvalidCursorException(cursor);
+        }
+        return afterId;
+    }
+}
@@ -0,0 +1,11 @@
+package src.lab.schemas;
+
+import src.lab.db.models.LinkPage;
+
+import java.util.List;
+
+public record LinkPageResponse(List<LinkResponse> links, String nextCursor) {
+    public static LinkPageResponse of(LinkPage page) {
+        return new LinkPageResponse(page.links().stream().map(LinkResponse::from).toList(), LinkCursor.encode(page.nextAfterId()));
+    }
+}
@@ -2,6 +2,8 @@ package src.lab.schemas;
 
 import lombok.Data;
 import src.lab.db.models.Link;
+import src.lab.db.models.LinkExport;
+import src.lab.db.models.LinkView;
 
 import java.time.LocalDateTime;
 
@@ -26,4 +28,28 @@ public class LinkResponse {
         response.setActive(link.isActive());
         return response;
     }
+
+    public static LinkResponse from(LinkView link) {
+        LinkResponse response = new LinkResponse();
+        response.setShortCode(link.shortCode());
+        response.setOriginalUrl(link.originalUrl());
+        response.setClickLimit(link.clickLimit());
+        response.setClickCount(link.clickCount());
+        response.setCreatedAt(link.createdAt());
+        response.setExpiresAt(link.expiresAt());
+        response.setActive(link.isActive());
+        return response;
+    }
+
+    public static LinkResponse from(LinkExport link) {
+        LinkResponse response = new LinkResponse();
+        response.setShortCode(link.shortCode());
+        response.setOriginalUrl(link.originalUrl());
+        response.setClickLimit(link.clickLimit());
+        response.setClickCount(link.clickCount());
+        response.setCreatedAt(link.createdAt());
+        response.setExpiresAt(link.expiresAt());
+        response.setActive(link.isActive());
+        return response;
+    }
 }
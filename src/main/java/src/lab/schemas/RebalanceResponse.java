@@ -0,0 +1,9 @@
+package src.lab.schemas;
+
+import src.lab.infra.shard.ShardRebalancer;
+
+public record RebalanceResponse(int shards, long moved, long conflicts) {
+    public static RebalanceResponse of(int shards, ShardRebalancer.Result result) {
+        return new RebalanceResponse(shards, result.moved(), result.conflicts());
+    }
+}
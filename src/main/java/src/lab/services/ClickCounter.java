@@ -0,0 +1,11 @@
+package src.lab.services;
+
+import src.lab.db.models.ClickResult;
+
+public interface ClickCounter {
+    ClickResult record(String shortCode);
+
+    // Writes the clicks held in this process to click_count, so that a read of the links table sees all of them
+    default void flushAll() {
+    }
+}
@@ -0,0 +1,10 @@
+package src.lab.services;
+
+import src.lab.db.models.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface LinkExportService {
+    void exportUserLinks(String userId, ExportFormat format, OutputStream out) throws IOException;
+}
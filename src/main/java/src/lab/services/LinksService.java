@@ -1,17 +1,26 @@
 package src.lab.services;
 
+import src.lab.db.models.ClickResult;
 import src.lab.db.models.Link;
+import src.lab.db.models.LinkCreation;
+import src.lab.db.models.LinkDraft;
+import src.lab.db.models.LinkPage;
+import src.lab.db.models.LinkView;
 
 import java.util.List;
 
 public interface LinksService {
-    Link createShortLink(String userId, String originalUrl, Integer clickLimit);
+    LinkCreation createShortLink(String userId, String originalUrl, Integer clickLimit);
+
+    List<LinkCreation> createShortLinks(String userId, List<LinkDraft> drafts);
 
     String redirect(String shortCode);
 
-    List<Link> getUserLinks(String userId);
+    ClickResult click(String shortCode);
+
+    LinkPage getUserLinks(String userId, Long afterId, Integer limit);
 
-    Link getLink(String shortCode);
+    LinkView getLink(String shortCode);
 
     Link updateLink(String shortCode, String userId, Integer clickLimit);
 
@@ -0,0 +1,22 @@
+package src.lab.services;
+
+import reactor.core.publisher.Mono;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.Link;
+import src.lab.db.models.LinkPage;
+
+public interface ReactiveLinksService {
+    Mono<Link> createShortLink(String userId, String originalUrl, Integer clickLimit);
+
+    Mono<String> redirect(String shortCode);
+
+    Mono<ClickResult> click(String shortCode);
+
+    Mono<LinkPage> getUserLinks(String userId, Long afterId, Integer limit);
+
+    Mono<Link> getLink(String shortCode);
+
+    Mono<Link> updateLink(String shortCode, String userId, Integer clickLimit);
+
+    Mono<Void> deleteLink(String shortCode, String userId);
+}
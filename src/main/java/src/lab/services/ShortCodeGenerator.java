@@ -0,0 +1,11 @@
+package src.lab.services;
+
+public interface ShortCodeGenerator {
+    // attempt > 0 asks for another candidate after the previous one was taken
+    String generate(String userId, String originalUrl, int attempt);
+
+    // Codes that can never repeat let callers skip the existence check
+    default boolean isCollisionFree() {
+        return false;
+    }
+}
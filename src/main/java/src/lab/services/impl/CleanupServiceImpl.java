@@ -4,9 +4,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import src.lab.db.models.Link;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import src.lab.db.repositories.LinksRepository;
+import src.lab.infra.cache.LinkEviction;
+import src.lab.infra.settings.AppConfig;
+import src.lab.infra.shard.ShardRouter;
 import src.lab.services.CleanupService;
 
 import java.time.LocalDateTime;
@@ -19,21 +22,76 @@ public class CleanupServiceImpl implements CleanupService {
     private static final Logger log = LoggerFactory.getLogger(CleanupServiceImpl.class);
 
     private final LinksRepository linkRepository;
+    private final LinkEviction linkEviction;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long timeBudgetNanos;
+    private final long pauseMillis;
 
-    public CleanupServiceImpl(LinksRepository linkRepository) {
+    public CleanupServiceImpl(LinksRepository linkRepository, LinkEviction linkEviction, ShardRouter shardRouter,
+                              PlatformTransactionManager transactionManager, AppConfig config) {
         this.linkRepository = linkRepository;
+        this.linkEviction = linkEviction;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = config.getCleanup().getChunkSize();
+        this.timeBudgetNanos = TimeUnit.SECONDS.toNanos(config.getCleanup().getTimeBudgetSeconds());
+        this.pauseMillis = config.getCleanup().getPauseMs();
     }
 
+    // Deletes in short transactions of at most chunkSize rows, so row locks and undo never pile up and
+    // redirects only ever wait behind one chunk; whatever the time budget leaves over goes to the next run.
+    // Every shard drains its own backlog in parallel within the same budget
     @Override
     @Scheduled(fixedRateString = "${app.cleanup.rate-minutes}", timeUnit = TimeUnit.MINUTES)
-    @Transactional
     public void cleanupExpiredLinks() {
-        List<Link> expired = linkRepository.findByExpiresAtBefore(LocalDateTime.now());
-        if (expired.isEmpty()) {
-            return;
+        LocalDateTime cutoff = LocalDateTime.now();
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        shardRouter.fanOut(() -> cleanupShard(cutoff, deadline));
+    }
+
+    private int cleanupShard(LocalDateTime cutoff, long deadline) {
+        int deleted = 0;
+        int chunks = 0;
+
+        while (true) {
+            List<String> codes = transactionTemplate.execute(status -> deleteChunk(cutoff));
+            deleted += codes.size();
+            chunks++;
+
+            if (codes.size() < chunkSize) {
+                break;
+            }
+            if (System.nanoTime() - deadline >= 0 || !pause()) {
+                log.info("Cleanup stopped after {} chunks with expired links left for the next run", chunks);
+                break;
+            }
         }
 
-        linkRepository.deleteAll(expired);
-        log.info("Cleaned up {} expired links", expired.size());
+        if (deleted > 0) {
+            log.info("Cleaned up {} expired links in {} chunks", deleted, chunks);
+        }
+        return deleted;
+    }
+
+    private List<String> deleteChunk(LocalDateTime cutoff) {
+        List<String> codes = linkRepository.deleteExpired(cutoff, chunkSize);
+        // The set-based delete skips entity listeners, so evict the way a deleteLink would have
+        codes.forEach(linkEviction::linkDeleted);
+        return codes;
+    }
+
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 }
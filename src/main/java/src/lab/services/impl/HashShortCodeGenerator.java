@@ -0,0 +1,22 @@
+package src.lab.services.impl;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.ShortCodeGenerator;
+
+@Component
+@ConditionalOnProperty(prefix = "app.link.codes", name = "strategy", havingValue = "hash", matchIfMissing = true)
+public class HashShortCodeGenerator implements ShortCodeGenerator {
+
+    private final int length;
+
+    public HashShortCodeGenerator(AppConfig config) {
+        this.length = config.getLink().getShortCodeLength();
+    }
+
+    @Override
+    public String generate(String userId, String originalUrl, int attempt) {
+        return ShortLinks.shortCode(userId + (attempt == 0 ? originalUrl : originalUrl + attempt), length);
+    }
+}
@@ -0,0 +1,131 @@
+package src.lab.services.impl;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import src.lab.exceptions.ShortCodeGenerationException;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.ShortCodeGenerator;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Each instance leases a block of ids from a database sequence and hands them out locally, so codes are unique
+// across instances without a probe query. Ids go through a keyed permutation of the code space before encoding,
+// so consecutive links do not get consecutive codes. Codes left by another strategy are not known here; the
+// insert's unique index catches them and the link service retries with the next id.
+@Component
+@ConditionalOnProperty(prefix = "app.link.codes", name = "strategy", havingValue = "hi-lo")
+public class HiLoShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final int MAX_LENGTH = 10;
+    private static final int ROUNDS = 4;
+    private static final String NEXT_BLOCK_SQL = "SELECT NEXT VALUE FOR short_code_blocks";
+    private static final String RAISE_BLOCK_SIZE_SQL = "UPDATE short_code_block_size SET block_size = ? WHERE block_size < ?";
+    private static final String FIND_BLOCK_SIZE_SQL = "SELECT block_size FROM short_code_block_size";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int length;
+    private final int blockSize;
+    private final long salt;
+    private final long space;
+    private final int halfBits;
+    private final long halfMask;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long limit;
+
+    public HiLoShortCodeGenerator(JdbcTemplate jdbcTemplate, AppConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.length = config.getLink().getShortCodeLength();
+        this.blockSize = config.getLink().getCodes().getBlockSize();
+        this.salt = config.getLink().getCodes().getSalt();
+        if (length < 1 || length > MAX_LENGTH) {
+            throw new IllegalStateException("hi-lo short codes must be 1 to " + MAX_LENGTH + " characters long");
+        }
+        if (blockSize < 1) {
+            throw new IllegalStateException("app.link.codes.block-size must be positive");
+        }
+
+        long space = 1;
+        for (int i = 0; i < length; i++) {
+            space *= 62;
+        }
+        this.space = space;
+        int bits = 64 - Long.numberOfLeadingZeros(space - 1);
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+
+        checkBlockSize();
+    }
+
+    @Override
+    public String generate(String userId, String originalUrl, int attempt) {
+        long id = nextId();
+        if (id >= space) {
+            throw new ShortCodeGenerationException();
+        }
+        return ShortLinks.base62(permute(id), length);
+    }
+
+    @Override
+    public boolean isCollisionFree() {
+        return true;
+    }
+
+    // A smaller size than any instance leased with would map new blocks onto ids already handed out, so the
+    // largest size is kept next to the sequence and startup fails rather than shrink it
+    private void checkBlockSize() {
+        jdbcTemplate.update(RAISE_BLOCK_SIZE_SQL, blockSize, blockSize);
+        List<Integer> recorded = jdbcTemplate.queryForList(FIND_BLOCK_SIZE_SQL, Integer.class);
+        if (!recorded.isEmpty() && recorded.get(0) > blockSize) {
+            throw new IllegalStateException("app.link.codes.block-size " + blockSize + " is below " + recorded.get(0)
+                    + ", already used with short_code_blocks; it may only grow");
+        }
+    }
+
+    private long nextId() {
+        lock.lock();
+        try {
+            if (next == limit) {
+                // Block n covers [n * blockSize, (n + 1) * blockSize), which is why checkBlockSize keeps the size from shrinking
+                Long block = jdbcTemplate.queryForObject(NEXT_BLOCK_SQL, Long.class);
+                next = block * blockSize;
+                limit = next + blockSize;
+            }
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A Feistel network is a bijection on 2 * halfBits bits; walking the cycle until the value falls back inside
+    // the code space keeps it a bijection on [0, 62^length)
+    private long permute(long id) {
+        long value = id;
+        do {
+            value = feistel(value);
+        } while (value >= space);
+        return value;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int round = 0; round < ROUNDS; round++) {
+            long mixed = left ^ (mix(right ^ (salt + round)) & halfMask);
+            left = right;
+            right = mixed;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,226 @@
+package src.lab.services.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.LinkState;
+import src.lab.db.models.QuotaGrant;
+import src.lab.db.repositories.LinksRepository;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.ClickCounter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Every grant is also a click_leases row owned by this process, so a lease an instance took with it when it died
+// is closed by whichever instance sweeps next. Its clicks were never reported, so the whole lease counts as clicked
+@Service
+@ConditionalOnProperty(prefix = "app.link.clicks", name = "mode", havingValue = "leased")
+public class LeasedClickCounter implements ClickCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(LeasedClickCounter.class);
+    private static final int INITIAL_LEASE_SIZE = 8;
+    private static final int RECLAIM_BATCH_SIZE = 500;
+    // A lease ends after lease-seconds and its owner's sweep, which runs as often, settles it within another
+    // period; the third is slack for a slow settle and clock skew between instances
+    private static final int RECLAIM_AFTER_LEASE_PERIODS = 3;
+
+    private final LinksRepository linkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int leaseSize;
+    private final long leaseNanos;
+    private final Duration reclaimAfter;
+    // The counts of a lease live only in this process, so a restart cannot resume the leases of the previous run
+    private final String owner = UUID.randomUUID().toString();
+    private final Map<String, LeaseSlot> slots = new ConcurrentHashMap<>();
+
+    public LeasedClickCounter(LinksRepository linkRepository, PlatformTransactionManager transactionManager, AppConfig config) {
+        this.linkRepository = linkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.leaseSize = config.getLink().getClicks().getLeaseSize();
+        this.leaseNanos = TimeUnit.SECONDS.toNanos(config.getLink().getClicks().getLeaseSeconds());
+        this.reclaimAfter = Duration.ofSeconds((long) config.getLink().getClicks().getLeaseSeconds() * RECLAIM_AFTER_LEASE_PERIODS);
+    }
+
+    @Override
+    public ClickResult record(String shortCode) {
+        while (true) {
+            LeaseSlot slot = slots.computeIfAbsent(shortCode, code -> new LeaseSlot(Math.min(INITIAL_LEASE_SIZE, leaseSize)));
+
+            Lease lease = slot.current;
+            if (lease != null && lease.tryTake()) {
+                return ClickResult.recorded(lease.link);
+            }
+
+            slot.lock.lock();
+            try {
+                if (slot.retired) {
+                    // Released by the sweeper while we waited; quota taken here would never be returned
+                    continue;
+                }
+
+                lease = slot.current;
+                if (lease != null && lease.tryTake()) {
+                    return ClickResult.recorded(lease.link);
+                }
+                if (lease != null) {
+                    settle(lease);
+                    slot.current = null;
+                }
+
+                LocalDateTime now = LocalDateTime.now();
+                int size = slot.nextSize;
+                QuotaGrant grant = transactionTemplate.execute(status ->
+                        linkRepository.reserveClicks(shortCode, size, now, owner, now.plus(reclaimAfter)));
+                if (!grant.isGranted()) {
+                    return grant.toResult();
+                }
+
+                // Hot links earn bigger blocks; a cold link only ever holds a few clicks of the shared quota
+                slot.nextSize = Math.min(leaseSize, slot.nextSize * 2);
+                lease = new Lease(grant.link(), grant.clicks(), deadline(grant.link()));
+                if (!lease.tryTake()) {
+                    // The link expired between the grant and now
+                    settle(lease);
+                    return ClickResult.rejected(lease.link);
+                }
+                slot.current = lease;
+                return ClickResult.recorded(lease.link);
+            } finally {
+                slot.lock.unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.link.clicks.lease-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void releaseExpiredLeases() {
+        long now = System.nanoTime();
+        slots.forEach((code, slot) -> {
+            Lease lease = slot.current;
+            if (lease == null || lease.isExpired(now)) {
+                release(code, slot);
+            }
+        });
+        reclaimAbandonedLeases();
+    }
+
+    // Leases of instances that stopped without settling; a chunk per transaction
+    public int reclaimAbandonedLeases() {
+        int total = 0;
+        int reclaimed;
+        do {
+            LocalDateTime now = LocalDateTime.now();
+            reclaimed = transactionTemplate.execute(status -> linkRepository.reclaimExpiredLeases(now, RECLAIM_BATCH_SIZE));
+            total += reclaimed;
+        } while (reclaimed == RECLAIM_BATCH_SIZE);
+
+        if (total > 0) {
+            log.warn("Counted {} click leases left behind by stopped instances as fully used", total);
+        }
+        return total;
+    }
+
+    // Settles every open lease; later clicks take new ones
+    @Override
+    public void flushAll() {
+        slots.forEach(this::release);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushAll();
+        log.info("Returned unused click quota on shutdown");
+    }
+
+    private void release(String shortCode, LeaseSlot slot) {
+        slot.lock.lock();
+        try {
+            if (slot.current != null) {
+                settle(slot.current);
+                slot.current = null;
+            }
+            slot.retired = true;
+            slots.remove(shortCode, slot);
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    private void settle(Lease lease) {
+        int used = lease.granted - lease.close();
+        Boolean held = transactionTemplate.execute(status -> linkRepository.settleClicks(lease.link.id(), used, lease.granted, owner));
+        if (!Boolean.TRUE.equals(held)) {
+            // Closed by another instance while this one stalled; the whole lease was counted then, so its unused
+            // clicks are lost rather than handed out twice
+            log.warn("Click lease on link {} was reclaimed before it was settled; {} of its {} clicks went unused", lease.link.id(), lease.granted - used, lease.granted);
+        }
+    }
+
+    private long deadline(LinkState link) {
+        // A lease must never outlive the link it serves
+        long untilExpiry = Duration.between(LocalDateTime.now(), link.expiresAt()).toNanos();
+        return System.nanoTime() + Math.min(leaseNanos, untilExpiry);
+    }
+
+    private static class LeaseSlot {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Lease current;
+        private boolean retired;
+        private int nextSize;
+
+        LeaseSlot(int nextSize) {
+            this.nextSize = nextSize;
+        }
+    }
+
+    private static class Lease {
+        private static final int CLOSED = -1;
+
+        private final LinkState link;
+        private final int granted;
+        private final long deadlineNanos;
+        private final AtomicInteger remaining;
+
+        Lease(LinkState link, int granted, long deadlineNanos) {
+            this.link = link;
+            this.granted = granted;
+            this.deadlineNanos = deadlineNanos;
+            this.remaining = new AtomicInteger(granted);
+        }
+
+        boolean tryTake() {
+            if (isExpired(System.nanoTime())) {
+                return false;
+            }
+            int current;
+            do {
+                current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        boolean isExpired(long now) {
+            return now - deadlineNanos >= 0;
+        }
+
+        // After close() no click can be taken, so the returned count is exactly the unused quota
+        int close() {
+            return Math.max(0, remaining.getAndSet(CLOSED));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package src.lab.services.impl;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import src.lab.db.models.ExportFormat;
+import src.lab.db.models.LinkExport;
+import src.lab.db.repositories.LinksRepository;
+import src.lab.infra.shard.ShardRouter;
+import src.lab.schemas.LinkResponse;
+import src.lab.services.LinkExportService;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Rows go from the JDBC cursor straight to the response, so an export holds one fetch batch and one
+// output buffer no matter how many links the user has. With sharding the shards are exported one after another,
+// each from a read-only transaction of its own, so rows come ordered per shard
+@Service
+public class LinkExportServiceImpl implements LinkExportService {
+
+    private static final String CSV_HEADER = "short_code,original_url,click_limit,click_count,created_at,expires_at,active\n";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final LinksRepository linkRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter jsonWriter;
+
+    public LinkExportServiceImpl(LinksRepository linkRepository, ShardRouter shardRouter,
+                                 PlatformTransactionManager transactionManager, JsonMapper jsonMapper) {
+        this.linkRepository = linkRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        // Same mapper as the REST responses, so an NDJSON line matches an item of GET /api/links
+        this.jsonWriter = jsonMapper.writerFor(LinkResponse.class);
+    }
+
+    @Override
+    public void exportUserLinks(String userId, ExportFormat format, OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER_BYTES);
+        if (format == ExportFormat.CSV) {
+            buffered.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try {
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> {
+                    writeRows(userId, format, buffered);
+                    return null;
+                }));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        buffered.flush();
+    }
+
+    private void writeRows(String userId, ExportFormat format, OutputStream buffered) {
+        try (Stream<LinkExport> rows = linkRepository.streamByUserId(userId)) {
+            Iterator<LinkExport> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                LinkExport row = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    buffered.write(csvLine(row).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    buffered.write(jsonWriter.writeValueAsBytes(LinkResponse.from(row)));
+                    buffered.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String csvLine(LinkExport row) {
+        return new StringBuilder(128 + row.originalUrl().length())
+                .append(row.shortCode()).append(',')
+                .append(csvField(row.originalUrl())).append(',')
+                .append(row.clickLimit()).append(',')
+                .append(row.clickCount()).append(',')
+                .append(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(row.createdAt())).append(',')
+                .append(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(row.expiresAt())).append(',')
+                .append(row.isActive()).append('\n')
+                .toString();
+    }
+
+    // RFC 4180: quote a field that contains a separator, a quote or a line break, doubling inner quotes
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -2,173 +2,454 @@ package src.lab.services.impl;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.ClickResult;
 import src.lab.db.models.Link;
+import src.lab.db.models.LinkCreation;
+import src.lab.db.models.LinkDraft;
+import src.lab.db.models.LinkPage;
+import src.lab.db.models.LinkState;
+import src.lab.db.models.LinkView;
 import src.lab.db.models.User;
 import src.lab.db.repositories.LinksRepository;
 import src.lab.exceptions.*;
+import src.lab.infra.cache.LinkCache;
+import src.lab.infra.cache.LinkSnapshot;
+import src.lab.infra.cache.NegativeLinkCache;
+import src.lab.infra.replica.ReplicaRouter;
 import src.lab.infra.settings.AppConfig;
+import src.lab.infra.shard.ShardRouter;
+import src.lab.services.ClickCounter;
 import src.lab.services.LinksService;
+import src.lab.services.ShortCodeGenerator;
 import src.lab.services.UserService;
 
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
 
 @Service
 public class LinkServiceImpl implements LinksService {
 
     private static final Logger log = LoggerFactory.getLogger(LinkServiceImpl.class);
-    private static final String BASE62_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
     private static final int MAX_COLLISION_ATTEMPTS = 10;
 
     private final LinksRepository linkRepository;
     private final UserService userService;
     private final AppConfig config;
-
-    public LinkServiceImpl(LinksRepository linkRepository, UserService userService, AppConfig config) {
+    private final LinkCache linkCache;
+    private final ClickCounter clickCounter;
+    private final NegativeLinkCache negativeLinkCache;
+    private final LinkSnapshot linkSnapshot;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final ReplicaRouter replicaRouter;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+
+    public LinkServiceImpl(LinksRepository linkRepository, UserService userService, AppConfig config, LinkCache linkCache,
+                           ClickCounter clickCounter, NegativeLinkCache negativeLinkCache, LinkSnapshot linkSnapshot,
+                           ShortCodeGenerator shortCodeGenerator, ReplicaRouter replicaRouter, ShardRouter shardRouter,
+                           PlatformTransactionManager transactionManager) {
         this.linkRepository = linkRepository;
         this.userService = userService;
         this.config = config;
+        this.linkCache = linkCache;
+        this.clickCounter = clickCounter;
+        this.negativeLinkCache = negativeLinkCache;
+        this.linkSnapshot = linkSnapshot;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.replicaRouter = replicaRouter;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    // The collision probes and the insert each go to the shard that owns the code, so the insert gets a transaction
+    // of its own started there; the user row is created on every shard that holds one of its links
     @Override
-    @Transactional
-    public Link createShortLink(String userId, String originalUrl, Integer clickLimit) {
-        validateUrl(originalUrl);
+    public LinkCreation createShortLink(String userId, String originalUrl, Integer clickLimit) {
+        ShortLinks.validateUrl(originalUrl);
+        replicaRouter.recordWrite(userId);
+        boolean idempotent = config.getLink().isIdempotentCreate();
+        long urlHash = ShortLinks.urlHash(originalUrl);
+
+        if (idempotent) {
+            Link existing = findActiveLinks(userId, List.of(originalUrl)).get(urlHash);
+            if (existing != null) {
+                return reuse(existing, clickLimit);
+            }
+        }
 
-        User user = userService.getOrCreateUser(userId);
+        for (int attempt = 1; ; attempt++) {
+            String shortCode = generateUniqueShortCode(userId, originalUrl);
+            try {
+                return LinkCreation.created(shardRouter.forCode(shortCode, () -> transactionTemplate.execute(status -> {
+                    if (idempotent) {
+                        releaseInactiveKeys(userId, List.of(urlHash));
+                    }
+                    User user = userService.getOrCreateUser(userId);
+                    return linkRepository.save(newLink(user, originalUrl, clickLimit, shortCode, idempotent));
+                })));
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent create of the same url took the idempotency key between the lookup and the insert
+                Link winner = idempotent ? replicaRouter.onPrimary(() -> findActiveLinks(userId, List.of(originalUrl))).get(urlHash) : null;
+                if (winner != null) {
+                    return reuse(winner, clickLimit);
+                }
+                // The code is taken after all: a concurrent create got it past the probe, or a collision-free
+                // generator met a code that another strategy or a restore put into the table. The probe is paid
+                // only here, so the collision-free path still inserts without one
+                if (attempt < MAX_COLLISION_ATTEMPTS && isTaken(shortCode)) {
+                    log.debug("Short code taken at insert, retrying with another: shortCode={}", shortCode);
+                    continue;
+                }
+                throw e;
+            }
+        }
+    }
 
-        Link link = new Link();
-        link.setShortCode(generateUniqueShortCode(userId, originalUrl));
-        link.setOriginalUrl(originalUrl);
-        link.setUser(user);
-        link.setClickLimit(clickLimit != null ? clickLimit : config.getLink().getDefaultClickLimit());
-        link.setExpiresAt(LocalDateTime.now().plusHours(config.getLink().getTtlHours()));
+    // One transaction per shard the codes fall on, so with several shards the batch is no longer atomic as a whole
+    @Override
+    public List<LinkCreation> createShortLinks(String userId, List<LinkDraft> drafts) {
+        replicaRouter.recordWrite(userId);
+        LinkCreation[] results = new LinkCreation[drafts.size()];
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < drafts.size(); i++) {
+            try {
+                ShortLinks.validateUrl(drafts.get(i).originalUrl());
+                valid.add(i);
+            } catch (InvalidUrlException e) {
+                results[i] = LinkCreation.failed(e.getMessage());
+            }
+        }
 
-        return linkRepository.save(link);
+        // Index of a later item -> index of the first item in the batch with the same url
+        Map<Integer, Integer> repeats = new HashMap<>();
+        if (config.getLink().isIdempotentCreate() && !valid.isEmpty()) {
+            Map<Long, Link> existing = findActiveLinks(userId, valid.stream().map(i -> drafts.get(i).originalUrl()).toList());
+            Map<String, Integer> firstByUrl = new HashMap<>();
+            valid.removeIf(i -> {
+                String url = drafts.get(i).originalUrl();
+                Link link = existing.get(ShortLinks.urlHash(url));
+                if (link != null) {
+                    results[i] = reuseInBatch(link, drafts.get(i).clickLimit());
+                    return true;
+                }
+                Integer first = firstByUrl.putIfAbsent(ShortLinks.normalizeUrl(url), i);
+                if (first != null) {
+                    repeats.put(i, first);
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        Map<Integer, String> codes = assignShortCodes(userId, drafts, valid);
+
+        Map<Integer, List<Integer>> byShard = new TreeMap<>();
+        for (int i : valid) {
+            String code = codes.get(i);
+            if (code == null) {
+                results[i] = LinkCreation.failed(new ShortCodeGenerationException().getMessage());
+                continue;
+            }
+            byShard.computeIfAbsent(shardRouter.shardOf(code), shard -> new ArrayList<>()).add(i);
+        }
+
+        boolean idempotent = config.getLink().isIdempotentCreate();
+        byShard.forEach((shard, indexes) -> {
+            try {
+                shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> {
+                    if (idempotent) {
+                        releaseInactiveKeys(userId, indexes.stream().map(i -> ShortLinks.urlHash(drafts.get(i).originalUrl())).toList());
+                    }
+                    User user = userService.getOrCreateUser(userId);
+                    List<Link> links = new ArrayList<>(indexes.size());
+                    for (int i : indexes) {
+                        Link link = newLink(user, drafts.get(i).originalUrl(), drafts.get(i).clickLimit(), codes.get(i), idempotent);
+                        links.add(link);
+                        results[i] = LinkCreation.created(link);
+                    }
+                    // With sequence ids and hibernate.jdbc.batch_size these go out as JDBC batches at flush
+                    return linkRepository.saveAll(links);
+                }));
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent create took one of the keys or codes and the shard's part of the batch rolled back;
+                // it is redone item by item, and each of those settles its own conflict
+                for (int i : indexes) {
+                    results[i] = createAlone(userId, drafts.get(i));
+                }
+            }
+        });
+
+        repeats.forEach((i, first) -> results[i] = results[first].isSuccessful()
+                ? reuseInBatch(results[first].link(), drafts.get(i).clickLimit())
+                : results[first]);
+        return List.of(results);
     }
 
     @Override
-    @Transactional
     public String redirect(String shortCode) {
-        Link link = linkRepository.findByShortCode(shortCode).orElseThrow(() -> new LinkNotFoundException(shortCode));
+        ClickResult result = click(shortCode);
+        if (result.outcome() == ClickOutcome.RECORDED) {
+            return result.link().originalUrl();
+        }
+        throw rejection(shortCode, result.outcome());
+    }
 
-        if (link.isExpired()) {
-            log.warn("Attempt to access expired link: shortCode={}, expiresAt={}, userId={}", shortCode, link.getExpiresAt(), link.getUser().getId());
-            throw new LinkExpiredException(shortCode);
+    @Override
+    public ClickResult click(String shortCode) {
+        // Right after a restart the database is still being restored from the snapshot
+        Optional<ClickResult> fromSnapshot = linkSnapshot.click(shortCode);
+        if (fromSnapshot.isPresent()) {
+            return fromSnapshot.get();
         }
 
-        if (link.isLimitReached()) {
-            log.warn("Attempt to access link with exceeded click limit: shortCode={}, clickCount={}, clickLimit={}, userId={}", shortCode, link.getClickCount(), link.getClickLimit(), link.getUser().getId());
-            throw new LinkLimitReachedException(shortCode);
+        Optional<ClickOutcome> knownDead = negativeLinkCache.lookup(shortCode);
+        if (knownDead.isPresent()) {
+            return new ClickResult(knownDead.get(), null);
         }
 
-        link.setClickCount(link.getClickCount() + 1);
-        linkRepository.save(link);
+        long missStamp = negativeLinkCache.missStamp(shortCode);
+        ClickResult result = shardRouter.forCode(shortCode, () -> clickCounter.record(shortCode),
+                clicked -> clicked.outcome() == ClickOutcome.NOT_FOUND);
+        LinkState link = result.link();
+
+        switch (result.outcome()) {
+            case RECORDED -> {
+                return result;
+            }
+            case EXPIRED -> log.warn("Attempt to access expired link: shortCode={}, expiresAt={}, userId={}", shortCode, link.expiresAt(), link.userId());
+            case LIMIT_REACHED -> log.warn("Attempt to access link with exceeded click limit: shortCode={}, clickCount={}, clickLimit={}, userId={}", shortCode, link.clickCount(), link.clickLimit(), link.userId());
+            case QUOTA_RESERVED -> {
+                // The leases holding the rest of the quota may return it unused, so the code is not remembered
+                log.debug("Click quota of link held by other instances: shortCode={}, clickCount={}, clickLimit={}", shortCode, link.clickCount(), link.clickLimit());
+                return result;
+            }
+            case NOT_FOUND -> {
+                // Only for miss-seconds: another instance may create the code any moment
+                negativeLinkCache.rememberMiss(shortCode, missStamp);
+                return result;
+            }
+        }
 
-        return link.getOriginalUrl();
+        negativeLinkCache.remember(shortCode, result.outcome());
+        return result;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<Link> getUserLinks(String userId) {
-        return linkRepository.findByUserId(userId);
+    public LinkPage getUserLinks(String userId, Long afterId, Integer limit) {
+        int size = ShortLinks.pageSize(limit, config.getLink());
+        long after = afterId != null ? afterId : 0L;
+        // The query is the transaction's first statement, so it decides between replica and primary. A user's links
+        // are spread over the shards: each returns its first size + 1 past the cursor and the page is the lowest ids
+        List<LinkView> fetched = shardRouter.fanOut(() -> replicaRouter.readFor(userId, () ->
+                        linkRepository.findViewsByUserIdAfter(userId, after, Limit.of(size + 1))))
+                .stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(LinkView::id))
+                .limit(size + 1)
+                .toList();
+        return LinkPage.of(fetched, size);
     }
 
+    // No transaction of its own: the repository's read-only one may be served by a replica, and a miss there is
+    // re-read on the primary
     @Override
-    @Transactional(readOnly = true)
-    public Link getLink(String shortCode) {
-        return linkRepository.findByShortCode(shortCode).orElseThrow(() -> new LinkNotFoundException(shortCode));
+    public LinkView getLink(String shortCode) {
+        return shardRouter.forCode(shortCode, () -> replicaRouter.findOrPrimary(() -> linkRepository.findViewByShortCode(shortCode)),
+                        Optional::isEmpty)
+                .orElseThrow(() -> new LinkNotFoundException(shortCode));
     }
 
     @Override
-    @Transactional
     public Link updateLink(String shortCode, String userId, Integer clickLimit) {
-        Link link = getLink(shortCode);
+        replicaRouter.recordWrite(userId);
+        return inTransactionOnShardOf(shortCode, () -> {
+            Link link = findForUpdate(shortCode);
 
-        if (!link.getUser().getId().equals(userId)) {
-            throw new UnauthorizedAccessException("Not authorized to modify this link");
-        }
+            if (!link.getUserId().equals(userId)) {
+                throw new UnauthorizedAccessException("Not authorized to modify this link");
+            }
 
-        if (clickLimit != null) {
-            link.setClickLimit(clickLimit);
-        }
+            if (clickLimit != null) {
+                link.setClickLimit(clickLimit);
+            }
 
-        return linkRepository.save(link);
+            Link saved = linkRepository.save(link);
+            replicaRouter.recordChange(shortCode);
+            linkCache.invalidate(shortCode);
+            return saved;
+        });
     }
 
     @Override
-    @Transactional
     public void deleteLink(String shortCode, String userId) {
-        Link link = getLink(shortCode);
+        replicaRouter.recordWrite(userId);
+        inTransactionOnShardOf(shortCode, () -> {
+            Link link = findForUpdate(shortCode);
 
-        if (!link.getUser().getId().equals(userId)) {
-            throw new UnauthorizedAccessException("Not authorized to delete this link");
-        }
+            if (!link.getUserId().equals(userId)) {
+                throw new UnauthorizedAccessException("Not authorized to delete this link");
+            }
 
-        linkRepository.delete(link);
+            linkRepository.delete(link);
+            replicaRouter.recordChange(shortCode);
+            linkCache.invalidate(shortCode);
+            return null;
+        });
     }
 
-    private String generateUniqueShortCode(String userId, String originalUrl) {
-        String baseCode = generateShortCode(userId, originalUrl);
+    // The shard is found before the transaction starts: retries inside one would all reuse its first connection,
+    // and a link not yet moved by a rebalance would look missing
+    private <T> T inTransactionOnShardOf(String shortCode, Supplier<T> work) {
+        int shard = shardRouter.locate(shortCode, () -> linkRepository.existsByShortCode(shortCode));
+        return shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> work.get()));
+    }
 
-        if (linkRepository.findByShortCode(baseCode).isEmpty()) {
-            return baseCode;
-        }
+    private Link findForUpdate(String shortCode) {
+        return linkRepository.findByShortCode(shortCode)
+                .orElseThrow(() -> new LinkNotFoundException(shortCode));
+    }
 
-        for (int attempt = 1; attempt < MAX_COLLISION_ATTEMPTS; attempt++) {
-            String code = generateShortCode(userId, originalUrl + attempt);
-            if (linkRepository.findByShortCode(code).isEmpty()) {
-                return code;
-            }
-        }
+    private RuntimeException rejection(String shortCode, ClickOutcome outcome) {
+        return switch (outcome) {
+            case EXPIRED -> new LinkExpiredException(shortCode);
+            case LIMIT_REACHED -> new LinkLimitReachedException(shortCode);
+            case QUOTA_RESERVED -> new ClickQuotaReservedException(shortCode);
+            default -> new LinkNotFoundException(shortCode);
+        };
+    }
 
-        throw new ShortCodeGenerationException();
+    // An explicit click limit other than the existing link's is a different request, not a repeat of the first
+    private static LinkCreation reuse(Link existing, Integer clickLimit) {
+        if (clickLimit != null && clickLimit != existing.getClickLimit()) {
+            throw new LinkConflictException(existing.getShortCode());
+        }
+        return LinkCreation.existing(existing);
     }
 
-    private String generateShortCode(String userId, String originalUrl) {
-        MessageDigest digest;
+    private static LinkCreation reuseInBatch(Link existing, Integer clickLimit) {
+        try {
+            return reuse(existing, clickLimit);
+        } catch (LinkConflictException e) {
+            return LinkCreation.failed(e.getMessage());
+        }
+    }
 
+    private LinkCreation createAlone(String userId, LinkDraft draft) {
         try {
-            digest = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new ShortCodeGenerationException();
+            return createShortLink(userId, draft.originalUrl(), draft.clickLimit());
+        } catch (LinkConflictException | ShortCodeGenerationException e) {
+            return LinkCreation.failed(e.getMessage());
         }
+    }
 
-        String input = userId + originalUrl;
-        byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
-        return encodeToURLSafeBase62(hash, config.getLink().getShortCodeLength());
+    // Runs first in the insert's transaction, so the shard it pins is the one the new links go to
+    private void releaseInactiveKeys(String userId, List<Long> urlHashes) {
+        linkRepository.releaseIdempotencyKeys(userId, urlHashes, LocalDateTime.now());
     }
 
-    private String encodeToURLSafeBase62(byte[] bytes, int length) {
-        StringBuilder result = new StringBuilder();
+    private Link newLink(User user, String originalUrl, Integer clickLimit, String shortCode, boolean idempotent) {
+        Link link = new Link();
+        link.setShortCode(shortCode);
+        link.setOriginalUrl(originalUrl);
+        link.setUrlHash(ShortLinks.urlHash(originalUrl));
+        link.setIdempotencyKey(idempotent ? link.getUrlHash() : null);
+        link.setUser(user);
+        link.setClickLimit(clickLimit != null ? clickLimit : config.getLink().getDefaultClickLimit());
+        link.setExpiresAt(LocalDateTime.now().plusHours(config.getLink().getTtlHours()));
+        return link;
+    }
 
-        long value = 0;
-        for (int i = 0; i < Math.min(bytes.length, 8); i++) {
-            value = (value << 8) | (bytes[i] & 0xFF);
+    // Active links of the user keyed by url hash; the url itself is compared as well, since hashes may collide
+    private Map<Long, Link> findActiveLinks(String userId, List<String> originalUrls) {
+        Map<Long, String> normalized = new HashMap<>();
+        for (String url : originalUrls) {
+            normalized.put(ShortLinks.urlHash(url), ShortLinks.normalizeUrl(url));
         }
 
-        value = Math.abs(value);
+        Map<Long, Link> active = new HashMap<>();
+        List<Link> candidates = shardRouter.fanOut(() -> linkRepository.findByUserIdAndUrlHashIn(userId, normalized.keySet()))
+                .stream()
+                .flatMap(List::stream)
+                .toList();
+        for (Link link : candidates) {
+            if (link.isActive() && ShortLinks.normalizeUrl(link.getOriginalUrl()).equals(normalized.get(link.getUrlHash()))) {
+                active.putIfAbsent(link.getUrlHash(), link);
+            }
+        }
+        return active;
+    }
 
-        for (int i = 0; i < length; i++) {
-            result.append(BASE62_CHARS.charAt((int) (value % 62)));
-            value /= 62;
+    // Same attempts as generateUniqueShortCode, but each round checks every candidate with one IN query;
+    // items still without a code after the last round are missing from the result
+    private Map<Integer, String> assignShortCodes(String userId, List<LinkDraft> drafts, List<Integer> indexes) {
+        Map<Integer, String> assigned = new HashMap<>();
+        Set<String> taken = new HashSet<>();
+        List<Integer> pending = indexes;
+
+        for (int attempt = 0; attempt < MAX_COLLISION_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            Map<String, Integer> candidates = new LinkedHashMap<>();
+            List<Integer> retry = new ArrayList<>();
+            for (int i : pending) {
+                String code = shortCodeGenerator.generate(userId, drafts.get(i).originalUrl(), attempt);
+                // The same url twice in one batch hashes to the same code
+                if (taken.contains(code) || candidates.putIfAbsent(code, i) != null) {
+                    retry.add(i);
+                }
+            }
+
+            if (!shortCodeGenerator.isCollisionFree() && !candidates.isEmpty()) {
+                for (Link link : shardRouter.forCodes(candidates.keySet(), linkRepository::findByShortCodeIn)) {
+                    Integer index = candidates.remove(link.getShortCode());
+                    // Unbalanced shards may hold the same code twice
+                    if (index != null) {
+                        retry.add(index);
+                    }
+                }
+            }
+
+            candidates.forEach((code, i) -> assigned.put(i, code));
+            taken.addAll(candidates.keySet());
+            pending = retry;
         }
 
-        return result.toString();
+        return assigned;
     }
 
-    private void validateUrl(String url) {
-        try {
-            new URL(url);
-        } catch (MalformedURLException e) {
-            throw new InvalidUrlException(url);
+    private boolean isTaken(String shortCode) {
+        // The insert went to the owner shard, so that is the one whose unique index it hit
+        return replicaRouter.onPrimary(() -> shardRouter.forCode(shortCode, () -> linkRepository.existsByShortCode(shortCode)));
+    }
+
+    private String generateUniqueShortCode(String userId, String originalUrl) {
+        if (shortCodeGenerator.isCollisionFree()) {
+            return shortCodeGenerator.generate(userId, originalUrl, 0);
         }
+
+        for (int attempt = 0; attempt < MAX_COLLISION_ATTEMPTS; attempt++) {
+            String code = shortCodeGenerator.generate(userId, originalUrl, attempt);
+            if (shardRouter.forCode(code, () -> linkRepository.findByShortCode(code), Optional::isEmpty).isEmpty()) {
+                return code;
+            }
+        }
+
+        throw new ShortCodeGenerationException();
     }
 }
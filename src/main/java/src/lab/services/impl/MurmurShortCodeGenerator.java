@@ -0,0 +1,121 @@
+package src.lab.services.impl;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.ShortCodeGenerator;
+
+// MurmurHash3 x64_128 over the UTF-16 code units of userId followed by originalUrl, read in place without
+// concatenating or encoding either string. The attempt number is the seed, so retries need no new input either.
+@Component
+@ConditionalOnProperty(prefix = "app.link.codes", name = "strategy", havingValue = "murmur")
+public class MurmurShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private final int length;
+
+    public MurmurShortCodeGenerator(AppConfig config) {
+        this.length = config.getLink().getShortCodeLength();
+    }
+
+    @Override
+    public String generate(String userId, String originalUrl, int attempt) {
+        // The low 63 bits of h1 cover codes of up to 10 characters
+        return ShortLinks.base62(hash(userId, originalUrl, attempt) >>> 1, length);
+    }
+
+    static long hash(String first, String second, int seed) {
+        int firstLength = first.length();
+        int total = firstLength + second.length();
+        long h1 = seed & 0xFFFFFFFFL;
+        long h2 = h1;
+
+        // 16-byte blocks are 8 chars: 4 for k1 and 4 for k2
+        int blocks = total / 8;
+        for (int block = 0; block < blocks; block++) {
+            int offset = block * 8;
+            long k1 = word(first, second, firstLength, offset);
+            long k2 = word(first, second, firstLength, offset + 4);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52DCE729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495AB5;
+        }
+
+        int offset = blocks * 8;
+        int tail = total - offset;
+        if (tail > 4) {
+            h2 ^= mixK2(word(first, second, firstLength, offset + 4, tail - 4));
+        }
+        if (tail > 0) {
+            h1 ^= mixK1(word(first, second, firstLength, offset, Math.min(tail, 4)));
+        }
+
+        long bytes = total * 2L;
+        h1 ^= bytes;
+        h2 ^= bytes;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        return h1;
+    }
+
+    private static long word(String first, String second, int firstLength, int offset) {
+        if (offset + 4 <= firstLength) {
+            return word(first, offset);
+        }
+        if (offset >= firstLength) {
+            return word(second, offset - firstLength);
+        }
+        return word(first, second, firstLength, offset, 4);
+    }
+
+    private static long word(String s, int offset) {
+        return s.charAt(offset)
+                | (long) s.charAt(offset + 1) << 16
+                | (long) s.charAt(offset + 2) << 32
+                | (long) s.charAt(offset + 3) << 48;
+    }
+
+    // Little-endian 64-bit word of up to 4 chars starting at offset in first + second
+    private static long word(String first, String second, int firstLength, int offset, int chars) {
+        long word = 0;
+        for (int i = 0; i < chars; i++) {
+            int index = offset + i;
+            char c = index < firstLength ? first.charAt(index) : second.charAt(index - firstLength);
+            word |= (long) c << (16 * i);
+        }
+        return word;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,173 @@
+package src.lab.services.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.ShortCodeGenerator;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps a queue of hi-lo codes so that creates take a ready code instead of hashing or leasing a block.
+// The codes are reserved the moment hi-lo hands them out, so a queued code can never be taken by another instance.
+@Component
+@Primary
+@ConditionalOnProperty(prefix = "app.link.codes.pool", name = "enabled", havingValue = "true")
+public class PooledShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledShortCodeGenerator.class);
+
+    private final HiLoShortCodeGenerator source;
+    private final int capacity;
+    private final int lowWaterMark;
+    private final BlockingQueue<String> codes;
+    // The application's executor, so refills run on virtual threads when spring.threads.virtual.enabled is set
+    private final AsyncTaskExecutor refiller;
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private volatile boolean stopped;
+    private volatile CompletableFuture<Void> lastRefill = CompletableFuture.completedFuture(null);
+    private final LongAdder emptyPolls = new LongAdder();
+    private final AtomicLong refills = new AtomicLong();
+    private final AtomicLong lastRefillNanos = new AtomicLong();
+    private final AtomicLong maxRefillNanos = new AtomicLong();
+
+    // Only hi-lo codes can be drawn ahead of time: the other strategies derive the code from the user and the url
+    @Autowired
+    public PooledShortCodeGenerator(ObjectProvider<HiLoShortCodeGenerator> source, AppConfig config,
+                                    @Qualifier("applicationTaskExecutor") AsyncTaskExecutor refiller) {
+        this(requireHiLo(source), config, refiller);
+    }
+
+    public PooledShortCodeGenerator(HiLoShortCodeGenerator source, AppConfig config, AsyncTaskExecutor refiller) {
+        this.source = source;
+        this.refiller = refiller;
+        this.capacity = config.getLink().getCodes().getPool().getCapacity();
+        this.lowWaterMark = config.getLink().getCodes().getPool().getLowWaterMark();
+        if (capacity < 1 || lowWaterMark < 0 || lowWaterMark >= capacity) {
+            throw new IllegalStateException("app.link.codes.pool needs 0 <= low-water-mark < capacity");
+        }
+        this.codes = new ArrayBlockingQueue<>(capacity);
+    }
+
+    private static HiLoShortCodeGenerator requireHiLo(ObjectProvider<HiLoShortCodeGenerator> source) {
+        HiLoShortCodeGenerator hiLo = source.getIfAvailable();
+        if (hiLo == null) {
+            throw new IllegalStateException("app.link.codes.pool.enabled requires app.link.codes.strategy=hi-lo");
+        }
+        return hiLo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillOnStartup() {
+        requestRefill();
+    }
+
+    @Override
+    public String generate(String userId, String originalUrl, int attempt) {
+        String code = codes.poll();
+        if (codes.size() < lowWaterMark) {
+            requestRefill();
+        }
+        if (code != null) {
+            return code;
+        }
+
+        // Drained by a burst faster than the refill: fall back to the source on this thread
+        emptyPolls.increment();
+        return source.generate(userId, originalUrl, attempt);
+    }
+
+    @Override
+    public boolean isCollisionFree() {
+        return true;
+    }
+
+    // The executor is shared, so the refill is stopped through a flag and awaited here rather than interrupted
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stopped = true;
+        try {
+            lastRefill.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            log.warn("Short code pool refill failed", e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("Short code pool refill still running after 5 seconds, leaving it behind");
+        }
+    }
+
+    public int depth() {
+        return codes.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int lowWaterMark() {
+        return lowWaterMark;
+    }
+
+    public long refills() {
+        return refills.get();
+    }
+
+    public long emptyPolls() {
+        return emptyPolls.sum();
+    }
+
+    public long lastRefillNanos() {
+        return lastRefillNanos.get();
+    }
+
+    public long maxRefillNanos() {
+        return maxRefillNanos.get();
+    }
+
+    private void requestRefill() {
+        if (!stopped && refilling.compareAndSet(false, true)) {
+            try {
+                lastRefill = refiller.submitCompletable(this::refill);
+            } catch (TaskRejectedException e) {
+                // Executor shutting down or saturated: callers fall back to the source until the next request
+                refilling.set(false);
+                log.warn("Short code pool refill rejected by the task executor", e);
+            }
+        }
+    }
+
+    private void refill() {
+        long start = System.nanoTime();
+        try {
+            while (codes.remainingCapacity() > 0 && !stopped) {
+                // offer cannot fail here: this thread is the only producer
+                codes.offer(source.generate(null, null, 0));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Short code pool refill stopped at {} of {} codes", codes.size(), capacity, e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            lastRefillNanos.set(elapsed);
+            maxRefillNanos.accumulateAndGet(elapsed, Math::max);
+            refills.incrementAndGet();
+            refilling.set(false);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package src.lab.services.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.Link;
+import src.lab.db.models.LinkPage;
+import src.lab.db.models.LinkState;
+import src.lab.db.models.LinkView;
+import src.lab.db.models.User;
+import src.lab.db.repositories.ReactiveLinksRepository;
+import src.lab.exceptions.*;
+import src.lab.infra.cache.LinkExpiryScheduler;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.ReactiveLinksService;
+import src.lab.services.ShortCodeGenerator;
+
+import java.time.LocalDateTime;
+
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveLinkServiceImpl implements ReactiveLinksService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveLinkServiceImpl.class);
+    private static final int MAX_COLLISION_ATTEMPTS = 10;
+
+    private final ReactiveLinksRepository linkRepository;
+    private final AppConfig config;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final LinkExpiryScheduler linkExpiryScheduler;
+
+    public ReactiveLinkServiceImpl(ReactiveLinksRepository linkRepository, AppConfig config, ShortCodeGenerator shortCodeGenerator,
+                                   LinkExpiryScheduler linkExpiryScheduler) {
+        this.linkRepository = linkRepository;
+        this.config = config;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.linkExpiryScheduler = linkExpiryScheduler;
+    }
+
+    @Override
+    public Mono<Link> createShortLink(String userId, String originalUrl, Integer clickLimit) {
+        return Mono.fromRunnable(() -> ShortLinks.validateUrl(originalUrl))
+                .then(insertLink(userId, originalUrl, clickLimit, 1));
+    }
+
+    private Mono<Link> insertLink(String userId, String originalUrl, Integer clickLimit, int attempt) {
+        return generateUniqueShortCode(userId, originalUrl)
+                .flatMap(shortCode -> {
+                    User user = new User();
+                    user.setId(userId);
+
+                    LocalDateTime now = LocalDateTime.now();
+                    Link link = new Link();
+                    link.setShortCode(shortCode);
+                    link.setOriginalUrl(originalUrl);
+                    link.setUrlHash(ShortLinks.urlHash(originalUrl));
+                    link.setUser(user);
+                    link.setClickLimit(clickLimit != null ? clickLimit : config.getLink().getDefaultClickLimit());
+                    link.setCreatedAt(now);
+                    link.setExpiresAt(now.plusHours(config.getLink().getTtlHours()));
+
+                    // R2DBC inserts bypass the JPA entity listeners
+                    return linkRepository.createUserIfAbsent(userId).then(linkRepository.insert(link))
+                            .doOnNext(created -> linkExpiryScheduler.schedule(created.getShortCode(), created.getExpiresAt()))
+                            // The code was taken past the probe, or by another strategy under a collision-free one
+                            .onErrorResume(DuplicateKeyException.class, e -> attempt < MAX_COLLISION_ATTEMPTS
+                                    ? linkRepository.existsByShortCode(shortCode).flatMap(taken -> taken
+                                            ? insertLink(userId, originalUrl, clickLimit, attempt + 1)
+                                            : Mono.error(e))
+                                    : Mono.error(e));
+                });
+    }
+
+    @Override
+    public Mono<String> redirect(String shortCode) {
+        return click(shortCode).flatMap(result -> result.outcome() == ClickOutcome.RECORDED
+                ? Mono.just(result.link().originalUrl())
+                : Mono.error(rejection(shortCode, result.outcome())));
+    }
+
+    @Override
+    public Mono<ClickResult> click(String shortCode) {
+        return linkRepository.registerClick(shortCode, LocalDateTime.now())
+                .doOnNext(result -> {
+                    LinkState link = result.link();
+                    switch (result.outcome()) {
+                        case EXPIRED -> log.warn("Attempt to access expired link: shortCode={}, expiresAt={}, userId={}", shortCode, link.expiresAt(), link.userId());
+                        case LIMIT_REACHED -> log.warn("Attempt to access link with exceeded click limit: shortCode={}, clickCount={}, clickLimit={}, userId={}", shortCode, link.clickCount(), link.clickLimit(), link.userId());
+                        default -> {
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public Mono<LinkPage> getUserLinks(String userId, Long afterId, Integer limit) {
+        int size = ShortLinks.pageSize(limit, config.getLink());
+        return linkRepository.findByUserIdAfter(userId, afterId != null ? afterId : 0L, size + 1)
+                .collectList()
+                .map(fetched -> LinkPage.of(fetched.stream().map(LinkView::from).toList(), size));
+    }
+
+    @Override
+    public Mono<Link> getLink(String shortCode) {
+        return linkRepository.findByShortCode(shortCode)
+                .switchIfEmpty(Mono.error(() -> new LinkNotFoundException(shortCode)));
+    }
+
+    @Override
+    public Mono<Link> updateLink(String shortCode, String userId, Integer clickLimit) {
+        return getLink(shortCode).flatMap(link -> {
+            if (!link.getUserId().equals(userId)) {
+                return Mono.error(new UnauthorizedAccessException("Not authorized to modify this link"));
+            }
+
+            if (clickLimit == null) {
+                return Mono.just(link);
+            }
+            return linkRepository.updateClickLimit(link.getId(), clickLimit);
+        });
+    }
+
+    @Override
+    public Mono<Void> deleteLink(String shortCode, String userId) {
+        return getLink(shortCode).flatMap(link -> {
+            if (!link.getUserId().equals(userId)) {
+                return Mono.error(new UnauthorizedAccessException("Not authorized to delete this link"));
+            }
+
+            return linkRepository.deleteById(link.getId());
+        });
+    }
+
+    private RuntimeException rejection(String shortCode, ClickOutcome outcome) {
+        return switch (outcome) {
+            case EXPIRED -> new LinkExpiredException(shortCode);
+            case LIMIT_REACHED -> new LinkLimitReachedException(shortCode);
+            case QUOTA_RESERVED -> new ClickQuotaReservedException(shortCode);
+            default -> new LinkNotFoundException(shortCode);
+        };
+    }
+
+    private Mono<String> generateUniqueShortCode(String userId, String originalUrl) {
+        if (shortCodeGenerator.isCollisionFree()) {
+            // Leasing the next id block is a JDBC call, so it must stay off the event loop
+            return Mono.fromCallable(() -> shortCodeGenerator.generate(userId, originalUrl, 0))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+
+        return Flux.range(0, MAX_COLLISION_ATTEMPTS)
+                .map(attempt -> shortCodeGenerator.generate(userId, originalUrl, attempt))
+                .concatMap(code -> linkRepository.existsByShortCode(code)
+                        .filter(exists -> !exists)
+                        .map(free -> code))
+                .next()
+                .switchIfEmpty(Mono.error(ShortCodeGenerationException::new));
+    }
+}
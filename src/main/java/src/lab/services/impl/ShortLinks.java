@@ -0,0 +1,109 @@
+package src.lab.services.impl;
+
+import src.lab.exceptions.InvalidUrlException;
+import src.lab.exceptions.ShortCodeGenerationException;
+import src.lab.infra.settings.AppConfig;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+// Link rules shared by the servlet and reactive services
+final class ShortLinks {
+
+    private static final char[] BASE62_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private ShortLinks() {
+    }
+
+    static String shortCode(String input, int length) {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new ShortCodeGenerationException();
+        }
+
+        byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
+        return encodeToURLSafeBase62(hash, length);
+    }
+
+    static void validateUrl(String url) {
+        try {
+            new URL(url);
+        } catch (MalformedURLException e) {
+            throw new InvalidUrlException(url);
+        }
+    }
+
+    static int pageSize(Integer requested, AppConfig.LinkConfig config) {
+        if (requested == null) {
+            return config.getPageSize();
+        }
+        return Math.max(1, Math.min(requested, config.getMaxPageSize()));
+    }
+
+    static long urlHash(String url) {
+        return MurmurShortCodeGenerator.hash(normalizeUrl(url), "", 0);
+    }
+
+    // Scheme and host are case-insensitive, default ports and fragments never reach the server,
+    // and an empty path means "/"; everything else is kept as sent
+    static String normalizeUrl(String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            return url;
+        }
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            return url;
+        }
+
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        int port = uri.getPort();
+        if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) {
+            port = -1;
+        }
+
+        StringBuilder normalized = new StringBuilder(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            normalized.append(uri.getRawUserInfo()).append('@');
+        }
+        normalized.append(uri.getHost().toLowerCase(Locale.ROOT));
+        if (port != -1) {
+            normalized.append(':').append(port);
+        }
+        normalized.append(uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath());
+        if (uri.getRawQuery() != null) {
+            normalized.append('?').append(uri.getRawQuery());
+        }
+        return normalized.toString();
+    }
+
+    static String base62(long value, int length) {
+        char[] result = new char[length];
+
+        for (int i = 0; i < length; i++) {
+            result[i] = BASE62_CHARS[(int) (value % 62)];
+            value /= 62;
+        }
+
+        return new String(result);
+    }
+
+    private static String encodeToURLSafeBase62(byte[] bytes, int length) {
+        long value = 0;
+        for (int i = 0; i < Math.min(bytes.length, 8); i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+
+        return base62(Math.abs(value), length);
+    }
+}
@@ -0,0 +1,25 @@
+package src.lab.services.impl;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import src.lab.db.models.ClickResult;
+import src.lab.db.store.LinkStore;
+import src.lab.services.ClickCounter;
+
+import java.time.LocalDateTime;
+
+@Service
+@ConditionalOnProperty(prefix = "app.link.clicks", name = "mode", havingValue = "sync", matchIfMissing = true)
+public class SyncClickCounter implements ClickCounter {
+
+    private final LinkStore linkStore;
+
+    public SyncClickCounter(LinkStore linkStore) {
+        this.linkStore = linkStore;
+    }
+
+    @Override
+    public ClickResult record(String shortCode) {
+        return linkStore.registerClick(shortCode, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,243 @@
+package src.lab.services.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.LinkState;
+import src.lab.db.repositories.LinksRepository;
+import src.lab.db.store.ClickJournal;
+import src.lab.db.store.LinkStore;
+import src.lab.infra.cache.LinkCache;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.ClickCounter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+@ConditionalOnProperty(prefix = "app.link.clicks", name = "mode", havingValue = "write-behind")
+public class WriteBehindClickCounter implements ClickCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindClickCounter.class);
+    private static final String FLUSH_SQL = "UPDATE links SET click_count = click_count + ? WHERE id = ?";
+
+    private final LinksRepository linkRepository;
+    private final LinkCache linkCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final LinkStore linkStore;
+    private final ClickJournal journal;
+    private final TransactionTemplate transactionTemplate;
+    private final int syncThreshold;
+    // Keyed by link as well as code: a code deleted and created again is a new link with a count of its own
+    private final Map<PendingKey, PendingClicks> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Clicks are journaled under the read lock; a flush takes the journal position, the set of buffered links and
+    // their counts under the write lock, so its checkpoint covers exactly the clicks it writes
+    private final ReentrantReadWriteLock journalBarrier = new ReentrantReadWriteLock();
+
+    public WriteBehindClickCounter(LinksRepository linkRepository, LinkCache linkCache, JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager, LinkStore linkStore, ClickJournal journal,
+                                   AppConfig config) {
+        this.linkRepository = linkRepository;
+        this.linkCache = linkCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.linkStore = linkStore;
+        this.journal = journal;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // A flush triggered from a redirect must not be tied to that request's transaction
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.syncThreshold = config.getLink().getClicks().getSyncThreshold();
+    }
+
+    @Override
+    public ClickResult record(String shortCode) {
+        // The lookup may be served by a replica; the counts themselves are always written to the primary
+        Optional<LinkState> cached = linkCache.get(shortCode, linkStore::find);
+        if (cached.isEmpty()) {
+            return ClickResult.notFound();
+        }
+
+        LinkState link = cached.get();
+        if (link.isExpired()) {
+            return ClickResult.rejected(link);
+        }
+
+        PendingKey key = new PendingKey(shortCode, link.id());
+        PendingClicks clicks = pending.computeIfAbsent(key, k -> new PendingClicks(link, journal.previousClicks(link.id())));
+
+        if (journal.isEnabled()) {
+            long position = -1;
+            journalBarrier.readLock().lock();
+            try {
+                if (buffer(clicks, link)) {
+                    position = journal.append(shortCode, link.id(), 1, System.currentTimeMillis());
+                }
+            } finally {
+                journalBarrier.readLock().unlock();
+            }
+            if (position >= 0) {
+                journal.commit(position);
+                return ClickResult.recorded(link);
+            }
+        } else if (buffer(clicks, link)) {
+            return ClickResult.recorded(link);
+        }
+
+        // Close to the limit, but until the journal is replayed click_count misses the buffered clicks and those of
+        // the previous run, so the database cannot decide yet
+        if (journal.isEnabled() && !journal.isRecovered()) {
+            log.debug("Click near limit held until the click journal is replayed: shortCode={}", shortCode);
+            return new ClickResult(ClickOutcome.QUOTA_RESERVED, link);
+        }
+
+        // Close to the limit: drain this link's buffer and let the database decide
+        flush(key);
+        ClickResult result = linkRepository.registerClick(shortCode, LocalDateTime.now());
+        if (result.outcome() == ClickOutcome.RECORDED) {
+            clicks.flushed.incrementAndGet();
+        }
+        return result;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.link.clicks.flush-interval-ms}")
+    public void flushAll() {
+        flush(null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushAll();
+        log.info("Flushed buffered clicks on shutdown");
+    }
+
+    public long pendingClicks() {
+        return pending.values().stream().mapToLong(clicks -> clicks.count.sum()).sum();
+    }
+
+    // Increment first, then read the sum: the last admitted click always sees every other admitted one,
+    // so buffered clicks can never push the link past its limit
+    private boolean buffer(PendingClicks clicks, LinkState link) {
+        clicks.count.increment();
+        if (clicks.persistedCount(link) + clicks.count.sum() <= link.clickLimit() - syncThreshold) {
+            return true;
+        }
+        clicks.count.decrement();
+        return false;
+    }
+
+    private void flush(PendingKey key) {
+        // Clicks stay buffered and journaled until the previous run's journal has been replayed
+        if (journal.isEnabled() && !journal.isRecovered()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            Map<PendingKey, PendingClicks> batch = new HashMap<>();
+            LocalDateTime now = LocalDateTime.now();
+            Map<PendingKey, Long> deltas = new HashMap<>();
+            List<PendingKey> keys = new ArrayList<>();
+            List<Object[]> updates = new ArrayList<>();
+            long position;
+
+            journalBarrier.writeLock().lock();
+            try {
+                position = journal.isEnabled() ? journal.position() : -1;
+                // Under the same lock as the position, or a link first clicked in between would be journaled before
+                // the checkpoint yet missing from the batch. A checkpoint covers every link, so with the journal a
+                // flush always takes all of them
+                if (key == null || journal.isEnabled()) {
+                    batch.putAll(pending);
+                } else if (pending.containsKey(key)) {
+                    batch.put(key, pending.get(key));
+                }
+                batch.forEach((pendingKey, clicks) -> {
+                    long delta = clicks.count.sum();
+                    if (delta > 0) {
+                        deltas.put(pendingKey, delta);
+                        keys.add(pendingKey);
+                        updates.add(new Object[]{delta, pendingKey.linkId()});
+                    } else if (now.isAfter(clicks.expiresAt)) {
+                        // Expired links never reach the counter again, so the entry can go
+                        pending.remove(pendingKey, clicks);
+                    }
+                });
+            } finally {
+                journalBarrier.writeLock().unlock();
+            }
+
+            if (updates.isEmpty()) {
+                return;
+            }
+
+            int[] rows = transactionTemplate.execute(status -> {
+                int[] updated = jdbcTemplate.batchUpdate(FLUSH_SQL, updates);
+                if (position >= 0) {
+                    journal.markApplied(position);
+                }
+                return updated;
+            });
+            if (position >= 0) {
+                journal.truncate(position);
+            }
+
+            deltas.forEach((pendingKey, delta) -> {
+                // Move the delta to the persisted side first: in between, a click is counted twice rather than not at all
+                PendingClicks clicks = batch.get(pendingKey);
+                clicks.flushed.addAndGet(delta);
+                clicks.count.add(-delta);
+            });
+            for (int i = 0; rows != null && i < rows.length; i++) {
+                if (rows[i] == 0) {
+                    // The link was deleted; its clicks go with it
+                    pending.remove(keys.get(i), batch.get(keys.get(i)));
+                }
+            }
+
+            log.debug("Flushed buffered clicks for {} links", deltas.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private record PendingKey(String shortCode, Long linkId) {
+    }
+
+    private static class PendingClicks {
+        private final LocalDateTime expiresAt;
+        private final int initialCount;
+        // Journaled by the previous run: not in a state loaded before the replay, counted twice in one loaded after
+        private final long previousClicks;
+        private final AtomicLong flushed = new AtomicLong();
+        private final LongAdder count = new LongAdder();
+
+        PendingClicks(LinkState link, long previousClicks) {
+            this.expiresAt = link.expiresAt();
+            this.initialCount = link.clickCount();
+            this.previousClicks = previousClicks;
+        }
+
+        // Cached states are not refreshed on flush, so a stale one must not hide clicks this instance already wrote
+        long persistedCount(LinkState link) {
+            return Math.max(link.clickCount(), initialCount + previousClicks + flushed.get());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+CREATE TABLE users (
+    id         VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_users PRIMARY KEY (id)
+);
+
+CREATE TABLE links (
+    id              BIGINT        NOT NULL,
+    short_code      VARCHAR(255)  NOT NULL,
+    original_url    VARCHAR(2048) NOT NULL,
+    url_hash        BIGINT,
+    user_id         VARCHAR(255)  NOT NULL,
+    click_limit     INTEGER       NOT NULL,
+    click_count     INTEGER       DEFAULT 0 NOT NULL,
+    reserved_clicks INTEGER       DEFAULT 0 NOT NULL,
+    created_at      TIMESTAMP(6)  NOT NULL,
+    expires_at      TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT pk_links PRIMARY KEY (id),
+    CONSTRAINT uk_links_short_code UNIQUE (short_code),
+    CONSTRAINT fk_links_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE INDEX idx_links_user_url_hash ON links (user_id, url_hash);
+
+-- Hibernate hands out ids in pooled-lo blocks of 50, see Link
+CREATE SEQUENCE links_seq START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE short_code_blocks START WITH 0 MINVALUE 0;
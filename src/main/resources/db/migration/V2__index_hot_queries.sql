@@ -0,0 +1,5 @@
+-- Listing by user: id as the second column keeps a user's links in insertion order inside the index
+CREATE INDEX idx_links_user_id ON links (user_id, id);
+
+-- Cleanup of expired links and the snapshot of active ones both filter on expires_at
+CREATE INDEX idx_links_expires_at ON links (expires_at);
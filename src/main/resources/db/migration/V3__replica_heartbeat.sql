@@ -0,0 +1,8 @@
+-- Rewritten on the primary by ReplicaLagMonitor; how old the row looks on a replica is that replica's lag
+CREATE TABLE replica_heartbeat (
+    id      INT          NOT NULL,
+    beat_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_replica_heartbeat PRIMARY KEY (id)
+);
+
+INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, LOCALTIMESTAMP);
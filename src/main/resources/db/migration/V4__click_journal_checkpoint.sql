@@ -0,0 +1,7 @@
+-- Position in a node's click journal up to which buffered clicks reached links.click_count;
+-- updated in the same transaction as the counts, so startup replays exactly the records after it
+CREATE TABLE click_journal_checkpoint (
+    node_id          VARCHAR(64) NOT NULL,
+    applied_position BIGINT      NOT NULL,
+    CONSTRAINT pk_click_journal_checkpoint PRIMARY KEY (node_id)
+);
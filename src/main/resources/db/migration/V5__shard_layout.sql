@@ -0,0 +1,7 @@
+-- Shard counts a ShardRebalancer pass completed for; read on shard 0 only. While the configured count has no row,
+-- a lookup by code that misses on the owning shard is retried on the others
+CREATE TABLE shard_layout (
+    shard_count   INT          NOT NULL,
+    rebalanced_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_shard_layout PRIMARY KEY (shard_count)
+);
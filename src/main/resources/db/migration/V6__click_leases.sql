@@ -0,0 +1,12 @@
+-- Click quota held by instances in leased mode: links.reserved_clicks is the sum of a link's rows. A row past
+-- expires_at belongs to an instance that stopped without settling, and any other instance hands its quota back.
+-- No foreign key: rows of a deleted link are reclaimed like any other and the update finds no link
+CREATE TABLE click_leases (
+    link_id    BIGINT       NOT NULL,
+    owner_id   VARCHAR(64)  NOT NULL,
+    reserved   INTEGER      NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_click_leases PRIMARY KEY (link_id, owner_id)
+);
+
+CREATE INDEX idx_click_leases_expires_at ON click_leases (expires_at);
@@ -0,0 +1,6 @@
+-- url_hash of a link created with app.link.idempotent-create while it is the user's link for that url; cleared
+-- once it is expired or exhausted and a new one takes over. NULLs are distinct, so only those links are unique,
+-- and of two concurrent creates of the same url the second insert fails instead of adding a duplicate
+ALTER TABLE links ADD COLUMN idempotency_key BIGINT;
+
+CREATE UNIQUE INDEX uk_links_user_idempotency_key ON links (user_id, idempotency_key);
@@ -0,0 +1,7 @@
+-- Largest app.link.codes.block-size that leased from short_code_blocks. Block n covers [n * size, (n + 1) * size),
+-- so a smaller size would hand out ids of blocks already leased; hi-lo raises it on start and refuses to shrink it
+CREATE TABLE short_code_block_size (
+    block_size INT NOT NULL
+);
+
+INSERT INTO short_code_block_size (block_size) VALUES (0);
@@ -0,0 +1,89 @@
+package src.lab.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import src.lab.infra.cache.ShortCodeIndex;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.ShortCodeGenerator;
+import src.lab.services.impl.HashShortCodeGenerator;
+import src.lab.services.impl.MurmurShortCodeGenerator;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Cost per code and collision rate: SHA-256 vs Murmur3 generator; run with ./gradlew benchmark
+@Tag("benchmark")
+class ShortCodeHashBenchmark {
+
+    private static final int LENGTH = 6;
+    private static final int USERS = 1_000;
+    private static final int TIMED_CODES = Integer.getInteger("benchmark.timed-codes", 2_000_000);
+    private static final int COLLISION_LINKS = Integer.getInteger("benchmark.collision-links", 10_000_000);
+
+    private final String[] userIds = new String[USERS];
+
+    @Test
+    void generators_costAndCollisions() {
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = UUID.randomUUID().toString();
+        }
+        AppConfig config = new AppConfig();
+        config.getLink().setShortCodeLength(LENGTH);
+        ShortCodeGenerator sha = new HashShortCodeGenerator(config);
+        ShortCodeGenerator murmur = new MurmurShortCodeGenerator(config);
+
+        double space = Math.pow(62, LENGTH);
+        // n - s(1 - (1 - 1/s)^n); with s = 62^6 the power rounds to 1 in doubles, so it goes through log1p/expm1
+        double expected = COLLISION_LINKS - space * -Math.expm1(COLLISION_LINKS * Math.log1p(-1 / space));
+
+        System.out.printf("%n%,d timed codes, %,d links for collisions, %d-char codes%n", TIMED_CODES, COLLISION_LINKS, LENGTH);
+        System.out.printf("%-8s %10s %12s %12s%n", "hash", "ns/code", "collisions", "expected");
+        for (String name : new String[]{"sha-256", "murmur3"}) {
+            ShortCodeGenerator generator = name.equals("sha-256") ? sha : murmur;
+            double nanos = nanosPerCode(generator);
+            long collisions = collisions(generator);
+            System.out.printf("%-8s %10.1f %12d %12.0f%n", name, nanos, collisions, expected);
+
+            // A uniform hash stays within a few standard deviations (about sqrt(expected)) of the birthday bound
+            assertTrue(Math.abs(collisions - expected) < 10 * Math.sqrt(expected) + 10);
+        }
+    }
+
+    private double nanosPerCode(ShortCodeGenerator generator) {
+        String[] urls = new String[TIMED_CODES];
+        for (int i = 0; i < TIMED_CODES; i++) {
+            urls[i] = "https://example.com/articles/" + i + "?utm_source=newsletter";
+        }
+
+        long sink = 0;
+        long start = 0;
+        // First pass warms up the JIT, second is timed
+        for (int pass = 0; pass < 2; pass++) {
+            start = System.nanoTime();
+            for (int i = 0; i < TIMED_CODES; i++) {
+                sink += generator.generate(userIds[i % USERS], urls[i], 0).charAt(0);
+            }
+        }
+        double nanos = (double) (System.nanoTime() - start) / TIMED_CODES;
+        assertTrue(sink > 0);
+        return nanos;
+    }
+
+    private long collisions(ShortCodeGenerator generator) {
+        long[] codes = new long[COLLISION_LINKS];
+        for (int i = 0; i < COLLISION_LINKS; i++) {
+            codes[i] = ShortCodeIndex.encode(generator.generate(userIds[i % USERS], "https://example.com/" + i, 0));
+        }
+        Arrays.sort(codes);
+
+        long collisions = 0;
+        for (int i = 1; i < codes.length; i++) {
+            if (codes[i] == codes[i - 1]) {
+                collisions++;
+            }
+        }
+        return collisions;
+    }
+}
@@ -0,0 +1,121 @@
+package src.lab.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import src.lab.db.models.Link;
+import src.lab.db.models.LinkState;
+import src.lab.db.models.User;
+import src.lab.infra.cache.ShortCodeIndex;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Heap per million links and lookup cost: HashMap<String, Link> vs ShortCodeIndex; run with ./gradlew benchmark
+@Tag("benchmark")
+class ShortCodeIndexBenchmark {
+
+    private static final int LINKS = Integer.getInteger("benchmark.links", 1_000_000);
+    private static final int LOOKUPS = Integer.getInteger("benchmark.lookups", 10_000_000);
+    private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    @Test
+    void memoryAndLookups_entityMapVsIndex() {
+        String[] codes = codes();
+        // URLs and the user are shared by both structures, so they are left out of the per-link figures
+        String[] urls = new String[LINKS];
+        for (int i = 0; i < LINKS; i++) {
+            urls[i] = "https://example.com/" + i;
+        }
+        User user = new User();
+        user.setId("550e8400-e29b-41d4-a716-446655440000");
+        LocalDateTime now = LocalDateTime.now();
+
+        long before = usedHeap();
+        Map<String, Link> map = new HashMap<>();
+        for (int i = 0; i < LINKS; i++) {
+            Link link = new Link();
+            link.setId((long) i + 1);
+            link.setShortCode(new String(codes[i]));
+            link.setOriginalUrl(urls[i]);
+            link.setUser(user);
+            link.setClickLimit(100);
+            link.setCreatedAt(now.plusNanos(i));
+            link.setExpiresAt(now.plusHours(1).plusNanos(i));
+            map.put(link.getShortCode(), link);
+        }
+        long mapBytes = usedHeap() - before;
+
+        before = usedHeap();
+        ShortCodeIndex index = new ShortCodeIndex(LINKS);
+        for (int i = 0; i < LINKS; i++) {
+            index.put(new LinkState((long) i + 1, codes[i], urls[i], user.getId(), 100, 0, now.plusHours(1)));
+        }
+        long indexBytes = usedHeap() - before;
+
+        long mapNanos = time(() -> lookups(codes, code -> map.get(code) != null));
+        long indexNanos = time(() -> lookups(codes, code -> index.get(code) != null));
+
+        double perMillion = 1_000_000.0 / LINKS;
+        System.out.printf("%n%,d links, %,d random lookups%n", LINKS, LOOKUPS);
+        System.out.printf("%-22s %14s %12s %12s%n", "structure", "MB / 1M links", "bytes/link", "ns/lookup");
+        System.out.printf("%-22s %14.1f %12d %12.1f%n", "HashMap<String, Link>",
+                mapBytes * perMillion / (1 << 20), mapBytes / LINKS, (double) mapNanos / LOOKUPS);
+        System.out.printf("%-22s %14.1f %12d %12.1f%n", "ShortCodeIndex",
+                indexBytes * perMillion / (1 << 20), indexBytes / LINKS, (double) indexNanos / LOOKUPS);
+        System.out.printf("saved: %.1f MB per million links%n", (mapBytes - indexBytes) * perMillion / (1 << 20));
+
+        assertEquals(LINKS, index.size());
+        assertEquals(LINKS, map.size());
+    }
+
+    private String[] codes() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, Boolean> seen = new HashMap<>();
+        String[] codes = new String[LINKS];
+        int i = 0;
+        while (i < LINKS) {
+            char[] chars = new char[6];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            String code = new String(chars);
+            if (seen.putIfAbsent(code, Boolean.TRUE) == null) {
+                codes[i++] = code;
+            }
+        }
+        return codes;
+    }
+
+    private int lookups(String[] codes, Predicate<String> lookup) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (lookup.test(codes[random.nextInt(codes.length)])) {
+                found++;
+            }
+        }
+        assertEquals(LOOKUPS, found);
+        return found;
+    }
+
+    private long time(Runnable run) {
+        // One untimed pass so both sides are measured after JIT warm-up
+        run.run();
+        long start = System.nanoTime();
+        run.run();
+        return System.nanoTime() - start;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,149 @@
+package src.lab.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import src.lab.LabApplication;
+import src.lab.services.LinksService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Redirect throughput and latency with platform vs virtual request threads; run with ./gradlew benchmark
+@Tag("benchmark")
+class VirtualThreadLoadBenchmark {
+
+    private static final int LINKS = 100;
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("benchmark.requests-per-client", 20);
+    private static final String USER_ID = "550e8400-e29b-41d4-a716-446655440000";
+
+    @ParameterizedTest(name = "{0} concurrent clients")
+    @ValueSource(ints = {1_000, 5_000, 10_000})
+    void redirect_platformVsVirtualThreads(int clients) throws Exception {
+        Result platform = run(false, clients);
+        Result virtual = run(true, clients);
+
+        System.out.printf("%n%,d clients x %d requests%n", clients, REQUESTS_PER_CLIENT);
+        System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "threads", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        platform.print("platform");
+        virtual.print("virtual");
+
+        assertTrue(virtual.completed() > 0);
+    }
+
+    private Result run(boolean virtualThreads, int clients) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LabApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + virtualThreads + "-" + clients,
+                        "logging.level.root=warn")
+                .run()) {
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            LinksService linksService = context.getBean(LinksService.class);
+            String[] codes = new String[LINKS];
+            for (int i = 0; i < LINKS; i++) {
+                codes[i] = linksService.createShortLink(USER_ID, "https://example.com/" + i, Integer.MAX_VALUE).link().getShortCode();
+            }
+            return load(port, codes, clients);
+        }
+    }
+
+    private Result load(int port, String[] codes, int clients) throws Exception {
+        // Clients always use virtual threads so that only the server side differs between runs
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(executor)
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+
+            long[][] latencies = new long[clients][];
+            AtomicInteger errors = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Runnable> tasks = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int clientId = c;
+                tasks.add(() -> {
+                    long[] samples = new long[REQUESTS_PER_CLIENT];
+                    int taken = 0;
+                    try {
+                        start.await();
+                        for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                            String code = codes[(clientId + r) % codes.length];
+                            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/" + code)).build();
+                            long begin = System.nanoTime();
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            long elapsed = System.nanoTime() - begin;
+                            if (response.statusCode() == 302) {
+                                samples[taken++] = elapsed;
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[clientId] = Arrays.copyOf(samples, taken);
+                });
+            }
+
+            CountDownLatch done = new CountDownLatch(clients);
+            for (Runnable task : tasks) {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            done.await();
+            long elapsed = System.nanoTime() - begin;
+
+            return Result.of(latencies, errors.get(), elapsed);
+        }
+    }
+
+    private record Result(long[] sorted, int errors, long elapsedNanos) {
+
+        static Result of(long[][] latencies, int errors, long elapsedNanos) {
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(all, errors, elapsedNanos);
+        }
+
+        int completed() {
+            return sorted.length;
+        }
+
+        void print(String label) {
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("%-10s %,12.0f %10.2f %10.2f %10.2f %8d%n",
+                    label, sorted.length / seconds, percentile(0.50), percentile(0.99), percentile(1.0), errors);
+        }
+
+        private double percentile(double p) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package src.lab.controllers;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import src.lab.db.models.User;
+import src.lab.db.repositories.LinksRepository;
+import src.lab.db.repositories.UsersRepository;
+import src.lab.services.LinksService;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.link.idempotent-create=true")
+class IdempotentCreateTest {
+
+    private static final int THREADS = 16;
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private LinksService linksService;
+
+    @Autowired
+    private LinksRepository linkRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String userId = "550e8400-e29b-41d4-a716-446655440000";
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        linkRepository.deleteAll();
+        usersRepository.deleteAll();
+    }
+
+    private int linksTo(String url) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM links WHERE original_url = ?", Integer.class, url);
+    }
+
+    @Test
+    void createLink_repeated_createdThenOkWithSameLink() throws Exception {
+        String body = "{\"url\":\"https://example.com/repeat\",\"clickLimit\":10}";
+
+        String first = mockMvc.perform(post("/api/links").header("Authorization", userId)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String second = mockMvc.perform(post("/api/links").header("Authorization", userId)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Compared by code: the first response carries createdAt at nanosecond precision, the stored one has micros
+        assertEquals(JsonPath.<String>read(first, "$.shortCode"), JsonPath.read(second, "$.shortCode"));
+        assertEquals(1, linksTo("https://example.com/repeat"));
+    }
+
+    @Test
+    void createLink_differentClickLimit_isConflict() throws Exception {
+        mockMvc.perform(post("/api/links").header("Authorization", userId)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"url\":\"https://example.com/limit\",\"clickLimit\":10}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/links").header("Authorization", userId)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"url\":\"https://example.com/limit\",\"clickLimit\":20}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").isNotEmpty());
+        // Without a limit the request does not ask for anything the link lacks
+        mockMvc.perform(post("/api/links").header("Authorization", userId)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"url\":\"https://example.com/limit\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.clickLimit").value(10));
+    }
+
+    @Test
+    void createShortLink_concurrentSameUrl_oneLinkForAll() throws Exception {
+        String url = "https://example.com/race";
+        // Only the link is raced here, not the creation of its user
+        User user = new User();
+        user.setId(userId);
+        usersRepository.save(user);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return linksService.createShortLink(userId, url, null).link().getShortCode();
+            }));
+        }
+        start.countDown();
+        Set<String> codes = new HashSet<>();
+        for (Future<String> future : futures) {
+            codes.add(future.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, codes.size());
+        assertEquals(1, linksTo(url));
+    }
+
+    @Test
+    void createShortLink_previousLinkExhausted_newLinkTakesOverKey() {
+        String url = "https://example.com/exhausted";
+        String first = linksService.createShortLink(userId, url, 1).link().getShortCode();
+        linksService.click(first);
+
+        String second = linksService.createShortLink(userId, url, 1).link().getShortCode();
+
+        assertNotEquals(first, second);
+        assertNull(jdbcTemplate.queryForObject("SELECT idempotency_key FROM links WHERE short_code = ?", Long.class, first));
+        assertNotNull(jdbcTemplate.queryForObject("SELECT idempotency_key FROM links WHERE short_code = ?", Long.class, second));
+    }
+}
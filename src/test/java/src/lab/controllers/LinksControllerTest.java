@@ -1,11 +1,14 @@
 package src.lab.controllers;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
@@ -13,6 +16,9 @@ import src.lab.db.models.Link;
 import src.lab.db.models.User;
 import src.lab.db.repositories.LinksRepository;
 import src.lab.db.repositories.UsersRepository;
+import src.lab.infra.RedirectFilter;
+import src.lab.infra.cache.LinkCache;
+import src.lab.infra.cache.NegativeLinkCache;
 
 import java.time.LocalDateTime;
 
@@ -35,15 +41,29 @@ class LinksControllerTest {
     @Autowired
     private UsersRepository usersRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LinkCache linkCache;
+
+    @Autowired
+    private NegativeLinkCache negativeLinkCache;
+
+    @Autowired
+    private RedirectFilter redirectFilter;
+
     private String userId1;
     private String userId2;
 
     @BeforeEach
     void setUp() {
-        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).addFilters(redirectFilter).build();
 
         linkRepository.deleteAll();
         usersRepository.deleteAll();
+        linkCache.invalidateAll();
+        negativeLinkCache.clearTombstones();
 
         userId1 = "550e8400-e29b-41d4-a716-446655440000";
         userId2 = "550e8400-e29b-41d4-a716-446655440001";
@@ -121,6 +141,36 @@ class LinksControllerTest {
         assert !shortCode1.equals(shortCode2);
     }
 
+    @Test
+    void createLinks_mixedBatch_reportsEachItem() throws Exception {
+        mockMvc.perform(post("/api/links/batch")
+                        .header("Authorization", userId1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"links\":[{\"url\":\"https://example.com/1\",\"clickLimit\":5},"
+                                + "{\"url\":\"not-a-url\"},{\"url\":\"https://example.com/2\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[0].link.clickLimit").value(5))
+                .andExpect(jsonPath("$[1].link").doesNotExist())
+                .andExpect(jsonPath("$[1].error", containsString("URL must start with")))
+                .andExpect(jsonPath("$[2].link.shortCode").isNotEmpty());
+
+        mockMvc.perform(get("/api/links")
+                        .header("Authorization", userId1))
+                .andExpect(jsonPath("$.links", hasSize(2)));
+    }
+
+    @Test
+    void createLinks_emptyBatch_returnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/links/batch")
+                        .header("Authorization", userId1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"links\":[]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Links cannot be empty"));
+    }
+
     @Test
     void getUserLinks_returnsAllUserLinks() throws Exception {
         createTestLink(userId1, "code1", "https://example.com/1");
@@ -130,8 +180,60 @@ class LinksControllerTest {
         mockMvc.perform(get("/api/links")
                         .header("Authorization", userId1))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(2)))
-                .andExpect(jsonPath("$[*].shortCode", containsInAnyOrder("code1", "code2")));
+                .andExpect(jsonPath("$.links", hasSize(2)))
+                .andExpect(jsonPath("$.links[*].shortCode", containsInAnyOrder("code1", "code2")))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+    }
+
+    @Test
+    void getUserLinks_withLimit_pagesThroughCursor() throws Exception {
+        createTestLink(userId1, "code1", "https://example.com/1");
+        createTestLink(userId1, "code2", "https://example.com/2");
+        createTestLink(userId1, "code3", "https://example.com/3");
+
+        String firstPage = mockMvc.perform(get("/api/links").param("limit", "2")
+                        .header("Authorization", userId1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.links[*].shortCode", contains("code1", "code2")))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(firstPage, "$.nextCursor");
+
+        mockMvc.perform(get("/api/links").param("limit", "2").param("cursor", cursor)
+                        .header("Authorization", userId1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.links[*].shortCode", contains("code3")))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+    }
+
+    @Test
+    void getUserLinks_invalidCursor_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/links").param("cursor", "not-a-cursor")
+                        .header("Authorization", userId1))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", containsString("Invalid page cursor")));
+    }
+
+    @Test
+    void exportLinks_csv_streamsAttachment() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/links/export").param("format", "csv")
+                        .header("Authorization", userId1))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", containsString("links.csv")))
+                .andExpect(content().string(startsWith("short_code,original_url,")));
+    }
+
+    @Test
+    void exportLinks_unknownFormat_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/links/export").param("format", "xml")
+                        .header("Authorization", userId1))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unsupported export format: xml"));
     }
 
     @Test
@@ -226,8 +328,9 @@ class LinksControllerTest {
     void redirect_clickLimitReached_returnsGone() throws Exception {
         Link link = createTestLink(userId1, "abc123", "https://example.com");
         link.setClickLimit(2);
-        link.setClickCount(2);
-        linkRepository.save(link);
+        linkRepository.saveAndFlush(link);
+        // click_count is written by SQL only
+        jdbcTemplate.update("UPDATE links SET click_count = 2 WHERE id = ?", link.getId());
 
         mockMvc.perform(get("/api/links/abc123/redirect"))
                 .andExpect(status().isGone())
@@ -252,6 +355,37 @@ class LinksControllerTest {
                 .andExpect(jsonPath("$.error", containsString("Link not found")));
     }
 
+    @Test
+    void shortUrl_validLink_redirectsWithLocation() throws Exception {
+        createTestLink(userId1, "abc123", "https://example.com");
+
+        mockMvc.perform(get("/abc123"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", "https://example.com"));
+
+        mockMvc.perform(get("/api/links/abc123")
+                        .header("Authorization", userId1))
+                .andExpect(jsonPath("$.clickCount").value(1));
+    }
+
+    @Test
+    void shortUrl_expiredLink_returnsGone() throws Exception {
+        Link link = createTestLink(userId1, "abc123", "https://example.com");
+        link.setExpiresAt(LocalDateTime.now().minusHours(1));
+        linkRepository.save(link);
+
+        mockMvc.perform(get("/abc123"))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.error").value("Link has expired"));
+    }
+
+    @Test
+    void shortUrl_notFound_returnsNotFound() throws Exception {
+        mockMvc.perform(get("/nonexistent"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Link not found"));
+    }
+
     private Link createTestLink(String userId, String shortCode, String url) {
         User user = usersRepository.findById(userId).orElseGet(() -> {
             User u = new User();
@@ -0,0 +1,182 @@
+package src.lab.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import src.lab.schemas.LinkResponse;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive-links",
+        "app.reactive.r2dbc-url=r2dbc:h2:mem:///reactive-links"
+})
+@ActiveProfiles("reactive")
+class ReactiveLinksControllerTest {
+
+    private static final String USER_1 = "550e8400-e29b-41d4-a716-446655440000";
+    private static final String USER_2 = "550e8400-e29b-41d4-a716-446655440001";
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToApplicationContext(applicationContext).build();
+
+        databaseClient.sql("DELETE FROM links").then().block();
+        databaseClient.sql("DELETE FROM users").then().block();
+    }
+
+    private String createLink(String userId, int clickLimit) {
+        return webTestClient.post().uri("/api/links")
+                .header("Authorization", userId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"url\":\"https://example.com\",\"clickLimit\":" + clickLimit + "}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(LinkResponse.class)
+                .returnResult()
+                .getResponseBody()
+                .getShortCode();
+    }
+
+    @Test
+    void createLink_validRequest_returnsCreated() {
+        webTestClient.post().uri("/api/links")
+                .header("Authorization", USER_1)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"url\":\"https://example.com\",\"clickLimit\":10}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.shortCode").isNotEmpty()
+                .jsonPath("$.clickLimit").isEqualTo(10)
+                .jsonPath("$.clickCount").isEqualTo(0)
+                .jsonPath("$.active").isEqualTo(true);
+    }
+
+    @Test
+    void createLink_invalidUrl_returnsBadRequest() {
+        webTestClient.post().uri("/api/links")
+                .header("Authorization", USER_1)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"url\":\"ftp://example.com\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("URL must start with http:// or https://");
+    }
+
+    @Test
+    void createLink_withoutAuthorization_returnsUnauthorized() {
+        webTestClient.post().uri("/api/links")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"url\":\"https://example.com\"}")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void getUserLinks_returnsOnlyOwnLinks() {
+        createLink(USER_1, 10);
+
+        webTestClient.get().uri("/api/links")
+                .header("Authorization", USER_2)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.links.length()").isEqualTo(0)
+                .jsonPath("$.nextCursor").doesNotExist();
+    }
+
+    @Test
+    void updateLink_otherUser_returnsForbidden() {
+        String shortCode = createLink(USER_1, 10);
+
+        webTestClient.patch().uri("/api/links/" + shortCode)
+                .header("Authorization", USER_2)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"clickLimit\":50}")
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Test
+    void updateLink_owner_changesClickLimit() {
+        String shortCode = createLink(USER_1, 10);
+
+        webTestClient.patch().uri("/api/links/" + shortCode)
+                .header("Authorization", USER_1)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"clickLimit\":50}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.clickLimit").isEqualTo(50);
+    }
+
+    @Test
+    void deleteLink_owner_returnsNoContent() {
+        String shortCode = createLink(USER_1, 10);
+
+        webTestClient.delete().uri("/api/links/" + shortCode)
+                .header("Authorization", USER_1)
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri("/api/links/" + shortCode)
+                .header("Authorization", USER_1)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shortUrl_validLink_redirectsAndCountsClick() {
+        String shortCode = createLink(USER_1, 10);
+
+        webTestClient.get().uri("/" + shortCode)
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().valueEquals("Location", "https://example.com");
+
+        webTestClient.get().uri("/api/links/" + shortCode)
+                .header("Authorization", USER_1)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.clickCount").isEqualTo(1);
+    }
+
+    @Test
+    void redirect_clickLimitReached_returnsGone() {
+        String shortCode = createLink(USER_1, 1);
+
+        webTestClient.get().uri("/api/links/" + shortCode + "/redirect")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.url").isEqualTo("https://example.com");
+
+        webTestClient.get().uri("/api/links/" + shortCode + "/redirect")
+                .exchange()
+                .expectStatus().isEqualTo(410);
+    }
+
+    @Test
+    void shortUrl_notFound_returnsNotFound() {
+        webTestClient.get().uri("/nonexistent")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Link not found");
+    }
+}
@@ -0,0 +1,284 @@
+package src.lab.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import src.lab.db.models.Link;
+import src.lab.db.models.User;
+import src.lab.db.repositories.LinksRepository;
+import src.lab.db.repositories.UsersRepository;
+import src.lab.infra.RedirectFilter;
+import src.lab.infra.cache.LinkCache;
+import src.lab.infra.cache.NegativeLinkCache;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Exact number of SQL statements each endpoint sends. The DataSource is wrapped so that every statement
+// prepared or executed on the request thread is recorded; sequence fetches depend on the id block and are left out.
+// Only the "dataSource" bean is wrapped. With sharding and replicas off, as here, it is the only one; with them on,
+// statements routed through it still count, but those sent straight to shardRouter.dataSource(n) do not
+@SpringBootTest
+@Import(StatementCountTest.CountingDataSourceConfig.class)
+class StatementCountTest {
+
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+    private static volatile Thread recording;
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private LinksRepository linkRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private LinkCache linkCache;
+
+    @Autowired
+    private NegativeLinkCache negativeLinkCache;
+
+    @Autowired
+    private RedirectFilter redirectFilter;
+
+    private final String userId = "550e8400-e29b-41d4-a716-446655440000";
+    private final String otherUserId = "550e8400-e29b-41d4-a716-446655440001";
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).addFilters(redirectFilter).build();
+        linkCache.invalidateAll();
+        negativeLinkCache.clearTombstones();
+
+        User user = new User();
+        user.setId(userId);
+        user = usersRepository.save(user);
+        createLink(user, "cnt001", 10, 0);
+        createLink(user, "cnt002", 10, 0);
+        createLink(user, "cnt003", 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        recording = null;
+        linkRepository.deleteAll();
+        usersRepository.deleteAll();
+    }
+
+    private void createLink(User user, String shortCode, int clickLimit, int clickCount) {
+        Link link = new Link();
+        link.setShortCode(shortCode);
+        link.setOriginalUrl("https://example.com/" + shortCode);
+        link.setUser(user);
+        link.setClickLimit(clickLimit);
+        link.setClickCount(clickCount);
+        link.setExpiresAt(LocalDateTime.now().plusHours(1));
+        linkRepository.save(link);
+    }
+
+    private List<String> statementsOf(Request request) throws Exception {
+        statements.clear();
+        recording = Thread.currentThread();
+        try {
+            request.perform();
+        } finally {
+            recording = null;
+        }
+        return List.copyOf(statements);
+    }
+
+    private static void assertNoUserReads(List<String> sql) {
+        assertTrue(sql.stream().noneMatch(statement -> statement.contains("users")), sql.toString());
+    }
+
+    @Test
+    void getLink_oneSelect() throws Exception {
+        List<String> sql = statementsOf(() -> mockMvc.perform(get("/api/links/cnt001").header("Authorization", userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.shortCode").value("cnt001")));
+
+        assertEquals(1, sql.size(), sql.toString());
+        assertNoUserReads(sql);
+    }
+
+    @Test
+    void getUserLinks_oneSelectPerPage() throws Exception {
+        List<String> sql = statementsOf(() -> mockMvc.perform(get("/api/links").param("limit", "2").header("Authorization", userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty()));
+
+        assertEquals(1, sql.size(), sql.toString());
+        assertNoUserReads(sql);
+    }
+
+    @Test
+    void redirect_oneUpdate() throws Exception {
+        List<String> sql = statementsOf(() -> mockMvc.perform(get("/cnt001"))
+                .andExpect(status().isFound()));
+
+        assertEquals(1, sql.size(), sql.toString());
+        assertNoUserReads(sql);
+    }
+
+    @Test
+    void redirect_limitReached_updateThenStateLookup() throws Exception {
+        List<String> sql = statementsOf(() -> mockMvc.perform(get("/cnt003"))
+                .andExpect(status().isGone()));
+
+        assertEquals(2, sql.size(), sql.toString());
+        assertNoUserReads(sql);
+    }
+
+    @Test
+    void redirect_unknownCode_updateThenStateLookup() throws Exception {
+        List<String> sql = statementsOf(() -> mockMvc.perform(get("/nosuch"))
+                .andExpect(status().isNotFound()));
+
+        assertEquals(2, sql.size(), sql.toString());
+    }
+
+    @Test
+    void redirect_unknownCodeAgain_noStatements() throws Exception {
+        mockMvc.perform(get("/nosuch")).andExpect(status().isNotFound());
+
+        List<String> sql = statementsOf(() -> mockMvc.perform(get("/nosuch"))
+                .andExpect(status().isNotFound()));
+
+        assertEquals(0, sql.size(), sql.toString());
+    }
+
+    @Test
+    void updateLink_selectThenUpdate() throws Exception {
+        List<String> sql = statementsOf(() -> mockMvc.perform(patch("/api/links/cnt001")
+                        .header("Authorization", userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"clickLimit\":20}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.clickLimit").value(20)));
+
+        assertEquals(2, sql.size(), sql.toString());
+        assertNoUserReads(sql);
+    }
+
+    @Test
+    void updateLink_otherUser_ownershipCheckedWithoutLoadingUser() throws Exception {
+        List<String> sql = statementsOf(() -> mockMvc.perform(patch("/api/links/cnt001")
+                        .header("Authorization", otherUserId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"clickLimit\":20}"))
+                .andExpect(status().isForbidden()));
+
+        assertEquals(1, sql.size(), sql.toString());
+        assertNoUserReads(sql);
+    }
+
+    @Test
+    void deleteLink_selectThenDelete() throws Exception {
+        List<String> sql = statementsOf(() -> mockMvc.perform(delete("/api/links/cnt002").header("Authorization", userId))
+                .andExpect(status().isNoContent()));
+
+        assertEquals(2, sql.size(), sql.toString());
+        assertNoUserReads(sql);
+    }
+
+    private interface Request {
+        void perform() throws Exception;
+    }
+
+    @TestConfiguration
+    static class CountingDataSourceConfig {
+
+        // Shard and replica DataSources are built by their routers, not registered as beans, so this is the only one
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && beanName.equals("dataSource")
+                            ? new CountingDataSource(dataSource)
+                            : bean;
+                }
+            };
+        }
+    }
+
+    private static class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(Connection.class, super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(Connection.class, super.getConnection(username, password));
+        }
+    }
+
+    // Records the SQL of prepareStatement/prepareCall on connections and of execute* on plain statements
+    @SuppressWarnings("unchecked")
+    private static <T> T counting(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                }
+            }
+            String name = method.getName();
+            boolean recorded = name.startsWith("prepare") || (type == Statement.class && name.startsWith("execute"));
+            if (recorded && args != null && args.length > 0 && args[0] instanceof String sql) {
+                record(sql);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return name.equals("createStatement") ? counting(Statement.class, (Statement) result) : result;
+        });
+    }
+
+    private static void record(String sql) {
+        String normalized = sql.toLowerCase(Locale.ROOT);
+        if (Thread.currentThread() == recording && !normalized.contains("next value for")) {
+            statements.add(normalized);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package src.lab.db.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.Link;
+import src.lab.db.models.User;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.LinksService;
+import src.lab.services.impl.LeasedClickCounter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class LinkClickConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int CLICKS_PER_THREAD = 50;
+
+    @Autowired
+    private LinksRepository linkRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LinksService linksService;
+
+    @BeforeEach
+    void setUp() {
+        linkRepository.deleteAll();
+        usersRepository.deleteAll();
+
+        User user = new User();
+        user.setId("user1");
+        usersRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        linkRepository.deleteAll();
+        usersRepository.deleteAll();
+    }
+
+    @Test
+    void registerClick_highParallelism_countsEveryClick() throws Exception {
+        createLink("hot001", Integer.MAX_VALUE);
+
+        int recorded = clickConcurrently("hot001");
+
+        assertEquals(THREADS * CLICKS_PER_THREAD, recorded);
+        assertEquals(THREADS * CLICKS_PER_THREAD, linkRepository.findByShortCode("hot001").orElseThrow().getClickCount());
+    }
+
+    @Test
+    void registerClick_highParallelism_neverExceedsLimit() throws Exception {
+        createLink("hot002", 1000);
+
+        int recorded = clickConcurrently("hot002");
+
+        assertEquals(1000, recorded);
+        assertEquals(1000, linkRepository.findByShortCode("hot002").orElseThrow().getClickCount());
+    }
+
+    @Test
+    void leasedCounters_severalInstances_neverExceedLimit() throws Exception {
+        createLink("hot003", 1000);
+        AppConfig config = new AppConfig();
+        config.getLink().getClicks().setLeaseSize(64);
+        config.getLink().getClicks().setLeaseSeconds(30);
+        List<LeasedClickCounter> instances = List.of(
+                new LeasedClickCounter(linkRepository, transactionManager, config),
+                new LeasedClickCounter(linkRepository, transactionManager, config),
+                new LeasedClickCounter(linkRepository, transactionManager, config));
+        AtomicInteger next = new AtomicInteger();
+
+        int recorded = clickConcurrently(() -> instances.get(next.getAndIncrement() % instances.size()).record("hot003").outcome());
+        instances.forEach(LeasedClickCounter::shutdown);
+
+        Link link = linkRepository.findByShortCode("hot003").orElseThrow();
+        assertEquals(1000, recorded);
+        assertEquals(1000, link.getClickCount());
+        assertEquals(0, link.getReservedClicks());
+    }
+
+    @Test
+    void updateLink_concurrentWithClicksAndLeases_losesNoCount() throws Exception {
+        createLink("hot004", 1000);
+        AppConfig config = new AppConfig();
+        config.getLink().getClicks().setLeaseSize(16);
+        config.getLink().getClicks().setLeaseSeconds(30);
+        LeasedClickCounter leased = new LeasedClickCounter(linkRepository, transactionManager, config);
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean clicking = new AtomicBoolean(true);
+
+        // Keeps re-saving the same limit, so every flush would write back whatever counts it read
+        ExecutorService patcher = Executors.newSingleThreadExecutor();
+        Future<?> patches = patcher.submit(() -> {
+            while (clicking.get()) {
+                linksService.updateLink("hot004", "user1", 1000);
+            }
+        });
+
+        int recorded = clickConcurrently(() -> next.getAndIncrement() % 2 == 0
+                ? leased.record("hot004").outcome()
+                : linkRepository.registerClick("hot004", LocalDateTime.now()).outcome());
+        clicking.set(false);
+        patches.get();
+        patcher.shutdown();
+        leased.shutdown();
+
+        Link link = linkRepository.findByShortCode("hot004").orElseThrow();
+        assertEquals(1000, recorded);
+        assertEquals(1000, link.getClickCount());
+        assertEquals(0, link.getReservedClicks());
+    }
+
+    private int clickConcurrently(String shortCode) throws Exception {
+        return clickConcurrently(() -> linkRepository.registerClick(shortCode, LocalDateTime.now()).outcome());
+    }
+
+    private int clickConcurrently(Supplier<ClickOutcome> click) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger recorded = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < CLICKS_PER_THREAD; j++) {
+                    if (click.get() == ClickOutcome.RECORDED) {
+                        recorded.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return recorded.get();
+    }
+
+    private void createLink(String shortCode, int clickLimit) {
+        Link link = new Link();
+        link.setShortCode(shortCode);
+        link.setOriginalUrl("https://example.com");
+        link.setUser(usersRepository.findById("user1").orElseThrow());
+        link.setClickLimit(clickLimit);
+        link.setExpiresAt(LocalDateTime.now().plusHours(24));
+        linkRepository.save(link);
+    }
+}
@@ -4,13 +4,21 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.ClickResult;
 import src.lab.db.models.Link;
+import src.lab.db.models.LinkExport;
+import src.lab.db.models.LinkView;
+import src.lab.db.models.QuotaGrant;
 import src.lab.db.models.User;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,6 +32,9 @@ class LinkRepositoryTest {
     @Autowired
     private UsersRepository usersRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private User testUser;
 
     @BeforeEach
@@ -51,38 +62,227 @@ class LinkRepositoryTest {
     }
 
     @Test
-    void findByUserId_returnsUserLinks() {
+    void findViewsByUserIdAfter_differentUser_returnsEmpty() {
         createLink("abc1", "https://example.com/1");
-        createLink("abc2", "https://example.com/2");
 
-        List<Link> results = linkRepository.findByUserId("user1");
+        List<LinkView> results = linkRepository.findViewsByUserIdAfter("user2", 0L, Limit.of(10));
+
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    void findViewsByUserIdAfter_returnsNextPageInIdOrder() {
+        Link first = createLink("abc1", "https://example.com/1");
+        Link second = createLink("abc2", "https://example.com/2");
+        Link third = createLink("abc3", "https://example.com/3");
+
+        List<LinkView> results = linkRepository.findViewsByUserIdAfter("user1", first.getId(), Limit.of(1));
+
+        assertEquals(List.of(second.getId()), results.stream().map(LinkView::id).toList());
+        assertEquals("user1", results.get(0).userId());
+        assertTrue(third.getId() > second.getId());
+    }
+
+    @Test
+    void findViewByShortCode_existingCode_returnsView() {
+        createLink("abc123", "https://example.com");
+
+        Optional<LinkView> result = linkRepository.findViewByShortCode("abc123");
 
-        assertEquals(2, results.size());
+        assertTrue(result.isPresent());
+        assertEquals("https://example.com", result.get().originalUrl());
+        assertEquals("user1", result.get().userId());
+        assertTrue(linkRepository.findViewByShortCode("xyz").isEmpty());
     }
 
     @Test
-    void findByUserId_differentUser_returnsEmpty() {
+    void streamByUserId_streamsOwnLinksInIdOrder() {
         createLink("abc1", "https://example.com/1");
+        createLink("abc2", "https://example.com/2");
 
-        List<Link> results = linkRepository.findByUserId("user2");
+        List<String> codes;
+        try (Stream<LinkExport> rows = linkRepository.streamByUserId("user1")) {
+            codes = rows.map(LinkExport::shortCode).toList();
+        }
 
-        assertTrue(results.isEmpty());
+        assertEquals(List.of("abc1", "abc2"), codes);
+        try (Stream<LinkExport> rows = linkRepository.streamByUserId("user2")) {
+            assertEquals(0, rows.count());
+        }
+    }
+
+    @Test
+    void deleteExpired_removesAtMostLimitExpiredLinks() {
+        for (int i = 0; i < 3; i++) {
+            Link expired = createLink("exp" + i, "https://example.com/exp" + i);
+            expired.setExpiresAt(LocalDateTime.now().minusHours(1));
+        }
+        createLink("live", "https://example.com/live");
+        linkRepository.flush();
+
+        List<String> first = linkRepository.deleteExpired(LocalDateTime.now(), 2);
+        List<String> second = linkRepository.deleteExpired(LocalDateTime.now(), 2);
+
+        assertEquals(2, first.size());
+        assertEquals(1, second.size());
+        assertTrue(linkRepository.findByShortCode("live").isPresent());
+        assertEquals(List.of("live"), linkRepository.findAll().stream().map(Link::getShortCode).toList());
     }
 
     @Test
-    void findByExpiresAtBefore_returnsExpiredLinks() {
-        Link expiredLink = createLink("exp1", "https://example.com/exp");
-        expiredLink.setExpiresAt(LocalDateTime.now().minusHours(1));
-        linkRepository.save(expiredLink);
+    void registerClick_activeLink_incrementsAndReturnsUrl() {
+        createLink("abc123", "https://example.com");
 
-        Link activeLink = createLink("act1", "https://example.com/act");
-        activeLink.setExpiresAt(LocalDateTime.now().plusHours(1));
-        linkRepository.save(activeLink);
+        ClickResult result = linkRepository.registerClick("abc123", LocalDateTime.now());
+
+        assertEquals(ClickOutcome.RECORDED, result.outcome());
+        assertEquals("https://example.com", result.link().originalUrl());
+        assertEquals(1, result.link().clickCount());
+        assertEquals(1, linkRepository.findByShortCode("abc123").orElseThrow().getClickCount());
+    }
+
+    @Test
+    void registerClick_limitReached_doesNotIncrement() {
+        Link link = createLink("abc123", "https://example.com");
+        setClickCount(link, 10);
+
+        ClickResult result = linkRepository.registerClick("abc123", LocalDateTime.now());
+
+        assertEquals(ClickOutcome.LIMIT_REACHED, result.outcome());
+        assertEquals(10, linkRepository.findByShortCode("abc123").orElseThrow().getClickCount());
+    }
+
+    @Test
+    void registerClick_expiredLink_returnsExpired() {
+        Link link = createLink("abc123", "https://example.com");
+        link.setExpiresAt(LocalDateTime.now().minusHours(1));
+        linkRepository.save(link);
+
+        ClickResult result = linkRepository.registerClick("abc123", LocalDateTime.now());
+
+        assertEquals(ClickOutcome.EXPIRED, result.outcome());
+        assertEquals(0, linkRepository.findByShortCode("abc123").orElseThrow().getClickCount());
+    }
+
+    @Test
+    void registerClick_unknownCode_returnsNotFound() {
+        ClickResult result = linkRepository.registerClick("xyz", LocalDateTime.now());
+
+        assertEquals(ClickOutcome.NOT_FOUND, result.outcome());
+    }
+
+    @Test
+    void reserveClicks_grantsAtMostRemainingQuota() {
+        Link link = createLink("abc123", "https://example.com");
+        setClickCount(link, 7);
 
-        List<Link> expired = linkRepository.findByExpiresAtBefore(LocalDateTime.now());
+        QuotaGrant grant = linkRepository.reserveClicks("abc123", 100, LocalDateTime.now(), "node-a", LocalDateTime.now().plusMinutes(1));
+
+        assertTrue(grant.isGranted());
+        assertEquals(3, grant.clicks());
+        assertEquals(3, linkRepository.findByShortCode("abc123").orElseThrow().getReservedClicks());
+    }
+
+    @Test
+    void reserveClicks_quotaFullyReserved_isRefusedAsReservedNotExhausted() {
+        createLink("abc123", "https://example.com");
+        linkRepository.reserveClicks("abc123", 10, LocalDateTime.now(), "node-a", LocalDateTime.now().plusMinutes(1));
+
+        QuotaGrant grant = linkRepository.reserveClicks("abc123", 10, LocalDateTime.now(), "node-a", LocalDateTime.now().plusMinutes(1));
+
+        assertFalse(grant.isGranted());
+        assertEquals(ClickOutcome.QUOTA_RESERVED, grant.outcome());
+        assertEquals(ClickOutcome.QUOTA_RESERVED, linkRepository.registerClick("abc123", LocalDateTime.now()).outcome());
+    }
+
+    @Test
+    void reserveClicks_quotaUsedUp_isRefusedAsLimitReached() {
+        Link link = createLink("abc123", "https://example.com");
+        QuotaGrant all = linkRepository.reserveClicks("abc123", 10, LocalDateTime.now(), "node-a", LocalDateTime.now().plusMinutes(1));
+        linkRepository.settleClicks(link.getId(), all.clicks(), all.clicks(), "node-a");
+
+        QuotaGrant grant = linkRepository.reserveClicks("abc123", 10, LocalDateTime.now(), "node-a", LocalDateTime.now().plusMinutes(1));
+
+        assertEquals(ClickOutcome.LIMIT_REACHED, grant.outcome());
+    }
+
+    @Test
+    void settleClicks_countsUsedAndReturnsReservation() {
+        Link link = createLink("abc123", "https://example.com");
+        QuotaGrant grant = linkRepository.reserveClicks("abc123", 5, LocalDateTime.now(), "node-a", LocalDateTime.now().plusMinutes(1));
+
+        assertTrue(linkRepository.settleClicks(link.getId(), 2, grant.clicks(), "node-a"));
+
+        Link settled = linkRepository.findByShortCode("abc123").orElseThrow();
+        assertEquals(2, settled.getClickCount());
+        assertEquals(0, settled.getReservedClicks());
+        assertEquals(0, linkRepository.reclaimExpiredLeases(LocalDateTime.now().plusHours(1), 10));
+    }
+
+    @Test
+    void reclaimExpiredLeases_ownerNeverSettled_countsItsQuotaAsClicked() {
+        createLink("abc123", "https://example.com");
+        LocalDateTime now = LocalDateTime.now();
+        linkRepository.reserveClicks("abc123", 4, now, "crashed", now.plusSeconds(90));
+        linkRepository.reserveClicks("abc123", 3, now, "alive", now.plusSeconds(300));
+
+        assertEquals(0, linkRepository.reclaimExpiredLeases(now.plusSeconds(60), 10));
+        assertEquals(1, linkRepository.reclaimExpiredLeases(now.plusSeconds(120), 10));
+
+        Link reclaimed = linkRepository.findByShortCode("abc123").orElseThrow();
+        assertEquals(4, reclaimed.getClickCount());
+        assertEquals(3, reclaimed.getReservedClicks());
+    }
+
+    @Test
+    void settleClicks_leaseAlreadyReclaimed_addsNothing() {
+        Link link = createLink("abc123", "https://example.com");
+        LocalDateTime now = LocalDateTime.now();
+        QuotaGrant grant = linkRepository.reserveClicks("abc123", 5, now, "stalled", now.plusSeconds(90));
+        linkRepository.reclaimExpiredLeases(now.plusSeconds(120), 10);
+
+        assertFalse(linkRepository.settleClicks(link.getId(), 2, grant.clicks(), "stalled"));
+
+        Link settled = linkRepository.findByShortCode("abc123").orElseThrow();
+        assertEquals(5, settled.getClickCount());
+        assertEquals(0, settled.getReservedClicks());
+    }
+
+    @Test
+    void settleClicks_lateSettleAfterReclaimAndRegrant_neverPassesLimit() {
+        Link link = createLink("abc123", "https://example.com");
+        LocalDateTime now = LocalDateTime.now();
+        QuotaGrant stalled = linkRepository.reserveClicks("abc123", 6, now, "stalled", now.plusSeconds(90));
+        linkRepository.reclaimExpiredLeases(now.plusSeconds(120), 10);
+        QuotaGrant rest = linkRepository.reserveClicks("abc123", 10, now, "node-a", now.plusSeconds(300));
+        assertEquals(4, rest.clicks());
+
+        // The stalled instance served all of its lease, the other one all of the rest
+        linkRepository.settleClicks(link.getId(), stalled.clicks(), stalled.clicks(), "stalled");
+        linkRepository.settleClicks(link.getId(), rest.clicks(), rest.clicks(), "node-a");
+
+        Link settled = linkRepository.findByShortCode("abc123").orElseThrow();
+        assertEquals(10, settled.getClickCount());
+        assertEquals(0, settled.getReservedClicks());
+        assertEquals(ClickOutcome.LIMIT_REACHED, linkRepository.registerClick("abc123", now).outcome());
+    }
+
+    @Test
+    void reclaimExpiredLeases_limitLoweredSinceGrant_capsAtLimit() {
+        Link link = createLink("abc123", "https://example.com");
+        LocalDateTime now = LocalDateTime.now();
+        linkRepository.reserveClicks("abc123", 8, now, "crashed", now.plusSeconds(90));
+        jdbcTemplate.update("UPDATE links SET click_limit = 5 WHERE id = ?", link.getId());
+
+        linkRepository.reclaimExpiredLeases(now.plusSeconds(120), 10);
+
+        assertEquals(5, linkRepository.findByShortCode("abc123").orElseThrow().getClickCount());
+    }
 
-        assertEquals(1, expired.size());
-        assertEquals("exp1", expired.get(0).getShortCode());
+    // click_count is written by SQL only, so the entity cannot set it after the insert
+    private void setClickCount(Link link, int clickCount) {
+        linkRepository.flush();
+        jdbcTemplate.update("UPDATE links SET click_count = ? WHERE id = ?", clickCount, link.getId());
     }
 
     private Link createLink(String shortCode, String url) {
@@ -0,0 +1,139 @@
+package src.lab.db.repositories;
+
+import org.flywaydb.core.Flyway;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import src.lab.db.models.LinkExport;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// EXPLAIN over the statements the application sends: the SQL Hibernate generates for the repository queries,
+// caught by a statement inspector, and the hand-written statements of LinksRepositoryImpl
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=src.lab.db.repositories.QueryPlanTest$CapturingInspector")
+@Transactional
+class QueryPlanTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LinksRepository linkRepository;
+
+    @Autowired
+    private Flyway flyway;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO users (id, created_at) VALUES ('user1', ?), ('user2', ?)", now, now);
+
+        // Enough rows that a scan is never the cheaper plan
+        List<Object[]> links = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            links.add(new Object[]{"code" + i, "https://example.com/" + i, i % 2 == 0 ? "user1" : "user2", now, now.plusMinutes(i)});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO links (id, short_code, original_url, user_id, click_limit, created_at, expires_at)
+                VALUES (NEXT VALUE FOR links_seq, ?, ?, ?, 100, ?, ?)""", links);
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    // The one statement Hibernate sent for query
+    private static String captured(Runnable query) {
+        CapturingInspector.statements.clear();
+        query.run();
+        assertEquals(1, CapturingInspector.statements.size(), CapturingInspector.statements.toString());
+        return CapturingInspector.statements.get(0);
+    }
+
+    // The data change a delta-table query runs: SELECT ... FROM FINAL TABLE (UPDATE ...) -> UPDATE ...
+    private static String dataChange(String sql) {
+        return sql.substring(sql.indexOf("TABLE (") + "TABLE (".length(), sql.lastIndexOf(')'));
+    }
+
+    private String explain(String sql, Object... args) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args).toUpperCase();
+    }
+
+    @Test
+    void migrations_allApplied() {
+        assertEquals(0, flyway.info().pending().length);
+    }
+
+    @Test
+    void lookupByCode_usesShortCodeIndex() {
+        String view = captured(() -> linkRepository.findViewByShortCode("code42"));
+        String state = captured(() -> linkRepository.findStateByShortCode("code42"));
+
+        for (String sql : Set.of(view, state)) {
+            String plan = explain(sql, "code42");
+            assertTrue(plan.contains("UK_LINKS_SHORT_CODE"), plan);
+        }
+    }
+
+    @Test
+    void redirectClick_usesShortCodeIndex() {
+        String plan = explain(dataChange(LinksRepositoryImpl.REGISTER_CLICK_SQL), "code42", LocalDateTime.now());
+
+        assertTrue(plan.contains("UK_LINKS_SHORT_CODE"), plan);
+    }
+
+    @Test
+    void keysetPage_usesUserIdIndex() {
+        String sql = captured(() -> linkRepository.findViewsByUserIdAfter("user1", 100L, Limit.of(101)));
+
+        String plan = explain(sql, "user1", 100L, 101);
+        assertTrue(plan.contains("IDX_LINKS_USER_ID"), plan);
+        assertFalse(plan.contains("TABLESCAN"), plan);
+    }
+
+    @Test
+    void export_usesUserIndex() {
+        String sql = captured(() -> {
+            try (Stream<LinkExport> rows = linkRepository.streamByUserId("user1")) {
+                rows.findFirst();
+            }
+        });
+
+        String plan = explain(sql, "user1");
+        assertTrue(plan.contains("IDX_LINKS_USER_"), plan);
+        assertFalse(plan.contains("TABLESCAN"), plan);
+    }
+
+    @Test
+    void idempotentLookup_usesUserUrlHashIndex() {
+        String sql = captured(() -> linkRepository.findByUserIdAndUrlHashIn("user1", List.of(1L, 2L, 3L)));
+
+        String plan = explain(sql, "user1", 1L, 2L, 3L);
+        assertTrue(plan.contains("IDX_LINKS_USER_URL_HASH"), plan);
+    }
+
+    @Test
+    void cleanupChunk_usesExpiresAtIndex() {
+        String plan = explain(dataChange(LinksRepositoryImpl.DELETE_EXPIRED_SQL), LocalDateTime.of(2000, 1, 1, 0, 0), 1000);
+
+        assertTrue(plan.contains("IDX_LINKS_EXPIRES_AT"), plan);
+    }
+}
@@ -0,0 +1,239 @@
+package src.lab.db.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import src.lab.infra.settings.AppConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClickJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private static final String DATASOURCE_URL = "jdbc:h2:file:./data/lab";
+
+    private static AppConfig config(Path directory, int segmentBytes) {
+        AppConfig config = new AppConfig();
+        AppConfig.JournalConfig journal = config.getLink().getClicks().getJournal();
+        journal.setEnabled(true);
+        journal.setPath(directory.toString());
+        journal.setSegmentBytes(segmentBytes);
+        journal.setNodeId("local");
+        return config;
+    }
+
+    // Construction and the ApplicationReadyEvent that follows it
+    private ClickJournal open(int segmentBytes) {
+        ClickJournal journal = new ClickJournal(jdbcTemplate, transactionManager, config(directory, segmentBytes), DATASOURCE_URL);
+        journal.recover();
+        return journal;
+    }
+
+    private void checkpointAt(long position) {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("local"))).thenReturn(position);
+    }
+
+    private static boolean replayed(List<Object[]> args, long delta, long linkId, String shortCode) {
+        return args.stream().anyMatch(row -> row[0].equals(delta) && row[1].equals(linkId) && row[2].equals(shortCode));
+    }
+
+    @Test
+    void enabled_withoutNodeId_isRejected() {
+        AppConfig config = new AppConfig();
+        config.getLink().getClicks().getJournal().setEnabled(true);
+        config.getLink().getClicks().getJournal().setPath(directory.toString());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new ClickJournal(jdbcTemplate, transactionManager, config, DATASOURCE_URL));
+        assertTrue(e.getMessage().contains("node-id"));
+    }
+
+    @Test
+    void enabled_withInMemoryDatabase_isRejected() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new ClickJournal(jdbcTemplate, transactionManager, config(directory, 4096), "jdbc:h2:mem:urlshortener"));
+        assertTrue(e.getMessage().contains("persistent"));
+    }
+
+    @Test
+    void recover_replaysUnappliedClicks() {
+        ClickJournal journal = open(4096);
+        journal.append("abc123", 1L, 1, System.currentTimeMillis());
+        journal.append("abc123", 1L, 1, System.currentTimeMillis());
+        journal.append("xyz789", 2L, 1, System.currentTimeMillis());
+        long end = journal.append("abc123", 1L, 1, System.currentTimeMillis());
+
+        ClickJournal reopened = open(4096);
+
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE links"), argThat((List<Object[]> args) ->
+                args.size() == 2 && replayed(args, 3L, 1L, "abc123") && replayed(args, 1L, 2L, "xyz789")));
+        // The checkpoint moves past the replayed segment to the start of the new one
+        assertTrue(reopened.position() > end);
+        verify(jdbcTemplate).update(startsWith("UPDATE click_journal_checkpoint"), eq(reopened.position()), eq("local"));
+    }
+
+    @Test
+    void recover_sameCodeOfAnotherLink_replayedSeparately() {
+        ClickJournal journal = open(4096);
+        journal.append("abc123", 1L, 1, System.currentTimeMillis());
+        journal.append("abc123", 5L, 1, System.currentTimeMillis());
+
+        open(4096);
+
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE links"), argThat((List<Object[]> args) ->
+                args.size() == 2 && replayed(args, 1L, 1L, "abc123") && replayed(args, 1L, 5L, "abc123")));
+    }
+
+    @Test
+    void recover_clicksOfMissingLink_keptInUnappliedFile() throws IOException {
+        ClickJournal journal = open(4096);
+        journal.append("abc123", 1L, 1, System.currentTimeMillis());
+        journal.append("xyz789", 2L, 1, System.currentTimeMillis());
+        journal.append("xyz789", 2L, 1, System.currentTimeMillis());
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE links"), anyList())).thenReturn(new int[]{1, 0});
+
+        open(4096);
+
+        Path unapplied;
+        try (Stream<Path> files = Files.list(directory)) {
+            unapplied = files.filter(file -> file.getFileName().toString().startsWith("unapplied-")).findFirst().orElseThrow();
+        }
+        assertEquals(List.of("link_id,short_code,clicks", "2,xyz789,2"), Files.readAllLines(unapplied));
+    }
+
+    @Test
+    void recover_clicksOfThisRun_leftForItsFlushes() {
+        ClickJournal journal = new ClickJournal(jdbcTemplate, transactionManager, config(directory, 4096), DATASOURCE_URL);
+        journal.append("abc123", 1L, 1, System.currentTimeMillis());
+
+        journal.recover();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertTrue(journal.isRecovered());
+    }
+
+    @Test
+    void recover_skipsClicksBeforeCheckpoint() {
+        ClickJournal journal = open(4096);
+        journal.append("abc123", 1L, 1, System.currentTimeMillis());
+        long applied = journal.append("abc123", 1L, 1, System.currentTimeMillis());
+        journal.append("abc123", 1L, 1, System.currentTimeMillis());
+        checkpointAt(applied);
+
+        open(4096);
+
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE links"), argThat((List<Object[]> args) ->
+                args.size() == 1 && replayed(args, 1L, 1L, "abc123")));
+    }
+
+    @Test
+    void recover_everythingApplied_writesNothing() {
+        ClickJournal journal = open(4096);
+        checkpointAt(journal.append("abc123", 1L, 1, System.currentTimeMillis()));
+
+        ClickJournal reopened = open(4096);
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertTrue(reopened.position() > journal.position());
+    }
+
+    @Test
+    void recover_tornRecord_isNotReplayed() throws IOException {
+        ClickJournal journal = open(4096);
+        long first = journal.append("abc123", 1L, 1, System.currentTimeMillis());
+        journal.append("abc123", 1L, 1, System.currentTimeMillis());
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), (int) first + 6);
+        }
+
+        open(4096);
+
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE links"), argThat((List<Object[]> args) ->
+                args.size() == 1 && replayed(args, 1L, 1L, "abc123")));
+    }
+
+    @Test
+    void truncate_deletesFullyAppliedSegments() throws IOException {
+        ClickJournal journal = open(256);
+        for (int i = 0; i < 100; i++) {
+            journal.append("abc123", 1L, 1, System.currentTimeMillis());
+        }
+        assertTrue(journal.segmentCount() > 1);
+
+        journal.truncate(journal.position());
+
+        assertEquals(1, journal.segmentCount());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void recover_acrossSegments_replaysEveryClick() {
+        ClickJournal journal = open(256);
+        for (int i = 0; i < 100; i++) {
+            journal.append("abc123", 1L, 1, System.currentTimeMillis());
+        }
+
+        open(256);
+
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE links"), argThat((List<Object[]> args) ->
+                args.size() == 1 && replayed(args, 100L, 1L, "abc123")));
+    }
+
+    @Test
+    void commit_concurrentAppenders_everyClickDurable() throws Exception {
+        ClickJournal journal = open(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    journal.commit(journal.append("abc123", 1L, 1, System.currentTimeMillis()));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        open(1024);
+
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE links"), argThat((List<Object[]> args) ->
+                args.size() == 1 && replayed(args, 1600L, 1L, "abc123")));
+    }
+}
@@ -0,0 +1,213 @@
+package src.lab.db.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.LinkState;
+import src.lab.infra.settings.AppConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LogLinkStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private LogLinkStore store;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.shutdown();
+    }
+
+    private LogLinkStore open() {
+        AppConfig config = new AppConfig();
+        config.getLink().getStore().setPath(directory.toString());
+        config.getLink().getStore().setSegmentBytes(4096);
+        store = new LogLinkStore(jdbcTemplate, config);
+        return store;
+    }
+
+    private LogLinkStore reopen() throws IOException {
+        store.shutdown();
+        return open();
+    }
+
+    private static LinkState link(long id, String shortCode, int clickLimit, LocalDateTime expiresAt) {
+        return new LinkState(id, shortCode, "https://example.com/" + shortCode, "user1", clickLimit, 0, expiresAt);
+    }
+
+    @Test
+    void registerClick_countsUpToLimit() {
+        LogLinkStore store = open();
+        store.put(link(1, "abc123", 2, LocalDateTime.now().plusHours(1)));
+
+        ClickResult first = store.registerClick("abc123", LocalDateTime.now());
+        store.registerClick("abc123", LocalDateTime.now());
+        ClickResult third = store.registerClick("abc123", LocalDateTime.now());
+
+        assertEquals(ClickOutcome.RECORDED, first.outcome());
+        assertEquals("https://example.com/abc123", first.link().originalUrl());
+        assertEquals("user1", first.link().userId());
+        assertEquals(ClickOutcome.LIMIT_REACHED, third.outcome());
+        assertEquals(2, third.link().clickCount());
+    }
+
+    @Test
+    void registerClick_expiredOrUnknown_rejected() {
+        LogLinkStore store = open();
+        store.put(link(1, "old123", 10, LocalDateTime.now().minusMinutes(1)));
+
+        assertEquals(ClickOutcome.EXPIRED, store.registerClick("old123", LocalDateTime.now()).outcome());
+        assertEquals(ClickOutcome.NOT_FOUND, store.registerClick("xyz", LocalDateTime.now()).outcome());
+    }
+
+    @Test
+    void put_updateWithStaleCount_keepsCountedClicks() {
+        LogLinkStore store = open();
+        store.put(link(1, "abc123", 10, LocalDateTime.now().plusHours(1)));
+        store.registerClick("abc123", LocalDateTime.now());
+
+        store.put(link(1, "abc123", 20, LocalDateTime.now().plusHours(1)));
+
+        LinkState link = store.find("abc123").orElseThrow();
+        assertEquals(1, link.clickCount());
+        assertEquals(20, link.clickLimit());
+    }
+
+    @Test
+    void reopen_replaysLinksClicksAndDeletes() throws IOException {
+        LogLinkStore store = open();
+        store.put(link(1, "abc123", 10, LocalDateTime.now().plusHours(1)));
+        store.put(link(2, "gone12", 10, LocalDateTime.now().plusHours(1)));
+        store.registerClick("abc123", LocalDateTime.now());
+        store.registerClick("abc123", LocalDateTime.now());
+        store.delete("gone12");
+
+        store = reopen();
+
+        assertEquals(2, store.find("abc123").orElseThrow().clickCount());
+        assertTrue(store.find("gone12").isEmpty());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void reopen_tornTail_isTruncated() throws IOException {
+        LogLinkStore store = open();
+        store.put(link(1, "abc123", 10, LocalDateTime.now().plusHours(1)));
+        store.shutdown();
+        Path last;
+        try (Stream<Path> files = Files.list(directory)) {
+            last = files.sorted().reduce((first, second) -> second).orElseThrow();
+        }
+        Files.write(last, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11}, StandardOpenOption.APPEND);
+
+        store = open();
+
+        assertTrue(store.find("abc123").isPresent());
+        assertEquals(ClickOutcome.RECORDED, store.registerClick("abc123", LocalDateTime.now()).outcome());
+    }
+
+    @Test
+    void compact_keepsLiveLinksAndDropsGarbage() throws IOException {
+        LogLinkStore store = open();
+        for (int i = 0; i < 50; i++) {
+            store.put(link(i + 1, "code" + i, 1000, LocalDateTime.now().plusHours(1)));
+        }
+        store.put(link(100, "old123", 10, LocalDateTime.now().minusMinutes(1)));
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                store.registerClick("code" + i, LocalDateTime.now());
+            }
+        }
+        int segments = store.segmentCount();
+
+        store.compact();
+
+        assertTrue(store.segmentCount() < segments);
+        assertEquals(20, store.find("code7").orElseThrow().clickCount());
+        assertTrue(store.find("old123").isEmpty());
+        assertEquals(21, store.registerClick("code7", LocalDateTime.now()).link().clickCount());
+
+        store = reopen();
+
+        assertEquals(21, store.find("code7").orElseThrow().clickCount());
+        assertEquals(20, store.find("code8").orElseThrow().clickCount());
+        assertEquals(50, store.size());
+    }
+
+    @Test
+    void registerClick_concurrentWithCompaction_countsExactly() throws Exception {
+        LogLinkStore store = open();
+        store.put(link(1, "hot123", 5000, LocalDateTime.now().plusHours(1)));
+        AtomicInteger recorded = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread compactor = new Thread(() -> {
+            while (!done.get()) {
+                store.compact();
+            }
+        });
+        compactor.start();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (store.registerClick("hot123", LocalDateTime.now()).outcome() == ClickOutcome.RECORDED) {
+                        recorded.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        done.set(true);
+        compactor.join();
+        executor.shutdown();
+
+        assertEquals(5000, recorded.get());
+        assertEquals(5000, reopen().find("hot123").orElseThrow().clickCount());
+    }
+
+    @Test
+    void sync_writesCountedClicksBack() {
+        LogLinkStore store = open();
+        store.put(link(7, "abc123", 10, LocalDateTime.now().plusHours(1)));
+        store.registerClick("abc123", LocalDateTime.now());
+        store.registerClick("abc123", LocalDateTime.now());
+
+        store.sync();
+        store.sync();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), argThat((List<Object[]> args) ->
+                args.size() == 1 && args.get(0)[0].equals(2) && args.get(0)[1].equals(7L)));
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import src.lab.schemas.ErrorResponse;
 
 import java.util.Collections;
@@ -51,6 +52,20 @@ class GlobalExceptionHandlerTest {
         assertEquals("Invalid URL format: bad-url", response.error());
     }
 
+    @Test
+    void handleInvalidCursor_returnsErrorResponse() {
+        InvalidCursorException ex = new InvalidCursorException("bad");
+        ErrorResponse response = handler.handleInvalidCursor(ex);
+        assertEquals("Invalid page cursor: bad", response.error());
+    }
+
+    @Test
+    void handleInvalidExportFormat_returnsErrorResponse() {
+        InvalidExportFormatException ex = new InvalidExportFormatException("xml");
+        ErrorResponse response = handler.handleInvalidExportFormat(ex);
+        assertEquals("Unsupported export format: xml", response.error());
+    }
+
     @Test
     void handleShortCodeGeneration_returnsErrorResponse() {
         ShortCodeGenerationException ex = new ShortCodeGenerationException();
@@ -79,6 +94,17 @@ class GlobalExceptionHandlerTest {
         assertEquals("Validation failed", response.error());
     }
 
+    @Test
+    void handleReactiveValidationErrors_returnsErrorResponse() {
+        BindingResult bindingResult = mock(BindingResult.class);
+        FieldError fieldError = new FieldError("request", "url", "URL is required");
+        when(bindingResult.getFieldErrors()).thenReturn(Collections.singletonList(fieldError));
+
+        WebExchangeBindException ex = new WebExchangeBindException(null, bindingResult);
+        ErrorResponse response = handler.handleReactiveValidationErrors(ex);
+        assertEquals("URL is required", response.error());
+    }
+
     @Test
     void handleGenericException_returnsErrorResponse() {
         Exception ex = new RuntimeException("Unexpected error");
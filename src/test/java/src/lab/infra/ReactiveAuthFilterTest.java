@@ -0,0 +1,96 @@
+package src.lab.infra;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveAuthFilterTest {
+
+    private final ReactiveAuthFilter authFilter = new ReactiveAuthFilter();
+    private final AtomicBoolean passed = new AtomicBoolean();
+    private final WebFilterChain chain = exchange -> {
+        passed.set(true);
+        return Mono.empty();
+    };
+
+    private MockServerWebExchange exchange(String path, String authHeader) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path);
+        if (authHeader != null) {
+            request.header("Authorization", authHeader);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    @Test
+    void filter_validUuid_setsUserIdAttribute() {
+        String validUuid = "550e8400-e29b-41d4-a716-446655440000";
+        MockServerWebExchange exchange = exchange("/api/links", validUuid);
+
+        authFilter.filter(exchange, chain).block();
+
+        assertTrue(passed.get());
+        assertEquals(validUuid, exchange.getAttribute("userId"));
+    }
+
+    @Test
+    void filter_bearerTokenWithValidUuid_setsUserIdAttribute() {
+        String validUuid = "550e8400-e29b-41d4-a716-446655440000";
+        MockServerWebExchange exchange = exchange("/api/links", "Bearer " + validUuid);
+
+        authFilter.filter(exchange, chain).block();
+
+        assertEquals(validUuid, exchange.getAttribute("userId"));
+    }
+
+    @Test
+    void filter_missingHeader_returnsUnauthorized() {
+        MockServerWebExchange exchange = exchange("/api/links", null);
+
+        authFilter.filter(exchange, chain).block();
+
+        assertFalse(passed.get());
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals("Missing Authorization header", exchange.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void filter_bearerTokenEmptyAfterTrim_returnsUnauthorized() {
+        MockServerWebExchange exchange = exchange("/api/links", "Bearer    ");
+
+        authFilter.filter(exchange, chain).block();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals("Invalid Authorization header", exchange.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void filter_invalidUuid_returnsBadRequest() {
+        MockServerWebExchange exchange = exchange("/api/links", "not-a-uuid");
+
+        authFilter.filter(exchange, chain).block();
+
+        assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode());
+        assertEquals("Invalid UUID format", exchange.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void filter_redirectEndpoint_skipsAuthentication() {
+        authFilter.filter(exchange("/api/links/abc123/redirect", null), chain).block();
+
+        assertTrue(passed.get());
+    }
+
+    @Test
+    void filter_shortUrl_skipsAuthentication() {
+        authFilter.filter(exchange("/abc123", null), chain).block();
+
+        assertTrue(passed.get());
+    }
+}
@@ -0,0 +1,175 @@
+package src.lab.infra;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.LinkState;
+import src.lab.services.LinksService;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedirectFilterTest {
+
+    @Mock
+    private LinksService linksService;
+
+    @Mock
+    private FilterChain filterChain;
+
+    @InjectMocks
+    private RedirectFilter redirectFilter;
+
+    private LinkState link() {
+        return new LinkState(1L, "abc123", "https://example.com", "user1", 10, 1, LocalDateTime.now().plusHours(1));
+    }
+
+    @Test
+    void doFilter_recordedClick_redirectsWithoutChain() throws Exception {
+        when(linksService.click("abc123")).thenReturn(ClickResult.recorded(link()));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        redirectFilter.doFilter(new MockHttpServletRequest("GET", "/abc123"), response, filterChain);
+
+        assertEquals(302, response.getStatus());
+        assertEquals("https://example.com", response.getHeader("Location"));
+        verifyNoInteractions(filterChain);
+    }
+
+    @Test
+    void doFilter_unknownCode_returnsNotFound() throws Exception {
+        when(linksService.click("xyz")).thenReturn(ClickResult.notFound());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        redirectFilter.doFilter(new MockHttpServletRequest("GET", "/xyz"), response, filterChain);
+
+        assertEquals(404, response.getStatus());
+        assertEquals("{\"error\":\"Link not found\"}", response.getContentAsString());
+    }
+
+    @Test
+    void doFilter_exhaustedLink_returnsGone() throws Exception {
+        when(linksService.click("abc123")).thenReturn(new ClickResult(ClickOutcome.LIMIT_REACHED, null));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        redirectFilter.doFilter(new MockHttpServletRequest("GET", "/abc123"), response, filterChain);
+
+        assertEquals(410, response.getStatus());
+        assertEquals("application/json", response.getContentType());
+    }
+
+    @Test
+    void doFilter_quotaReservedElsewhere_returnsServiceUnavailable() throws Exception {
+        when(linksService.click("abc123")).thenReturn(new ClickResult(ClickOutcome.QUOTA_RESERVED, null));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        redirectFilter.doFilter(new MockHttpServletRequest("GET", "/abc123"), response, filterChain);
+
+        assertEquals(503, response.getStatus());
+        assertEquals("application/json", response.getContentType());
+    }
+
+    @Test
+    void doFilter_apiPath_passesThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/links");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        redirectFilter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(linksService);
+    }
+
+    @Test
+    void doFilter_nonBase62Segment_passesThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/favicon.ico");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        redirectFilter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(linksService);
+    }
+
+    @Test
+    void doFilter_errorPath_passesThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/error");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        redirectFilter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(linksService);
+    }
+
+    @Test
+    void doFilter_errorDispatch_passesThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/abc123");
+        request.setDispatcherType(DispatcherType.ERROR);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        redirectFilter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(linksService);
+    }
+
+    @Test
+    void doFilter_forwardDispatch_passesThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/abc123");
+        request.setDispatcherType(DispatcherType.FORWARD);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        redirectFilter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(linksService);
+    }
+
+    @Test
+    void doFilter_frameworkPaths_passThrough() throws Exception {
+        for (String path : new String[]{"/actuator", "/favicon", "/index", "/api"}) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            redirectFilter.doFilter(request, response, filterChain);
+
+            verify(filterChain).doFilter(request, response);
+        }
+        verifyNoInteractions(linksService);
+    }
+
+    @Test
+    void doFilter_codeStartingWithReservedWord_redirects() throws Exception {
+        when(linksService.click("errors")).thenReturn(ClickResult.recorded(link()));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        redirectFilter.doFilter(new MockHttpServletRequest("GET", "/errors"), response, filterChain);
+
+        assertEquals(302, response.getStatus());
+        verifyNoInteractions(filterChain);
+    }
+
+    @Test
+    void doFilter_postRequest_passesThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/abc123");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        redirectFilter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(any(), any());
+        verifyNoInteractions(linksService);
+    }
+}
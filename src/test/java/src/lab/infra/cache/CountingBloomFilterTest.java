@@ -0,0 +1,60 @@
+package src.lab.infra.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountingBloomFilterTest {
+
+    @Test
+    void mightContain_addedKeys_neverFalseNegative() {
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("code" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("code" + i));
+        }
+    }
+
+    @Test
+    void mightContain_unknownKeys_respectsFalsePositiveRate() {
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("code" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 200);
+    }
+
+    @Test
+    void remove_keepsOtherKeys() {
+        CountingBloomFilter filter = new CountingBloomFilter(1_000, 0.01);
+        filter.add("abc123");
+        filter.add("def456");
+
+        filter.remove("abc123");
+
+        assertFalse(filter.mightContain("abc123"));
+        assertTrue(filter.mightContain("def456"));
+    }
+
+    @Test
+    void remove_duplicateAdd_stillContained() {
+        CountingBloomFilter filter = new CountingBloomFilter(1_000, 0.01);
+        filter.add("abc123");
+        filter.add("abc123");
+
+        filter.remove("abc123");
+
+        assertTrue(filter.mightContain("abc123"));
+    }
+}
@@ -0,0 +1,172 @@
+package src.lab.infra.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import src.lab.db.models.LinkState;
+import src.lab.infra.settings.AppConfig;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkCacheTest {
+
+    private AppConfig config;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        config = new AppConfig();
+        config.getLink().getClicks().setMode(AppConfig.ClickMode.WRITE_BEHIND);
+        config.getLink().getCache().setPolicy(AppConfig.CachePolicy.TINY_LFU);
+        config.getLink().getCache().setMaximumSize(100);
+        loads = new AtomicInteger();
+    }
+
+    private Optional<LinkState> load(String shortCode, LocalDateTime expiresAt) {
+        loads.incrementAndGet();
+        return Optional.of(new LinkState(1L, shortCode, "https://example.com", "user1", 10, 0, expiresAt));
+    }
+
+    @Test
+    void get_secondLookup_servedFromCache() {
+        LinkCache cache = new LinkCache(config);
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+
+        cache.get("abc123", code -> load(code, expiresAt));
+        Optional<LinkState> result = cache.get("abc123", code -> load(code, expiresAt));
+
+        assertTrue(result.isPresent());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void get_unknownCode_isNotCached() {
+        LinkCache cache = new LinkCache(config);
+
+        cache.get("xyz", code -> Optional.empty());
+        Optional<LinkState> result = cache.get("xyz", code -> Optional.empty());
+
+        assertFalse(result.isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void get_expiredLink_isNotRetained() {
+        LinkCache cache = new LinkCache(config);
+        LocalDateTime expiresAt = LocalDateTime.now().minusSeconds(1);
+
+        cache.get("abc123", code -> load(code, expiresAt));
+        cache.get("abc123", code -> load(code, expiresAt));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidate_forcesReload() {
+        LinkCache cache = new LinkCache(config);
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        cache.get("abc123", code -> load(code, expiresAt));
+
+        cache.invalidate("abc123");
+        cache.get("abc123", code -> load(code, expiresAt));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_policyNone_alwaysLoads() {
+        config.getLink().getCache().setPolicy(AppConfig.CachePolicy.NONE);
+        LinkCache cache = new LinkCache(config);
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+
+        cache.get("abc123", code -> load(code, expiresAt));
+        cache.get("abc123", code -> load(code, expiresAt));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void policy_unset_followsClickMode() {
+        config.getLink().getCache().setPolicy(null);
+
+        assertEquals(AppConfig.CachePolicy.TINY_LFU, new LinkCache(config).getPolicy());
+
+        config.getLink().getClicks().setMode(AppConfig.ClickMode.SYNC);
+        assertEquals(AppConfig.CachePolicy.NONE, new LinkCache(config).getPolicy());
+    }
+
+    @Test
+    void policy_setWithoutWriteBehind_isRejected() {
+        config.getLink().getClicks().setMode(AppConfig.ClickMode.SYNC);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new LinkCache(config));
+        assertTrue(e.getMessage().contains("write-behind"));
+    }
+
+    @Test
+    void get_policyIndex_servesRepeatLookupsFromIndex() {
+        config.getLink().getCache().setPolicy(AppConfig.CachePolicy.INDEX);
+        LinkCache cache = new LinkCache(config);
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+
+        cache.get("abc123", code -> load(code, expiresAt));
+        Optional<LinkState> result = cache.get("abc123", code -> load(code, expiresAt));
+
+        assertTrue(result.isPresent());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void get_policyIndex_full_keepsIndexingNewCodes() {
+        config.getLink().getCache().setPolicy(AppConfig.CachePolicy.INDEX);
+        config.getLink().getCache().setMaximumSize(2);
+        LinkCache cache = new LinkCache(config);
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        cache.get("aaa", code -> load(code, expiresAt));
+        cache.get("bbb", code -> load(code, expiresAt));
+
+        cache.get("ccc", code -> load(code, expiresAt));
+        cache.get("ccc", code -> load(code, expiresAt));
+
+        assertEquals(3, loads.get());
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.stats().evictionCount());
+    }
+
+    @Test
+    void invalidate_policyIndex_forcesReload() {
+        config.getLink().getCache().setPolicy(AppConfig.CachePolicy.INDEX);
+        LinkCache cache = new LinkCache(config);
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        cache.get("abc123", code -> load(code, expiresAt));
+
+        cache.invalidate("abc123");
+        cache.get("abc123", code -> load(code, expiresAt));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidate_policyIndex_duringLoad_dropsLoadedState() {
+        config.getLink().getCache().setPolicy(AppConfig.CachePolicy.INDEX);
+        LinkCache cache = new LinkCache(config);
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+
+        // The loader read the row, then an update committed and evicted before the state reached the index
+        cache.get("abc123", code -> {
+            Optional<LinkState> stale = load(code, expiresAt);
+            cache.invalidate(code);
+            return stale;
+        });
+        cache.get("abc123", code -> load(code, expiresAt));
+
+        assertEquals(2, loads.get());
+    }
+}
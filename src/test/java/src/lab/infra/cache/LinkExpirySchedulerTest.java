@@ -0,0 +1,113 @@
+package src.lab.infra.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.store.LogLinkStore;
+import src.lab.infra.settings.AppConfig;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LinkExpirySchedulerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private LinkCache linkCache;
+
+    @Mock
+    private NegativeLinkCache negativeLinkCache;
+
+    @Mock
+    private ObjectProvider<LogLinkStore> logLinkStore;
+
+    private AppConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new AppConfig();
+        config.getLink().getExpiry().setEnabled(true);
+        config.getLink().getExpiry().setTickMs(10);
+    }
+
+    private LinkExpiryScheduler scheduler() {
+        return new LinkExpiryScheduler(jdbcTemplate, new LinkEviction(linkCache, negativeLinkCache, logLinkStore), negativeLinkCache, config);
+    }
+
+    @Test
+    void tick_expiredLinks_deletesAndEvicts() {
+        LinkExpiryScheduler scheduler = scheduler();
+        scheduler.schedule("exp1", LocalDateTime.now().minusSeconds(1));
+        scheduler.schedule("exp2", LocalDateTime.now().minusSeconds(1));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+
+        scheduler.tick();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> args) -> args.size() == 2));
+        verify(linkCache).invalidate("exp1");
+        verify(negativeLinkCache).linkDeleted("exp2");
+        verify(negativeLinkCache).remember("exp1", ClickOutcome.EXPIRED);
+        assertEquals(0, scheduler.scheduled());
+    }
+
+    @Test
+    void tick_rowAlreadyGoneOrRenewed_leavesCachesAlone() {
+        LinkExpiryScheduler scheduler = scheduler();
+        scheduler.schedule("reused", LocalDateTime.now().minusSeconds(1));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{0});
+
+        scheduler.tick();
+
+        verifyNoInteractions(linkCache, negativeLinkCache);
+    }
+
+    @Test
+    void tick_linkNotYetDue_staysScheduled() {
+        LinkExpiryScheduler scheduler = scheduler();
+        scheduler.schedule("live", LocalDateTime.now().plusHours(1));
+
+        scheduler.tick();
+
+        assertEquals(1, scheduler.scheduled());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void tick_manyDueLinks_deletesInBatches() {
+        config.getLink().getExpiry().setDeleteBatchSize(2);
+        LinkExpiryScheduler scheduler = scheduler();
+        for (int i = 0; i < 5; i++) {
+            scheduler.schedule("exp" + i, LocalDateTime.now().minusSeconds(1));
+        }
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1}, new int[]{1, 1}, new int[]{1});
+
+        scheduler.tick();
+
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), anyList());
+        verify(negativeLinkCache, times(5)).linkDeleted(anyString());
+    }
+
+    @Test
+    void schedule_disabled_keepsNothing() {
+        config.getLink().getExpiry().setEnabled(false);
+        LinkExpiryScheduler scheduler = scheduler();
+
+        scheduler.schedule("exp1", LocalDateTime.now().minusSeconds(1));
+        scheduler.tick();
+
+        assertEquals(0, scheduler.scheduled());
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,238 @@
+package src.lab.infra.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.Link;
+import src.lab.db.models.LinkCreation;
+import src.lab.db.repositories.LinksRepository;
+import src.lab.db.repositories.UsersRepository;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.ClickCounter;
+import src.lab.services.LinksService;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LinkSnapshotTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ClickCounter clickCounter;
+
+    @TempDir
+    private Path tempDir;
+
+    private AppConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new AppConfig();
+        config.getLink().getSnapshot().setEnabled(true);
+        config.getLink().getSnapshot().setPath(tempDir.resolve("links.snapshot").toString());
+    }
+
+    private LinkSnapshot.Entry entry(String shortCode, int clickLimit, int clickCount, LocalDateTime expiresAt) {
+        return new LinkSnapshot.Entry(
+                shortCode.getBytes(StandardCharsets.US_ASCII),
+                ("https://example.com/" + shortCode).getBytes(StandardCharsets.UTF_8),
+                "user1".getBytes(StandardCharsets.UTF_8),
+                clickLimit,
+                clickCount,
+                0L,
+                expiresAt.toInstant(ZoneOffset.UTC).toEpochMilli(),
+                42L,
+                false);
+    }
+
+    private void writeSnapshot(LinkSnapshot.Entry... entries) {
+        doReturn(List.of(entries)).when(jdbcTemplate).query(anyString(), any(RowMapper.class), any(LocalDateTime.class));
+        new LinkSnapshot(jdbcTemplate, config, clickCounter).write();
+    }
+
+    @Test
+    void write_createsSnapshotAtomically() {
+        writeSnapshot(entry("abc123", 10, 0, LocalDateTime.now().plusHours(1)));
+
+        assertTrue(Files.exists(tempDir.resolve("links.snapshot")));
+        assertFalse(Files.exists(tempDir.resolve("links.snapshot.tmp")));
+    }
+
+    @Test
+    void click_mappedSnapshot_servesRedirect() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        writeSnapshot(entry("zzz999", 10, 0, expiresAt), entry("abc123", 10, 3, expiresAt), entry("Abc123", 10, 0, expiresAt));
+
+        Optional<ClickResult> result = new LinkSnapshot(jdbcTemplate, config, clickCounter).click("abc123");
+
+        assertTrue(result.isPresent());
+        assertEquals(ClickOutcome.RECORDED, result.get().outcome());
+        assertEquals("https://example.com/abc123", result.get().link().originalUrl());
+        assertEquals(4, result.get().link().clickCount());
+    }
+
+    @Test
+    void click_limitReachedInSnapshot_rejects() {
+        writeSnapshot(entry("abc123", 2, 1, LocalDateTime.now().plusHours(1)));
+        LinkSnapshot snapshot = new LinkSnapshot(jdbcTemplate, config, clickCounter);
+
+        assertEquals(ClickOutcome.RECORDED, snapshot.click("abc123").orElseThrow().outcome());
+        assertEquals(ClickOutcome.LIMIT_REACHED, snapshot.click("abc123").orElseThrow().outcome());
+    }
+
+    @Test
+    void click_codeMissingFromSnapshot_defersToDatabase() {
+        writeSnapshot(entry("abc123", 10, 0, LocalDateTime.now().plusHours(1)));
+
+        assertEquals(Optional.empty(), new LinkSnapshot(jdbcTemplate, config, clickCounter).click("xyz"));
+    }
+
+    @Test
+    void restore_insertsLinksAndMovesSnapshotClicks() {
+        writeSnapshot(entry("abc123", 10, 0, LocalDateTime.now().plusHours(1)));
+        LinkSnapshot snapshot = new LinkSnapshot(jdbcTemplate, config, clickCounter);
+        snapshot.click("abc123");
+        snapshot.click("abc123");
+
+        snapshot.restore();
+
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO links"), argThat((List<Object[]> rows) ->
+                rows.size() == 1 && rows.get(0)[0].equals("abc123")));
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE links"), argThat((List<Object[]> rows) ->
+                rows.size() == 1 && rows.get(0)[0].equals(2)));
+        assertEquals(Optional.empty(), snapshot.click("abc123"));
+    }
+
+    @Test
+    void restore_keepsUrlHashAndIdempotencyKey() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        LinkSnapshot.Entry idempotent = new LinkSnapshot.Entry("abc123".getBytes(StandardCharsets.US_ASCII),
+                "https://example.com".getBytes(StandardCharsets.UTF_8), "user1".getBytes(StandardCharsets.UTF_8),
+                10, 0, 0L, expiresAt.toInstant(ZoneOffset.UTC).toEpochMilli(), 7L, true);
+        writeSnapshot(idempotent, entry("xyz789", 10, 0, expiresAt));
+
+        new LinkSnapshot(jdbcTemplate, config, clickCounter).restore();
+
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO links"), argThat((List<Object[]> rows) -> rows.size() == 2
+                && rows.get(0)[0].equals("abc123") && rows.get(0)[2].equals(7L) && rows.get(0)[3].equals(7L)
+                && rows.get(1)[0].equals("xyz789") && rows.get(1)[2].equals(42L) && rows.get(1)[3] == null));
+    }
+
+    @Test
+    void restore_movesCodeBlockSequencePastSnapshot() {
+        when(jdbcTemplate.queryForObject(contains("SHORT_CODE_BLOCKS"), eq(Long.class))).thenReturn(42L, 0L);
+        writeSnapshot(entry("abc123", 10, 0, LocalDateTime.now().plusHours(1)));
+
+        new LinkSnapshot(jdbcTemplate, config, clickCounter).restore();
+
+        verify(jdbcTemplate).execute("ALTER SEQUENCE short_code_blocks RESTART WITH 42");
+    }
+
+    @Test
+    void restore_sequenceAlreadyAhead_leavesItAlone() {
+        when(jdbcTemplate.queryForObject(contains("SHORT_CODE_BLOCKS"), eq(Long.class))).thenReturn(42L, 50L);
+        writeSnapshot(entry("abc123", 10, 0, LocalDateTime.now().plusHours(1)));
+
+        new LinkSnapshot(jdbcTemplate, config, clickCounter).restore();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void write_beforeRestore_keepsExistingSnapshot() {
+        writeSnapshot(entry("abc123", 10, 0, LocalDateTime.now().plusHours(1)));
+        clearInvocations(jdbcTemplate);
+
+        new LinkSnapshot(jdbcTemplate, config, clickCounter).write();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void click_disabled_neverServes() {
+        writeSnapshot(entry("abc123", 10, 0, LocalDateTime.now().plusHours(1)));
+        config.getLink().getSnapshot().setEnabled(false);
+
+        assertEquals(Optional.empty(), new LinkSnapshot(jdbcTemplate, config, clickCounter).click("abc123"));
+    }
+
+    @Test
+    void shutdown_flushesBufferedClicksBeforeWriting() {
+        doReturn(List.of()).when(jdbcTemplate).query(anyString(), any(RowMapper.class), any(LocalDateTime.class));
+        LinkSnapshot snapshot = new LinkSnapshot(jdbcTemplate, config, clickCounter);
+
+        snapshot.shutdown();
+
+        InOrder order = inOrder(clickCounter, jdbcTemplate);
+        order.verify(clickCounter).flushAll();
+        order.verify(jdbcTemplate).query(anyString(), any(RowMapper.class), any(LocalDateTime.class));
+    }
+
+    // The in-memory database starts empty after a restart, so the links table is emptied before the restore
+    @Nested
+    @SpringBootTest(properties = "app.link.idempotent-create=true")
+    class AfterRestart {
+
+        @Autowired
+        private LinksService linksService;
+
+        @Autowired
+        private LinksRepository linkRepository;
+
+        @Autowired
+        private UsersRepository usersRepository;
+
+        @Autowired
+        private JdbcTemplate database;
+
+        @Autowired
+        private ClickCounter counter;
+
+        @AfterEach
+        void tearDown() {
+            linkRepository.deleteAll();
+            usersRepository.deleteAll();
+        }
+
+        @Test
+        void idempotentCreate_restoredLink_isReturned() {
+            String userId = "550e8400-e29b-41d4-a716-446655440000";
+            Link created = linksService.createShortLink(userId, "https://example.com/restored", 10).link();
+            new LinkSnapshot(database, config, counter).write();
+            linkRepository.deleteAll();
+            usersRepository.deleteAll();
+
+            new LinkSnapshot(database, config, counter).restore();
+            LinkCreation repeated = linksService.createShortLink(userId, "https://example.com/restored", 10);
+
+            assertTrue(repeated.existing());
+            assertEquals(created.getShortCode(), repeated.link().getShortCode());
+            assertEquals(1, database.queryForObject("SELECT COUNT(*) FROM links WHERE original_url = ?", Integer.class,
+                    "https://example.com/restored"));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package src.lab.infra.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import src.lab.db.models.ClickOutcome;
+import src.lab.infra.settings.AppConfig;
+import src.lab.infra.shard.ShardRouter;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class NegativeLinkCacheTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private AppConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new AppConfig();
+        config.getLink().getNegativeCache().setBloomFilterEnabled(true);
+        config.getLink().getNegativeCache().setExpectedLinks(1_000);
+    }
+
+    @Test
+    void lookup_beforeLoad_neverReportsMissing() {
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+
+        assertEquals(Optional.empty(), cache.lookup("abc123"));
+    }
+
+    @Test
+    void lookup_unknownCodeAfterLoad_reportsNotFound() {
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+        cache.load();
+
+        assertEquals(Optional.of(ClickOutcome.NOT_FOUND), cache.lookup("abc123"));
+    }
+
+    @Test
+    void lookup_createdCode_passesThrough() {
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+        cache.load();
+
+        cache.linkCreated("abc123");
+
+        assertEquals(Optional.empty(), cache.lookup("abc123"));
+    }
+
+    @Test
+    void lookup_deletedCode_reportsNotFound() {
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+        cache.load();
+        cache.linkCreated("abc123");
+
+        cache.linkDeleted("abc123");
+
+        assertEquals(Optional.of(ClickOutcome.NOT_FOUND), cache.lookup("abc123"));
+    }
+
+    @Test
+    void lookup_tombstonedCode_returnsRememberedOutcome() {
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+        cache.load();
+        cache.linkCreated("abc123");
+
+        cache.remember("abc123", ClickOutcome.LIMIT_REACHED);
+
+        assertEquals(Optional.of(ClickOutcome.LIMIT_REACHED), cache.lookup("abc123"));
+    }
+
+    @Test
+    void forget_clearsTombstone() {
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+        cache.linkCreated("abc123");
+        cache.remember("abc123", ClickOutcome.EXPIRED);
+
+        cache.forget("abc123");
+
+        assertEquals(Optional.empty(), cache.lookup("abc123"));
+    }
+
+    @Test
+    void forget_inTransaction_clearsTombstoneLeftBeforeCommitAgain() {
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+        cache.linkCreated("abc123");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.forget("abc123");
+            // A redirect that still read the old limit
+            cache.remember("abc123", ClickOutcome.LIMIT_REACHED);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(Optional.empty(), cache.lookup("abc123"));
+    }
+
+    @Test
+    void lookup_rememberedMiss_reportsNotFoundUntilCreated() {
+        config.getLink().getNegativeCache().setBloomFilterEnabled(false);
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+
+        cache.rememberMiss("abc123", cache.missStamp("abc123"));
+        assertEquals(Optional.of(ClickOutcome.NOT_FOUND), cache.lookup("abc123"));
+
+        cache.linkCreated("abc123");
+        assertEquals(Optional.empty(), cache.lookup("abc123"));
+    }
+
+    @Test
+    void rememberMiss_createdDuringLookup_isNotRemembered() {
+        config.getLink().getNegativeCache().setBloomFilterEnabled(false);
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+        long stamp = cache.missStamp("abc123");
+
+        cache.linkCreated("abc123");
+        cache.rememberMiss("abc123", stamp);
+
+        assertEquals(Optional.empty(), cache.lookup("abc123"));
+    }
+
+    @Test
+    void linkCreated_inTransaction_clearsMissLeftBeforeCommitAgain() {
+        config.getLink().getNegativeCache().setBloomFilterEnabled(false);
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.linkCreated("abc123");
+            // A redirect that started after the insert but still could not see the uncommitted row
+            cache.rememberMiss("abc123", cache.missStamp("abc123"));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(Optional.empty(), cache.lookup("abc123"));
+    }
+
+    @Test
+    void rememberMiss_missSecondsZero_remembersNothing() {
+        config.getLink().getNegativeCache().setBloomFilterEnabled(false);
+        config.getLink().getNegativeCache().setMissSeconds(0);
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+
+        cache.rememberMiss("abc123", cache.missStamp("abc123"));
+
+        assertEquals(Optional.empty(), cache.lookup("abc123"));
+    }
+
+    @Test
+    void lookup_bloomFilterDisabled_onlyUsesTombstones() {
+        config.getLink().getNegativeCache().setBloomFilterEnabled(false);
+        NegativeLinkCache cache = new NegativeLinkCache(jdbcTemplate, new ShardRouter(config), config);
+        cache.load();
+
+        assertEquals(Optional.empty(), cache.lookup("abc123"));
+    }
+}
@@ -0,0 +1,136 @@
+package src.lab.infra.cache;
+
+import org.junit.jupiter.api.Test;
+import src.lab.db.models.LinkState;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortCodeIndexTest {
+
+    private static final LocalDateTime EXPIRES_AT = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    private LinkState link(long id, String shortCode) {
+        return new LinkState(id, shortCode, "https://example.com/" + id, "user1", 10, 3, EXPIRES_AT);
+    }
+
+    @Test
+    void encode_distinguishesLeadingZeros() {
+        assertNotEquals(ShortCodeIndex.encode("a"), ShortCodeIndex.encode("0a"));
+        assertNotEquals(0L, ShortCodeIndex.encode("0"));
+    }
+
+    @Test
+    void encode_rejectsNonBase62AndTooLongCodes() {
+        assertEquals(0L, ShortCodeIndex.encode("abc-12"));
+        assertEquals(0L, ShortCodeIndex.encode("abcdefghijk"));
+        assertEquals(0L, ShortCodeIndex.encode(""));
+    }
+
+    @Test
+    void get_returnsStoredState() {
+        ShortCodeIndex index = new ShortCodeIndex(16);
+        index.put(link(7L, "abc123"));
+
+        LinkState result = index.get("abc123");
+
+        assertEquals(link(7L, "abc123"), result);
+        assertNull(index.get("abc124"));
+    }
+
+    @Test
+    void put_sameCode_replacesEntry() {
+        ShortCodeIndex index = new ShortCodeIndex(16);
+        index.put(link(1L, "abc123"));
+        index.put(link(2L, "abc123"));
+
+        assertEquals(1, index.size());
+        assertEquals(2L, index.get("abc123").id());
+    }
+
+    @Test
+    void put_nonIndexableCode_isRefused() {
+        ShortCodeIndex index = new ShortCodeIndex(16);
+
+        assertFalse(index.put(link(1L, "abc_12")));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void put_full_evictsSoonestExpiringSampledEntry() {
+        ShortCodeIndex index = new ShortCodeIndex(16, 3);
+        index.put(new LinkState(1L, "aaa", "https://example.com/1", "user1", 10, 0, EXPIRES_AT.minusDays(1)));
+        index.put(link(2L, "bbb"));
+        index.put(link(3L, "ccc"));
+
+        index.put(link(4L, "ddd"));
+
+        assertEquals(3, index.size());
+        assertEquals(1, index.evictionCount());
+        // Five samples cover the whole table, so the entry expiring first is the one that goes
+        assertNull(index.get("aaa"));
+        assertEquals(4L, index.get("ddd").id());
+    }
+
+    @Test
+    void put_full_sameCodeReplacesWithoutEviction() {
+        ShortCodeIndex index = new ShortCodeIndex(16, 1);
+        index.put(link(1L, "abc123"));
+
+        index.put(link(2L, "abc123"));
+
+        assertEquals(0, index.evictionCount());
+        assertEquals(2L, index.get("abc123").id());
+    }
+
+    @Test
+    void put_manyCodes_growsAndKeepsAll() {
+        ShortCodeIndex index = new ShortCodeIndex(16);
+        for (int i = 0; i < 10_000; i++) {
+            index.put(link(i + 1, "c" + i));
+        }
+
+        assertEquals(10_000, index.size());
+        assertTrue(index.capacity() * 3 / 4 >= index.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i + 1, index.get("c" + i).id());
+        }
+    }
+
+    @Test
+    void remove_keepsProbeChainsIntact() {
+        ShortCodeIndex index = new ShortCodeIndex(16);
+        Set<String> removed = new HashSet<>();
+        for (int i = 0; i < 2_000; i++) {
+            index.put(link(i + 1, "r" + i));
+        }
+        for (int i = 0; i < 2_000; i += 3) {
+            index.remove("r" + i);
+            removed.add("r" + i);
+        }
+
+        for (int i = 0; i < 2_000; i++) {
+            String code = "r" + i;
+            if (removed.contains(code)) {
+                assertNull(index.get(code));
+            } else {
+                assertEquals(i + 1, index.get(code).id());
+            }
+        }
+        assertEquals(2_000 - removed.size(), index.size());
+    }
+
+    @Test
+    void clear_dropsEverything() {
+        ShortCodeIndex index = new ShortCodeIndex(16);
+        index.put(link(1L, "abc123"));
+
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertNull(index.get("abc123"));
+    }
+}
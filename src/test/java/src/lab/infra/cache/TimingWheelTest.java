@@ -0,0 +1,85 @@
+package src.lab.infra.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final long TICK = 1000;
+
+    private List<String> advance(TimingWheel<String> wheel, long nowMillis) {
+        List<String> fired = new ArrayList<>();
+        wheel.advance(nowMillis, fired::add);
+        return fired;
+    }
+
+    @Test
+    void advance_firesAtDeadlineNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.add("a", START + 5_500);
+
+        assertTrue(advance(wheel, START + 5_000).isEmpty());
+        assertEquals(List.of("a"), advance(wheel, START + 6_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advance_pastDeadline_firesOnNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.add("late", START - 60_000);
+
+        assertEquals(List.of("late"), advance(wheel, START));
+    }
+
+    @Test
+    void advance_deadlinesOnHigherLevels_cascadeDown() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.add("minute", START + 64_000);
+        wheel.add("hour", START + 3_600_000);
+        wheel.add("week", START + 7 * 86_400_000L);
+
+        assertEquals(List.of("minute"), advance(wheel, START + 64_000));
+        assertTrue(advance(wheel, START + 3_599_000).isEmpty());
+        assertEquals(List.of("hour"), advance(wheel, START + 3_600_000));
+        assertEquals(List.of("week"), advance(wheel, START + 7 * 86_400_000L));
+    }
+
+    @Test
+    void advance_deadlineBeyondWheelSpan_stillFires() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        long deadline = START + 400 * 86_400_000L;
+        wheel.add("far", deadline);
+
+        assertTrue(advance(wheel, deadline - TICK).isEmpty());
+        assertEquals(List.of("far"), advance(wheel, deadline));
+    }
+
+    @Test
+    void advance_randomDeadlines_neverEarlyNeverLost() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        Random random = new Random(42);
+        Map<String, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            long deadline = START + (long) (random.nextDouble() * 30 * 86_400_000L);
+            deadlines.put("link" + i, deadline);
+            wheel.add("link" + i, deadline);
+        }
+
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long now = START; now <= START + 31 * 86_400_000L; now += random.nextInt(600_000)) {
+            long at = now;
+            wheel.advance(now, code -> assertNull(firedAt.put(code, at)));
+        }
+
+        assertEquals(deadlines.keySet(), firedAt.keySet());
+        deadlines.forEach((code, deadline) -> assertTrue(firedAt.get(code) >= deadline, code));
+    }
+}
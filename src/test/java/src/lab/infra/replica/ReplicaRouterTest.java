@@ -0,0 +1,142 @@
+package src.lab.infra.replica;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import src.lab.infra.settings.AppConfig;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRouterTest {
+
+    private AppConfig config;
+    private ReplicaRouter router;
+
+    @BeforeEach
+    void setUp() {
+        config = new AppConfig();
+        config.getReplica().setEnabled(true);
+        config.getReplica().setUrls(List.of("jdbc:h2:mem:replica-a", "jdbc:h2:mem:replica-b"));
+        config.getReplica().setMaxLagMs(1000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (router != null) {
+            router.shutdown();
+        }
+    }
+
+    private ReplicaRouter router() {
+        router = new ReplicaRouter(config);
+        return router;
+    }
+
+    @Test
+    void pick_disabled_alwaysPrimary() {
+        config.getReplica().setEnabled(false);
+
+        assertTrue(router().pick().isEmpty());
+        assertTrue(router.replicas().isEmpty());
+    }
+
+    @Test
+    void pick_lagNotMeasuredYet_usesPrimary() {
+        assertTrue(router().pick().isEmpty());
+    }
+
+    @Test
+    void pick_freshReplicas_takeTurns() {
+        ReplicaRouter router = router();
+        router.updateLag(0, 100);
+        router.updateLag(1, 200);
+
+        List<DataSource> picked = List.of(router.pick().orElseThrow(), router.pick().orElseThrow());
+
+        assertTrue(picked.containsAll(router.replicas()));
+    }
+
+    @Test
+    void pick_lagOverLimit_skipsReplica() {
+        ReplicaRouter router = router();
+        router.updateLag(0, 5000);
+        router.updateLag(1, 100);
+
+        for (int i = 0; i < 4; i++) {
+            assertSame(router.replicas().get(1), router.pick().orElseThrow());
+        }
+
+        router.markUnreachable(1);
+        assertTrue(router.pick().isEmpty());
+    }
+
+    @Test
+    void pick_lagCheckOff_usesReplicasStraightAway() {
+        config.getReplica().setMaxLagMs(0);
+
+        assertTrue(router().pick().isPresent());
+    }
+
+    @Test
+    void onPrimary_pinsOnlyInsideTheCall() {
+        ReplicaRouter router = router();
+        router.updateLag(0, 0);
+        router.updateLag(1, 0);
+
+        Optional<DataSource> inside = router.onPrimary(router::pick);
+
+        assertTrue(inside.isEmpty());
+        assertTrue(router.pick().isPresent());
+    }
+
+    @Test
+    void readFor_recentWriter_readsFromPrimary() {
+        ReplicaRouter router = router();
+        router.updateLag(0, 0);
+        router.updateLag(1, 0);
+
+        router.recordWrite("writer");
+
+        assertTrue(router.readFor("writer", router::pick).isEmpty());
+        assertTrue(router.readFor("reader", router::pick).isPresent());
+    }
+
+    @Test
+    void findOrPrimary_replicaMiss_retriesOnPrimary() {
+        ReplicaRouter router = router();
+        router.updateLag(0, 0);
+        router.updateLag(1, 0);
+        List<Optional<DataSource>> lookups = new ArrayList<>();
+
+        Optional<String> found = router.findOrPrimary(() -> {
+            Optional<DataSource> target = router.pick();
+            lookups.add(target);
+            return target.isPresent() ? Optional.empty() : Optional.of("link");
+        });
+
+        assertEquals(Optional.of("link"), found);
+        assertEquals(2, lookups.size());
+        assertTrue(lookups.get(0).isPresent());
+        assertTrue(lookups.get(1).isEmpty());
+    }
+
+    @Test
+    void findOrPrimary_replicaHit_singleLookup() {
+        ReplicaRouter router = router();
+        router.updateLag(0, 0);
+        router.updateLag(1, 0);
+        List<Optional<DataSource>> lookups = new ArrayList<>();
+
+        router.findOrPrimary(() -> {
+            lookups.add(router.pick());
+            return Optional.of("link");
+        });
+
+        assertEquals(1, lookups.size());
+    }
+}
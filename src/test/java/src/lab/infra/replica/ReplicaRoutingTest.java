@@ -0,0 +1,137 @@
+package src.lab.infra.replica;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.Link;
+import src.lab.db.models.LinkView;
+import src.lab.db.repositories.LinksRepository;
+import src.lab.db.repositories.UsersRepository;
+import src.lab.services.LinksService;
+import src.lab.services.impl.WriteBehindClickCounter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The replica is a second in-memory H2 database with the same migrations; nothing replicates into it,
+// so rows the tests put only there show which database answered
+@SpringBootTest(properties = {
+        "app.replica.enabled=true",
+        "app.replica.urls[0]=" + ReplicaRoutingTest.REPLICA_URL,
+        "app.replica.max-lag-ms=0",
+        "app.link.clicks.mode=write-behind",
+        "app.link.clicks.flush-interval-ms=600000"
+})
+class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    private static JdbcTemplate replica;
+
+    @Autowired
+    private LinksService linksService;
+
+    @Autowired
+    private WriteBehindClickCounter clickCounter;
+
+    @Autowired
+    private LinksRepository linkRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrateReplica() {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+    }
+
+    @AfterEach
+    void tearDown() {
+        linkRepository.deleteAll();
+        usersRepository.deleteAll();
+        replica.update("DELETE FROM links");
+        replica.update("DELETE FROM users");
+    }
+
+    private void insertOnReplica(long id, String shortCode, String originalUrl, String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        replica.update("INSERT INTO users (id, created_at) SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM users WHERE id = ?)", userId, now, userId);
+        replica.update("""
+                INSERT INTO links (id, short_code, original_url, user_id, click_limit, created_at, expires_at)
+                VALUES (?, ?, ?, ?, 100, ?, ?)""", id, shortCode, originalUrl, userId, now, now.plusHours(1));
+    }
+
+    @Test
+    void getUserLinks_readOnlyTransaction_servedByReplica() {
+        insertOnReplica(1_000_001L, "rep001", "https://replica.example.com", "reader");
+
+        List<LinkView> links = linksService.getUserLinks("reader", null, null).links();
+
+        assertEquals(List.of("rep001"), links.stream().map(LinkView::shortCode).toList());
+    }
+
+    @Test
+    void getUserLinks_afterOwnWrite_servedByPrimary() {
+        insertOnReplica(1_000_002L, "rep002", "https://replica.example.com", "writer");
+        Link created = linksService.createShortLink("writer", "https://example.com/writer", null).link();
+
+        List<LinkView> links = linksService.getUserLinks("writer", null, null).links();
+
+        assertEquals(List.of(created.getShortCode()), links.stream().map(LinkView::shortCode).toList());
+    }
+
+    @Test
+    void createShortLink_writesToPrimaryOnly() {
+        Link created = linksService.createShortLink("creator", "https://example.com/created", null).link();
+
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM links WHERE short_code = ?", Integer.class, created.getShortCode()));
+        // Not on the replica yet, so the read-only lookup has to fall back to the primary
+        assertEquals(created.getId(), linksService.getLink(created.getShortCode()).id());
+    }
+
+    @Test
+    void click_lookupFromReplica_countWrittenToPrimary() {
+        Link created = linksService.createShortLink("clicker", "https://example.com/clicked", null).link();
+        insertOnReplica(created.getId(), created.getShortCode(), "https://replica.example.com", "clicker");
+
+        ClickResult result = linksService.click(created.getShortCode());
+        clickCounter.flushAll();
+
+        assertEquals(ClickOutcome.RECORDED, result.outcome());
+        assertEquals("https://replica.example.com", result.link().originalUrl());
+        String countSql = "SELECT click_count FROM links WHERE id = ?";
+        assertEquals(1, jdbcTemplate.queryForObject(countSql, Integer.class, created.getId()));
+        assertEquals(0, replica.queryForObject(countSql, Integer.class, created.getId()));
+    }
+
+    @Test
+    void click_afterUpdate_lookupSkipsLaggingReplica() {
+        Link created = linksService.createShortLink("updater", "https://example.com/updated", null).link();
+        String code = created.getShortCode();
+        // The replica keeps the row as it was before the update
+        insertOnReplica(created.getId(), code, created.getOriginalUrl(), "updater");
+        assertEquals(ClickOutcome.RECORDED, linksService.click(code).outcome());
+
+        linksService.updateLink(code, "updater", 2);
+        List<ClickOutcome> outcomes = IntStream.range(0, 5).mapToObj(i -> linksService.click(code).outcome()).toList();
+        clickCounter.flushAll();
+
+        assertEquals(List.of(ClickOutcome.RECORDED, ClickOutcome.LIMIT_REACHED, ClickOutcome.LIMIT_REACHED,
+                ClickOutcome.LIMIT_REACHED, ClickOutcome.LIMIT_REACHED), outcomes);
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT click_count FROM links WHERE id = ?", Integer.class, created.getId()));
+    }
+}
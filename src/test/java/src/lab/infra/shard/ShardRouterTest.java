@@ -0,0 +1,174 @@
+package src.lab.infra.shard;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import src.lab.infra.settings.AppConfig;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRouterTest {
+
+    private static final int CODES = 20_000;
+
+    private AppConfig config;
+    private ShardRouter router;
+
+    @BeforeEach
+    void setUp() {
+        config = new AppConfig();
+        config.getShard().setEnabled(true);
+        config.getShard().setUrls(List.of("jdbc:h2:mem:shard-a", "jdbc:h2:mem:shard-b"));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (router != null) {
+            router.shutdown();
+        }
+    }
+
+    private ShardRouter router() {
+        router = new ShardRouter(config);
+        return router;
+    }
+
+    private static String code(int i) {
+        return "c" + Integer.toString(i, 36);
+    }
+
+    @Test
+    void shardOf_spreadsCodesEvenly() {
+        int[] counts = new int[4];
+        for (int i = 0; i < CODES; i++) {
+            counts[ShardRouter.shardOf(code(i), 4)]++;
+        }
+
+        for (int count : counts) {
+            assertTrue(Math.abs(count - CODES / 4) < CODES / 40, "shard holds " + count);
+        }
+    }
+
+    @Test
+    void shardOf_addingShard_movesOnlyItsShareAndOnlyToIt() {
+        int moved = 0;
+        for (int i = 0; i < CODES; i++) {
+            int before = ShardRouter.shardOf(code(i), 4);
+            int after = ShardRouter.shardOf(code(i), 5);
+            if (before != after) {
+                assertEquals(4, after);
+                moved++;
+            }
+        }
+
+        assertTrue(Math.abs(moved - CODES / 5) < CODES / 50, "moved " + moved);
+    }
+
+    @Test
+    void disabled_runsEverythingInlineOnOneShard() {
+        config.getShard().setEnabled(false);
+        ShardRouter router = router();
+        Thread caller = Thread.currentThread();
+
+        assertEquals(1, router.shardCount());
+        assertEquals(0, router.shardOf("abc123"));
+        assertEquals(List.of(true), router.fanOut(() -> Thread.currentThread() == caller));
+        assertEquals(Map.of(0, List.of("a", "b")), router.groupByShard(List.of("a", "b")));
+    }
+
+    @Test
+    void fanOut_runsOncePerShardInShardOrder() {
+        ShardRouter router = router();
+        AtomicInteger runs = new AtomicInteger();
+
+        List<Integer> results = router.fanOut(runs::incrementAndGet);
+
+        assertEquals(3, results.size());
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    void fanOut_failureOnOneShard_isRethrown() {
+        ShardRouter router = router();
+
+        assertThrows(IllegalArgumentException.class, () -> router.fanOut(() -> {
+            throw new IllegalArgumentException("shard down");
+        }));
+    }
+
+    @Test
+    void groupByShard_keepsCodesWithTheirOwner() {
+        ShardRouter router = router();
+        List<String> codes = List.of(code(1), code(2), code(3), code(4), code(5), code(6));
+
+        Map<Integer, List<String>> groups = router.groupByShard(codes);
+
+        groups.forEach((shard, group) -> group.forEach(code -> assertEquals(shard, router.shardOf(code))));
+        assertEquals(codes.size(), groups.values().stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    void forCode_missBeforeRebalanceRecorded_triesOtherShardsThenOwnerAgain() {
+        ShardRouter router = router();
+        AtomicInteger calls = new AtomicInteger();
+
+        int found = router.forCode("abc123", calls::incrementAndGet, call -> true);
+
+        assertFalse(router.isBalanced());
+        assertEquals(4, found);
+    }
+
+    @Test
+    void forCode_missOnceBalanced_asksOwnerOnly() {
+        ShardRouter router = router();
+        AtomicInteger calls = new AtomicInteger();
+
+        router.markBalanced();
+        router.forCode("abc123", calls::incrementAndGet, call -> true);
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void forCodes_beforeRebalanceRecorded_asksEveryShardForAllCodes() {
+        ShardRouter router = router();
+        List<String> codes = List.of(code(1), code(2), code(3));
+
+        List<String> asked = router.forCodes(codes, group -> group);
+
+        assertEquals(codes.size() * router.shardCount(), asked.size());
+    }
+
+    @Test
+    void forCodes_balanced_asksOwnersOnly() {
+        ShardRouter router = router();
+        List<String> codes = List.of(code(1), code(2), code(3), code(4));
+
+        router.markBalanced();
+        List<Integer> askedOn = router.forCodes(codes, group -> List.of(router.shardOf(group.get(0))));
+
+        assertEquals(router.groupByShard(codes).keySet().stream().toList(), askedOn);
+    }
+
+    @Test
+    void disabled_isBalanced() {
+        config.getShard().setEnabled(false);
+
+        ShardRouter router = router();
+        router.markUnbalanced();
+
+        assertTrue(router.isBalanced());
+    }
+
+    @Test
+    void enabled_withWriteBehindClicks_isRejected() {
+        config.getLink().getClicks().setMode(AppConfig.ClickMode.WRITE_BEHIND);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, this::router);
+        assertTrue(e.getMessage().contains("app.link.clicks.mode"));
+    }
+}
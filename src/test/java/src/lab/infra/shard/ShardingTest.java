@@ -0,0 +1,285 @@
+package src.lab.infra.shard;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.Link;
+import src.lab.db.models.LinkCreation;
+import src.lab.db.models.LinkDraft;
+import src.lab.db.models.LinkPage;
+import src.lab.exceptions.LinkNotFoundException;
+import src.lab.services.CleanupService;
+import src.lab.services.LinksService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Three in-memory H2 databases: spring.datasource is shard 0, app.shard.urls are shards 1 and 2
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "spring.jpa.open-in-view=false",
+        "app.shard.enabled=true",
+        "app.shard.urls[0]=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "app.shard.urls[1]=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1",
+        "app.shard.rebalance-batch-size=7",
+        "app.shard.admin-token=shard-admin",
+        // Tests decide when the layout is checked
+        "app.shard.layout-check-seconds=3600"
+})
+class ShardingTest {
+
+    @Autowired
+    private LinksService linksService;
+
+    @Autowired
+    private CleanupService cleanupService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            shards.add(new JdbcTemplate(shardRouter.dataSource(shard)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (JdbcTemplate shard : shards) {
+            shard.update("DELETE FROM links");
+            shard.update("DELETE FROM users");
+        }
+        // Empty shards count as balanced, whatever a test left in shard_layout
+        shardRebalancer.checkLayout();
+    }
+
+    private List<Link> createLinks(String userId, int count) {
+        List<LinkDraft> drafts = IntStream.range(0, count)
+                .mapToObj(i -> new LinkDraft("https://example.com/" + userId + "/" + i, null))
+                .toList();
+        return linksService.createShortLinks(userId, drafts).stream().map(LinkCreation::link).toList();
+    }
+
+    private int countOn(int shard, String shortCode) {
+        return shards.get(shard).queryForObject("SELECT COUNT(*) FROM links WHERE short_code = ?", Integer.class, shortCode);
+    }
+
+    private void insertOn(int shard, long id, String shortCode, String userId, int clickCount, LocalDateTime expiresAt) {
+        LocalDateTime now = LocalDateTime.now();
+        shards.get(shard).update("INSERT INTO users (id, created_at) SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM users WHERE id = ?)",
+                userId, now, userId);
+        shards.get(shard).update("""
+                INSERT INTO links (id, short_code, original_url, user_id, click_limit, click_count, created_at, expires_at)
+                VALUES (?, ?, 'https://example.com/inserted', ?, 100, ?, ?, ?)""", id, shortCode, userId, clickCount, now, expiresAt);
+    }
+
+    // A code that hashes to the given shard
+    private String codeOwnedBy(int shard, String prefix) {
+        return IntStream.range(0, 1000)
+                .mapToObj(i -> prefix + i)
+                .filter(code -> shardRouter.shardOf(code) == shard)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void createShortLinks_eachLinkLandsOnlyOnItsShard() {
+        List<Link> links = createLinks("spread", 30);
+
+        Set<Integer> used = new HashSet<>();
+        for (Link link : links) {
+            int owner = shardRouter.shardOf(link.getShortCode());
+            used.add(owner);
+            for (int shard = 0; shard < shards.size(); shard++) {
+                assertEquals(shard == owner ? 1 : 0, countOn(shard, link.getShortCode()));
+            }
+        }
+        assertEquals(3, used.size());
+        // Every shard has a links_seq of its own, started in a range no other shard uses
+        assertEquals(links.size(), links.stream().map(Link::getId).distinct().count());
+    }
+
+    @Test
+    void createShortLink_userCreatedOnOwningShard() {
+        Link link = linksService.createShortLink("single", "https://example.com/single", null).link();
+
+        int owner = shardRouter.shardOf(link.getShortCode());
+        assertEquals(1, shards.get(owner).queryForObject("SELECT COUNT(*) FROM users WHERE id = 'single'", Integer.class));
+        assertEquals(link.getId(), linksService.getLink(link.getShortCode()).id());
+    }
+
+    @Test
+    void getUserLinks_mergesShardsAndPagesInIdOrder() {
+        List<Long> created = createLinks("pager", 25).stream().map(Link::getId).sorted().toList();
+
+        List<Long> listed = new ArrayList<>();
+        Long afterId = null;
+        do {
+            LinkPage page = linksService.getUserLinks("pager", afterId, 10);
+            page.links().forEach(link -> listed.add(link.id()));
+            afterId = page.nextAfterId();
+        } while (afterId != null);
+
+        assertEquals(created, listed);
+    }
+
+    @Test
+    void click_countedOnOwningShard() {
+        Link link = linksService.createShortLink("clicker", "https://example.com/clicked", null).link();
+
+        assertEquals(ClickOutcome.RECORDED, linksService.click(link.getShortCode()).outcome());
+
+        int owner = shardRouter.shardOf(link.getShortCode());
+        assertEquals(1, shards.get(owner).queryForObject("SELECT click_count FROM links WHERE id = ?", Integer.class, link.getId()));
+    }
+
+    @Test
+    void cleanupExpiredLinks_deletesOnEveryShard() {
+        LocalDateTime past = LocalDateTime.now().minusHours(1);
+        for (int shard = 0; shard < shards.size(); shard++) {
+            insertOn(shard, ((long) shard << 40) + 900_000, codeOwnedBy(shard, "exp"), "expired", 0, past);
+        }
+
+        cleanupService.cleanupExpiredLinks();
+
+        for (JdbcTemplate shard : shards) {
+            assertEquals(0, shard.queryForObject("SELECT COUNT(*) FROM links", Integer.class));
+        }
+    }
+
+    @Test
+    void rebalance_movesMisplacedLinksToTheirOwnerWithCounts() {
+        List<Link> placed = createLinks("placed", 10);
+        String misplaced = codeOwnedBy(2, "moved");
+        long id = 900_001L;
+        insertOn(0, id, misplaced, "mover", 7, LocalDateTime.now().plusHours(1));
+
+        ShardRebalancer.Result result = shardRebalancer.rebalance();
+
+        assertEquals(1, result.moved());
+        assertEquals(0, result.conflicts());
+        assertEquals(0, countOn(0, misplaced));
+        assertEquals(7, shards.get(2).queryForObject("SELECT click_count FROM links WHERE id = ?", Integer.class, id));
+        assertEquals(id, linksService.getLink(misplaced).id());
+        for (Link link : placed) {
+            assertEquals(1, countOn(shardRouter.shardOf(link.getShortCode()), link.getShortCode()));
+        }
+        assertEquals(0, shardRebalancer.rebalance().moved());
+        assertEquals(1, shards.get(0).queryForObject("SELECT COUNT(*) FROM shard_layout WHERE shard_count = 3", Integer.class));
+    }
+
+    @Test
+    void rebalance_movedLinkKeepsUrlHashAndIdempotencyKey() {
+        String misplaced = codeOwnedBy(2, "keyed");
+        long id = 900_002L;
+        insertOn(0, id, misplaced, "keeper", 0, LocalDateTime.now().plusHours(1));
+        shards.get(0).update("UPDATE links SET url_hash = 42, idempotency_key = 42 WHERE id = ?", id);
+
+        assertEquals(1, shardRebalancer.rebalance().moved());
+
+        Map<String, Object> moved = shards.get(2).queryForMap("SELECT url_hash, idempotency_key FROM links WHERE id = ?", id);
+        assertEquals(42L, ((Number) moved.get("url_hash")).longValue());
+        assertEquals(42L, ((Number) moved.get("idempotency_key")).longValue());
+    }
+
+    @Test
+    void shardAdded_linkOnFormerShardReachableUntilRebalanceRecorded() {
+        // As after appending a URL to app.shard.urls: a link sits where the smaller shard count put it
+        shards.get(0).update("DELETE FROM shard_layout");
+        shardRouter.markUnbalanced();
+        String code = codeOwnedBy(2, "early");
+        long id = 900_002L;
+        insertOn(0, id, code, "early", 0, LocalDateTime.now().plusHours(1));
+
+        shardRebalancer.checkLayout();
+        assertFalse(shardRouter.isBalanced());
+        assertEquals(id, linksService.getLink(code).id());
+        assertEquals(ClickOutcome.RECORDED, linksService.click(code).outcome());
+
+        assertEquals(1, shardRebalancer.rebalance().moved());
+
+        assertTrue(shardRouter.isBalanced());
+        assertEquals(1, shards.get(2).queryForObject("SELECT click_count FROM links WHERE id = ?", Integer.class, id));
+        assertEquals(id, linksService.getLink(code).id());
+    }
+
+    @Test
+    void shardAdded_linkOnFormerShardUpdatableAndDeletableUntilRebalanced() {
+        shards.get(0).update("DELETE FROM shard_layout");
+        shardRouter.markUnbalanced();
+        String updated = codeOwnedBy(2, "patched");
+        String deleted = codeOwnedBy(1, "removed");
+        insertOn(0, 900_005L, updated, "owner", 0, LocalDateTime.now().plusHours(1));
+        insertOn(0, 900_006L, deleted, "owner", 0, LocalDateTime.now().plusHours(1));
+        shardRebalancer.checkLayout();
+        assertFalse(shardRouter.isBalanced());
+
+        assertEquals(40, linksService.updateLink(updated, "owner", 40).getClickLimit());
+        linksService.deleteLink(deleted, "owner");
+
+        assertEquals(40, shards.get(0).queryForObject("SELECT click_limit FROM links WHERE short_code = ?", Integer.class, updated));
+        assertEquals(0, countOn(0, deleted));
+        assertEquals(0, countOn(1, deleted));
+        assertThrows(LinkNotFoundException.class, () -> linksService.deleteLink(deleted, "owner"));
+    }
+
+    @Test
+    void rebalance_codeAlreadyOnOwner_leavesLinkInPlaceAndCompletes() {
+        String code = codeOwnedBy(2, "twice");
+        long misplacedId = 900_003L;
+        long ownerId = (2L << 40) + 900_003L;
+        insertOn(0, misplacedId, code, "first", 5, LocalDateTime.now().plusHours(1));
+        insertOn(2, ownerId, code, "second", 0, LocalDateTime.now().plusHours(1));
+
+        ShardRebalancer.Result result = shardRebalancer.rebalance();
+
+        assertEquals(0, result.moved());
+        assertEquals(1, result.conflicts());
+        assertEquals(1, countOn(0, code));
+        assertEquals(1, countOn(2, code));
+        assertEquals(ownerId, linksService.getLink(code).id());
+        assertTrue(shardRouter.isBalanced());
+    }
+
+    @Test
+    void rebalanceEndpoint_requiresAdminToken() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        insertOn(0, 900_004L, codeOwnedBy(1, "api"), "api", 0, LocalDateTime.now().plusHours(1));
+
+        mockMvc.perform(post("/api/admin/shards/rebalance"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/admin/shards/rebalance").header("X-Admin-Token", "wrong"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/admin/shards/rebalance").header("X-Admin-Token", "shard-admin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.shards").value(3))
+                .andExpect(jsonPath("$.moved").value(1))
+                .andExpect(jsonPath("$.conflicts").value(0));
+    }
+}
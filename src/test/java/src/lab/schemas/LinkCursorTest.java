@@ -0,0 +1,35 @@
+package src.lab.schemas;
+
+import org.junit.jupiter.api.Test;
+import src.lab.exceptions.InvalidCursorException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkCursorTest {
+
+    @Test
+    void encode_decode_roundTrips() {
+        String cursor = LinkCursor.encode(12345L);
+
+        assertEquals(12345L, LinkCursor.decode(cursor));
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void encode_noNextPage_returnsNull() {
+        assertNull(LinkCursor.encode(null));
+    }
+
+    @Test
+    void decode_missingCursor_returnsNull() {
+        assertNull(LinkCursor.decode(null));
+        assertNull(LinkCursor.decode(""));
+    }
+
+    @Test
+    void decode_malformedCursor_throws() {
+        assertThrows(InvalidCursorException.class, () -> LinkCursor.decode("not a cursor"));
+        assertThrows(InvalidCursorException.class, () -> LinkCursor.decode("AAAA"));
+        assertThrows(InvalidCursorException.class, () -> LinkCursor.decode(LinkCursor.encode(-1L)));
+    }
+}
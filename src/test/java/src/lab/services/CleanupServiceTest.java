@@ -3,20 +3,25 @@ package src.lab.services;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import src.lab.db.models.Link;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
 import src.lab.db.repositories.LinksRepository;
+import src.lab.db.store.LogLinkStore;
+import src.lab.infra.cache.LinkCache;
+import src.lab.infra.cache.LinkEviction;
+import src.lab.infra.cache.NegativeLinkCache;
+import src.lab.infra.settings.AppConfig;
+import src.lab.infra.shard.ShardRouter;
 import src.lab.services.impl.CleanupServiceImpl;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,43 +30,85 @@ class CleanupServiceTest {
     @Mock
     private LinksRepository linkRepository;
 
-    @InjectMocks
-    private CleanupServiceImpl cleanupService;
+    @Mock
+    private LinkCache linkCache;
+
+    @Mock
+    private NegativeLinkCache negativeLinkCache;
+
+    @Mock
+    private ObjectProvider<LogLinkStore> logLinkStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
-    private Link expiredLink1;
-    private Link expiredLink2;
+    private AppConfig config;
 
     @BeforeEach
     void setUp() {
-        expiredLink1 = new Link();
-        expiredLink1.setId(1L);
-        expiredLink1.setShortCode("exp1");
-        expiredLink1.setExpiresAt(LocalDateTime.now().minusHours(1));
-
-        expiredLink2 = new Link();
-        expiredLink2.setId(2L);
-        expiredLink2.setShortCode("exp2");
-        expiredLink2.setExpiresAt(LocalDateTime.now().minusHours(2));
+        config = new AppConfig();
+        config.getCleanup().setChunkSize(2);
+        config.getCleanup().setPauseMs(0);
+    }
+
+    private CleanupServiceImpl cleanupService() {
+        return new CleanupServiceImpl(linkRepository, new LinkEviction(linkCache, negativeLinkCache, logLinkStore),
+                new ShardRouter(config), transactionManager, config);
+    }
+
+    @Test
+    void cleanupExpiredLinks_backlog_deletesInChunksUntilDrained() {
+        when(linkRepository.deleteExpired(any(LocalDateTime.class), eq(2)))
+                .thenReturn(List.of("exp1", "exp2"), List.of("exp3", "exp4"), List.of("exp5"));
+
+        cleanupService().cleanupExpiredLinks();
+
+        verify(linkRepository, times(3)).deleteExpired(any(LocalDateTime.class), eq(2));
+        verify(transactionManager, times(3)).commit(any());
+        verify(negativeLinkCache, times(5)).linkDeleted(anyString());
+    }
+
+    @Test
+    void cleanupExpiredLinks_noExpiredLinks_runsOneChunk() {
+        when(linkRepository.deleteExpired(any(LocalDateTime.class), eq(2))).thenReturn(List.of());
+
+        cleanupService().cleanupExpiredLinks();
+
+        verify(linkRepository, times(1)).deleteExpired(any(LocalDateTime.class), eq(2));
+        verifyNoInteractions(negativeLinkCache);
+    }
+
+    @Test
+    void cleanupExpiredLinks_timeBudgetSpent_leavesRestForNextRun() {
+        config.getCleanup().setTimeBudgetSeconds(0);
+        when(linkRepository.deleteExpired(any(LocalDateTime.class), eq(2))).thenReturn(List.of("exp1", "exp2"));
+
+        cleanupService().cleanupExpiredLinks();
+
+        verify(linkRepository, times(1)).deleteExpired(any(LocalDateTime.class), eq(2));
     }
 
     @Test
-    void cleanupExpiredLinks_withExpiredLinks_deletesAll() {
-        List<Link> expiredLinks = Arrays.asList(expiredLink1, expiredLink2);
-        when(linkRepository.findByExpiresAtBefore(any(LocalDateTime.class))).thenReturn(expiredLinks);
+    void cleanupExpiredLinks_usesOneCutoffForAllChunks() {
+        when(linkRepository.deleteExpired(any(LocalDateTime.class), eq(2))).thenReturn(List.of("exp1", "exp2"), List.of());
 
-        cleanupService.cleanupExpiredLinks();
+        cleanupService().cleanupExpiredLinks();
 
-        verify(linkRepository).findByExpiresAtBefore(any(LocalDateTime.class));
-        verify(linkRepository).deleteAll(expiredLinks);
+        verify(linkRepository, times(2)).deleteExpired(argThat(cutoff -> !cutoff.isAfter(LocalDateTime.now())), eq(2));
+        verify(negativeLinkCache).linkDeleted("exp1");
+        verify(negativeLinkCache).linkDeleted("exp2");
     }
 
     @Test
-    void cleanupExpiredLinks_noExpiredLinks_doesNotDelete() {
-        when(linkRepository.findByExpiresAtBefore(any(LocalDateTime.class))).thenReturn(Collections.emptyList());
+    void cleanupExpiredLinks_logStore_evictsDeletedCodesEverywhere() {
+        LogLinkStore store = mock(LogLinkStore.class);
+        when(logLinkStore.getIfAvailable()).thenReturn(store);
+        when(linkRepository.deleteExpired(any(LocalDateTime.class), eq(2))).thenReturn(List.of("exp1"));
 
-        cleanupService.cleanupExpiredLinks();
+        cleanupService().cleanupExpiredLinks();
 
-        verify(linkRepository).findByExpiresAtBefore(any(LocalDateTime.class));
-        verify(linkRepository, never()).deleteAll(anyList());
+        verify(linkCache).invalidate("exp1");
+        verify(negativeLinkCache).linkDeleted("exp1");
+        verify(store).delete("exp1");
     }
 }
@@ -0,0 +1,109 @@
+package src.lab.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import src.lab.exceptions.ShortCodeGenerationException;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.impl.HiLoShortCodeGenerator;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HiLoShortCodeGeneratorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private AppConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new AppConfig();
+        config.getLink().setShortCodeLength(6);
+        config.getLink().getCodes().setBlockSize(100);
+    }
+
+    @Test
+    void generate_leasesOneBlockPerBlockSizeCodes() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L, 1L, 2L);
+        HiLoShortCodeGenerator generator = new HiLoShortCodeGenerator(jdbcTemplate, config);
+
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 250; i++) {
+            codes.add(generator.generate("user1", "https://example.com", 0));
+        }
+
+        assertEquals(250, codes.size());
+        assertTrue(codes.stream().allMatch(code -> code.matches("[0-9A-Za-z]{6}")));
+        verify(jdbcTemplate, times(3)).queryForObject(anyString(), eq(Long.class));
+    }
+
+    @Test
+    void generate_sameInputs_differentCodes() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        HiLoShortCodeGenerator generator = new HiLoShortCodeGenerator(jdbcTemplate, config);
+
+        String first = generator.generate("user1", "https://example.com", 0);
+        String second = generator.generate("user1", "https://example.com", 0);
+
+        assertNotEquals(first, second);
+        assertTrue(generator.isCollisionFree());
+    }
+
+    @Test
+    void generate_blocksFromOtherInstancesNeverOverlap() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L, 1L);
+        HiLoShortCodeGenerator first = new HiLoShortCodeGenerator(jdbcTemplate, config);
+        HiLoShortCodeGenerator second = new HiLoShortCodeGenerator(jdbcTemplate, config);
+
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            codes.add(first.generate("user1", "https://example.com", 0));
+            codes.add(second.generate("user1", "https://example.com", 0));
+        }
+
+        assertEquals(200, codes.size());
+    }
+
+    @Test
+    void generate_codeSpaceExhausted_throwsException() {
+        config.getLink().setShortCodeLength(1);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        HiLoShortCodeGenerator generator = new HiLoShortCodeGenerator(jdbcTemplate, config);
+
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 62; i++) {
+            codes.add(generator.generate("user1", "https://example.com", 0));
+        }
+
+        assertEquals(62, codes.size());
+        assertThrows(ShortCodeGenerationException.class, () -> generator.generate("user1", "https://example.com", 0));
+    }
+
+    @Test
+    void constructor_recordsBlockSizeNextToSequence() {
+        new HiLoShortCodeGenerator(jdbcTemplate, config);
+
+        verify(jdbcTemplate).update(contains("short_code_block_size"), eq(100), eq(100));
+    }
+
+    @Test
+    void constructor_blockSizeBelowRecorded_refusesToStart() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class))).thenReturn(List.of(1000));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new HiLoShortCodeGenerator(jdbcTemplate, config));
+
+        assertTrue(e.getMessage().contains("may only grow"));
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Long.class));
+    }
+}
@@ -0,0 +1,119 @@
+package src.lab.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.LinkState;
+import src.lab.db.models.QuotaGrant;
+import src.lab.db.repositories.LinksRepository;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.impl.LeasedClickCounter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LeasedClickCounterTest {
+
+    @Mock
+    private LinksRepository linkRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LeasedClickCounter clickCounter;
+    private LinkState link;
+
+    @BeforeEach
+    void setUp() {
+        AppConfig config = new AppConfig();
+        config.getLink().getClicks().setLeaseSize(100);
+        config.getLink().getClicks().setLeaseSeconds(30);
+        clickCounter = new LeasedClickCounter(linkRepository, transactionManager, config);
+        link = new LinkState(1L, "abc123", "https://example.com", "user1", 1000, 0, LocalDateTime.now().plusHours(1));
+    }
+
+    @Test
+    void record_servesClicksFromLeaseWithoutDatabase() {
+        when(linkRepository.reserveClicks(eq("abc123"), anyInt(), any(LocalDateTime.class), anyString(), any(LocalDateTime.class))).thenReturn(QuotaGrant.granted(link, 8));
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(ClickOutcome.RECORDED, clickCounter.record("abc123").outcome());
+        }
+
+        verify(linkRepository, times(1)).reserveClicks(eq("abc123"), eq(8), any(LocalDateTime.class), anyString(), any(LocalDateTime.class));
+        verify(linkRepository, never()).settleClicks(anyLong(), anyInt(), anyInt(), anyString());
+    }
+
+    @Test
+    void record_leaseExhausted_settlesAndDoublesNextLease() {
+        when(linkRepository.reserveClicks(eq("abc123"), anyInt(), any(LocalDateTime.class), anyString(), any(LocalDateTime.class)))
+                .thenReturn(QuotaGrant.granted(link, 8))
+                .thenReturn(QuotaGrant.granted(link, 16));
+
+        for (int i = 0; i < 9; i++) {
+            clickCounter.record("abc123");
+        }
+
+        verify(linkRepository).settleClicks(eq(1L), eq(8), eq(8), anyString());
+        verify(linkRepository).reserveClicks(eq("abc123"), eq(16), any(LocalDateTime.class), anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void record_quotaRefused_returnsRejection() {
+        LinkState exhausted = new LinkState(1L, "abc123", "https://example.com", "user1", 10, 10, LocalDateTime.now().plusHours(1));
+        when(linkRepository.reserveClicks(eq("abc123"), anyInt(), any(LocalDateTime.class), anyString(), any(LocalDateTime.class)))
+                .thenReturn(QuotaGrant.refused(ClickResult.rejected(exhausted)));
+
+        ClickResult result = clickCounter.record("abc123");
+
+        assertEquals(ClickOutcome.LIMIT_REACHED, result.outcome());
+    }
+
+    @Test
+    void shutdown_returnsUnusedQuota() {
+        when(linkRepository.reserveClicks(eq("abc123"), anyInt(), any(LocalDateTime.class), anyString(), any(LocalDateTime.class))).thenReturn(QuotaGrant.granted(link, 8));
+        clickCounter.record("abc123");
+        clickCounter.record("abc123");
+
+        clickCounter.shutdown();
+
+        verify(linkRepository).settleClicks(eq(1L), eq(2), eq(8), anyString());
+    }
+
+    @Test
+    void record_leaseRowOutlivesInMemoryLeaseAndIsSettledByItsOwner() {
+        when(linkRepository.reserveClicks(eq("abc123"), anyInt(), any(LocalDateTime.class), anyString(), any(LocalDateTime.class)))
+                .thenReturn(QuotaGrant.granted(link, 8));
+        clickCounter.record("abc123");
+        clickCounter.shutdown();
+
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<String> owner = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<LocalDateTime> expiresAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(linkRepository).reserveClicks(eq("abc123"), eq(8), now.capture(), owner.capture(), expiresAt.capture());
+        assertEquals(Duration.ofSeconds(90), Duration.between(now.getValue(), expiresAt.getValue()));
+        verify(linkRepository).settleClicks(1L, 1, 8, owner.getValue());
+        // Each grant and settle commits on its own
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void releaseExpiredLeases_reclaimsAbandonedLeasesChunkByChunk() {
+        when(linkRepository.reclaimExpiredLeases(any(LocalDateTime.class), eq(500))).thenReturn(500, 3);
+
+        clickCounter.releaseExpiredLeases();
+
+        verify(linkRepository, times(2)).reclaimExpiredLeases(any(LocalDateTime.class), eq(500));
+    }
+}
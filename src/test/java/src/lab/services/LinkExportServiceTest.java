@@ -0,0 +1,106 @@
+package src.lab.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import src.lab.db.models.ExportFormat;
+import src.lab.db.models.LinkExport;
+import src.lab.db.repositories.LinksRepository;
+import src.lab.exceptions.InvalidExportFormatException;
+import src.lab.infra.settings.AppConfig;
+import src.lab.infra.shard.ShardRouter;
+import src.lab.services.impl.LinkExportServiceImpl;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LinkExportServiceTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2026, 1, 14, 20, 0);
+
+    @Mock
+    private LinksRepository linkRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LinkExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new LinkExportServiceImpl(linkRepository, new ShardRouter(new AppConfig()), transactionManager,
+                JsonMapper.builder().build());
+    }
+
+    private LinkExport row(String shortCode, String url) {
+        return new LinkExport(shortCode, url, 10, 3, CREATED_AT, LocalDateTime.now().plusHours(1));
+    }
+
+    private String export(ExportFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportUserLinks("user1", format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void export_ndjson_writesOneObjectPerLine() throws Exception {
+        when(linkRepository.streamByUserId("user1")).thenReturn(Stream.of(row("abc1", "https://example.com/1"), row("abc2", "https://example.com/2")));
+
+        String[] lines = export(ExportFormat.NDJSON).split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{") && lines[0].endsWith("}"));
+        assertTrue(lines[0].contains("\"shortCode\":\"abc1\""));
+        assertTrue(lines[0].contains("\"createdAt\":\"2026-01-14T20:00:00\""));
+        assertTrue(lines[1].contains("\"originalUrl\":\"https://example.com/2\""));
+        assertTrue(lines[1].contains("\"active\":true"));
+    }
+
+    @Test
+    void export_csv_writesHeaderAndQuotesSpecialCharacters() throws Exception {
+        when(linkRepository.streamByUserId("user1")).thenReturn(Stream.of(row("abc1", "https://example.com/a,\"b\"")));
+
+        String[] lines = export(ExportFormat.CSV).split("\n");
+
+        assertEquals("short_code,original_url,click_limit,click_count,created_at,expires_at,active", lines[0]);
+        assertTrue(lines[1].startsWith("abc1,\"https://example.com/a,\"\"b\"\"\",10,3,2026-01-14T20:00:00,"));
+        assertTrue(lines[1].endsWith(",true"));
+    }
+
+    @Test
+    void export_noLinks_writesOnlyCsvHeader() throws Exception {
+        when(linkRepository.streamByUserId("user1")).thenReturn(Stream.empty());
+
+        assertEquals("", export(ExportFormat.NDJSON));
+        when(linkRepository.streamByUserId("user1")).thenReturn(Stream.empty());
+        assertEquals(1, export(ExportFormat.CSV).split("\n").length);
+    }
+
+    @Test
+    void export_closesRepositoryStream() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(linkRepository.streamByUserId("user1")).thenReturn(Stream.of(row("abc1", "https://example.com")).onClose(() -> closed.set(true)));
+
+        export(ExportFormat.NDJSON);
+
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void exportFormat_of_isCaseInsensitiveAndRejectsUnknown() {
+        assertEquals(ExportFormat.CSV, ExportFormat.of("csv"));
+        assertEquals(ExportFormat.NDJSON, ExportFormat.of("NDJSON"));
+        assertThrows(InvalidExportFormatException.class, () -> ExportFormat.of("xml"));
+    }
+}
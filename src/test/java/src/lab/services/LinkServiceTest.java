@@ -5,16 +5,32 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.ClickResult;
 import src.lab.db.models.Link;
+import src.lab.db.models.LinkCreation;
+import src.lab.db.models.LinkDraft;
+import src.lab.db.models.LinkPage;
+import src.lab.db.models.LinkState;
+import src.lab.db.models.LinkView;
 import src.lab.db.models.User;
 import src.lab.db.repositories.LinksRepository;
 import src.lab.exceptions.*;
+import src.lab.infra.cache.LinkCache;
+import src.lab.infra.cache.LinkSnapshot;
+import src.lab.infra.cache.NegativeLinkCache;
+import src.lab.infra.replica.ReplicaRouter;
 import src.lab.infra.settings.AppConfig;
+import src.lab.infra.shard.ShardRouter;
 import src.lab.services.impl.LinkServiceImpl;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,6 +50,30 @@ class LinkServiceTest {
     @Mock
     private AppConfig config;
 
+    @Mock
+    private LinkCache linkCache;
+
+    @Mock
+    private ClickCounter clickCounter;
+
+    @Mock
+    private NegativeLinkCache negativeLinkCache;
+
+    @Mock
+    private LinkSnapshot linkSnapshot;
+
+    @Mock
+    private ShortCodeGenerator shortCodeGenerator;
+
+    @Spy
+    private ReplicaRouter replicaRouter = new ReplicaRouter(new AppConfig());
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(new AppConfig());
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private LinkServiceImpl linkService;
 
@@ -64,8 +104,11 @@ class LinkServiceTest {
 
     private void setupConfig() {
         when(config.getLink()).thenReturn(linkConfig);
+        when(shortCodeGenerator.generate(eq("user1"), eq("https://example.com"), anyInt()))
+                .thenAnswer(invocation -> "code" + invocation.getArgument(2));
     }
 
+
     @Test
     void createShortLink_validUrl_createsLink() {
         setupConfig();
@@ -73,7 +116,7 @@ class LinkServiceTest {
         when(linkRepository.findByShortCode(anyString())).thenReturn(Optional.empty());
         when(linkRepository.save(any(Link.class))).thenReturn(testLink);
 
-        Link result = linkService.createShortLink("user1", "https://example.com", 10);
+        Link result = linkService.createShortLink("user1", "https://example.com", 10).link();
 
         assertNotNull(result);
         verify(userService).getOrCreateUser("user1");
@@ -111,7 +154,7 @@ class LinkServiceTest {
                 .thenReturn(Optional.empty());
         when(linkRepository.save(any(Link.class))).thenReturn(testLink);
 
-        Link result = linkService.createShortLink("user1", "https://example.com", 10);
+        Link result = linkService.createShortLink("user1", "https://example.com", 10).link();
 
         assertNotNull(result);
         verify(linkRepository, atLeast(2)).findByShortCode(anyString());
@@ -127,30 +170,215 @@ class LinkServiceTest {
                 linkService.createShortLink("user1", "https://example.com", 10));
     }
 
+    @Test
+    void createShortLink_collisionFreeGenerator_skipsProbe() {
+        setupConfig();
+        when(shortCodeGenerator.isCollisionFree()).thenReturn(true);
+        when(userService.getOrCreateUser("user1")).thenReturn(testUser);
+        when(linkRepository.save(any(Link.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Link result = linkService.createShortLink("user1", "https://example.com", 10).link();
+
+        assertEquals("code0", result.getShortCode());
+        verify(linkRepository, never()).findByShortCode(anyString());
+    }
+
+    @Test
+    void createShortLink_collisionFreeCodeTakenAtInsert_retriesWithNextCode() {
+        when(config.getLink()).thenReturn(linkConfig);
+        when(shortCodeGenerator.isCollisionFree()).thenReturn(true);
+        when(shortCodeGenerator.generate("user1", "https://example.com", 0)).thenReturn("taken1", "free22");
+        when(userService.getOrCreateUser("user1")).thenReturn(testUser);
+        when(linkRepository.save(any(Link.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_links_short_code"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(linkRepository.existsByShortCode("taken1")).thenReturn(true);
+
+        Link result = linkService.createShortLink("user1", "https://example.com", 10).link();
+
+        assertEquals("free22", result.getShortCode());
+        verify(linkRepository, never()).findByShortCode(anyString());
+    }
+
+    @Test
+    void createShortLink_insertFailsWithCodeFree_rethrows() {
+        when(config.getLink()).thenReturn(linkConfig);
+        when(shortCodeGenerator.isCollisionFree()).thenReturn(true);
+        when(shortCodeGenerator.generate("user1", "https://example.com", 0)).thenReturn("code00");
+        when(userService.getOrCreateUser("user1")).thenReturn(testUser);
+        when(linkRepository.save(any(Link.class))).thenThrow(new DataIntegrityViolationException("fk_links_user"));
+        when(linkRepository.existsByShortCode("code00")).thenReturn(false);
+
+        assertThrows(DataIntegrityViolationException.class, () -> linkService.createShortLink("user1", "https://example.com", 10));
+        verify(linkRepository).save(any(Link.class));
+    }
+
+    private void returnAsExisting(Link link) {
+        when(linkRepository.findByUserIdAndUrlHashIn(eq("user1"), anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> hashes = invocation.getArgument(1);
+            link.setUrlHash(hashes.iterator().next());
+            return List.of(link);
+        });
+    }
+
+    @Test
+    void createShortLink_idempotentSameNormalizedUrl_returnsExistingLink() {
+        linkConfig.setIdempotentCreate(true);
+        when(config.getLink()).thenReturn(linkConfig);
+        returnAsExisting(testLink);
+
+        LinkCreation result = linkService.createShortLink("user1", "HTTPS://Example.com:443#top", 10);
+
+        assertSame(testLink, result.link());
+        assertTrue(result.existing());
+        verify(linkRepository, never()).save(any(Link.class));
+        verifyNoInteractions(userService, shortCodeGenerator);
+    }
+
+    @Test
+    void createShortLink_idempotentDifferentClickLimit_isConflict() {
+        linkConfig.setIdempotentCreate(true);
+        when(config.getLink()).thenReturn(linkConfig);
+        returnAsExisting(testLink);
+
+        assertThrows(LinkConflictException.class, () -> linkService.createShortLink("user1", "https://example.com", 20));
+        verify(linkRepository, never()).save(any(Link.class));
+    }
+
+    @Test
+    void createShortLink_idempotentConcurrentCreateWins_returnsItsLink() {
+        linkConfig.setIdempotentCreate(true);
+        setupConfig();
+        when(linkRepository.findByUserIdAndUrlHashIn(eq("user1"), anyCollection()))
+                .thenReturn(List.of())
+                .thenAnswer(invocation -> {
+                    Collection<Long> hashes = invocation.getArgument(1);
+                    testLink.setUrlHash(hashes.iterator().next());
+                    return List.of(testLink);
+                });
+        when(userService.getOrCreateUser("user1")).thenReturn(testUser);
+        when(linkRepository.findByShortCode(anyString())).thenReturn(Optional.empty());
+        when(linkRepository.save(any(Link.class))).thenThrow(new DataIntegrityViolationException("uk_links_user_idempotency_key"));
+
+        LinkCreation result = linkService.createShortLink("user1", "https://example.com", null);
+
+        assertSame(testLink, result.link());
+        assertTrue(result.existing());
+        verify(linkRepository).releaseIdempotencyKeys(eq("user1"), anyCollection(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void createShortLink_idempotentExistingExpired_createsNewLink() {
+        linkConfig.setIdempotentCreate(true);
+        setupConfig();
+        testLink.setExpiresAt(LocalDateTime.now().minusHours(1));
+        returnAsExisting(testLink);
+        when(userService.getOrCreateUser("user1")).thenReturn(testUser);
+        when(linkRepository.findByShortCode(anyString())).thenReturn(Optional.empty());
+        when(linkRepository.save(any(Link.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Link result = linkService.createShortLink("user1", "https://example.com", 10).link();
+
+        assertNotSame(testLink, result);
+        assertNotNull(result.getUrlHash());
+        assertEquals(result.getUrlHash(), result.getIdempotencyKey());
+    }
+
+    @Test
+    void createShortLinks_idempotentRepeatedUrl_createsOneLink() {
+        linkConfig.setIdempotentCreate(true);
+        setupBatch();
+        when(linkRepository.findByUserIdAndUrlHashIn(eq("user1"), anyCollection())).thenReturn(List.of());
+        when(linkRepository.findByShortCodeIn(anyCollection())).thenReturn(List.of());
+
+        List<LinkCreation> results = linkService.createShortLinks("user1", List.of(
+                new LinkDraft("https://a.example.com/", null),
+                new LinkDraft("https://A.example.com", null)));
+
+        assertSame(results.get(0).link(), results.get(1).link());
+        verify(linkRepository).saveAll(argThat((List<Link> links) -> links.size() == 1));
+    }
+
+    private void setupBatch() {
+        when(config.getLink()).thenReturn(linkConfig);
+        when(userService.getOrCreateUser("user1")).thenReturn(testUser);
+        when(shortCodeGenerator.generate(eq("user1"), anyString(), anyInt()))
+                .thenAnswer(invocation -> invocation.getArgument(1) + "#" + invocation.getArgument(2));
+    }
+
+    @Test
+    void createShortLinks_invalidItem_failsAloneAndRestIsSavedOnce() {
+        setupBatch();
+        when(linkRepository.findByShortCodeIn(anyCollection())).thenReturn(List.of());
+
+        List<LinkCreation> results = linkService.createShortLinks("user1", List.of(
+                new LinkDraft("https://a.example.com", 5),
+                new LinkDraft("not-a-url", null),
+                new LinkDraft("https://b.example.com", null)));
+
+        assertTrue(results.get(0).isSuccessful());
+        assertFalse(results.get(1).isSuccessful());
+        assertNotNull(results.get(1).error());
+        assertEquals(100, results.get(2).link().getClickLimit());
+        verify(userService, times(1)).getOrCreateUser("user1");
+        verify(linkRepository, times(1)).findByShortCodeIn(anyCollection());
+        verify(linkRepository).saveAll(argThat((List<Link> links) -> links.size() == 2));
+        verify(linkRepository, never()).findByShortCode(anyString());
+    }
+
+    @Test
+    void createShortLinks_existingCode_retriesOnlyThatItem() {
+        setupBatch();
+        Link existing = new Link();
+        existing.setShortCode("https://a.example.com#0");
+        when(linkRepository.findByShortCodeIn(anyCollection())).thenReturn(List.of(existing), List.of());
+
+        List<LinkCreation> results = linkService.createShortLinks("user1", List.of(
+                new LinkDraft("https://a.example.com", null),
+                new LinkDraft("https://b.example.com", null)));
+
+        assertEquals("https://a.example.com#1", results.get(0).link().getShortCode());
+        assertEquals("https://b.example.com#0", results.get(1).link().getShortCode());
+        verify(linkRepository, times(2)).findByShortCodeIn(anyCollection());
+    }
+
+    @Test
+    void createShortLinks_sameUrlTwice_getsDistinctCodes() {
+        setupBatch();
+        when(linkRepository.findByShortCodeIn(anyCollection())).thenReturn(List.of());
+
+        List<LinkCreation> results = linkService.createShortLinks("user1", List.of(
+                new LinkDraft("https://a.example.com", null),
+                new LinkDraft("https://a.example.com", null)));
+
+        assertNotEquals(results.get(0).link().getShortCode(), results.get(1).link().getShortCode());
+    }
+
     @Test
     void redirect_validLink_returnsUrlAndIncrementsCount() {
-        when(linkRepository.findByShortCode("abc123")).thenReturn(Optional.of(testLink));
-        when(linkRepository.save(any(Link.class))).thenReturn(testLink);
+        when(clickCounter.record("abc123")).thenReturn(ClickResult.recorded(LinkState.from(testLink)));
 
         String url = linkService.redirect("abc123");
 
         assertEquals("https://example.com", url);
-        verify(linkRepository).save(testLink);
-        assertEquals(1, testLink.getClickCount());
+        verify(clickCounter).record("abc123");
+        verify(linkRepository, never()).findByShortCode(anyString());
     }
 
     @Test
     void redirect_linkNotFound_throwsException() {
-        when(linkRepository.findByShortCode("xyz")).thenReturn(Optional.empty());
+        when(clickCounter.record("xyz")).thenReturn(ClickResult.notFound());
 
         assertThrows(LinkNotFoundException.class, () ->
                 linkService.redirect("xyz"));
+        verify(negativeLinkCache, never()).remember(anyString(), any());
+        verify(negativeLinkCache).rememberMiss(eq("xyz"), anyLong());
     }
 
     @Test
     void redirect_expiredLink_throwsException() {
         testLink.setExpiresAt(LocalDateTime.now().minusHours(1));
-        when(linkRepository.findByShortCode("abc123")).thenReturn(Optional.of(testLink));
+        when(clickCounter.record("abc123")).thenReturn(ClickResult.rejected(LinkState.from(testLink)));
 
         assertThrows(LinkExpiredException.class, () ->
                 linkService.redirect("abc123"));
@@ -160,36 +388,115 @@ class LinkServiceTest {
     void redirect_limitReached_throwsException() {
         testLink.setClickLimit(5);
         testLink.setClickCount(5);
-        when(linkRepository.findByShortCode("abc123")).thenReturn(Optional.of(testLink));
+        when(clickCounter.record("abc123")).thenReturn(ClickResult.rejected(LinkState.from(testLink)));
 
         assertThrows(LinkLimitReachedException.class, () ->
                 linkService.redirect("abc123"));
+        verify(negativeLinkCache).remember("abc123", ClickOutcome.LIMIT_REACHED);
+    }
+
+    @Test
+    void redirect_quotaReservedElsewhere_isNotRemembered() {
+        testLink.setClickLimit(5);
+        testLink.setClickCount(3);
+        when(clickCounter.record("abc123")).thenReturn(ClickResult.rejected(LinkState.from(testLink)));
+
+        assertThrows(ClickQuotaReservedException.class, () ->
+                linkService.redirect("abc123"));
+        verify(negativeLinkCache, never()).remember(anyString(), any());
+    }
+
+    @Test
+    void redirect_knownDeadCode_skipsCounter() {
+        when(negativeLinkCache.lookup("abc123")).thenReturn(Optional.of(ClickOutcome.EXPIRED));
+
+        assertThrows(LinkExpiredException.class, () ->
+                linkService.redirect("abc123"));
+        verifyNoInteractions(clickCounter);
+    }
+
+    @Test
+    void redirect_unknownCode_skipsCounter() {
+        when(negativeLinkCache.lookup("xyz")).thenReturn(Optional.of(ClickOutcome.NOT_FOUND));
+
+        assertThrows(LinkNotFoundException.class, () ->
+                linkService.redirect("xyz"));
+        verifyNoInteractions(clickCounter);
     }
 
     @Test
-    void getUserLinks_returnsUserLinks() {
-        List<Link> links = Arrays.asList(testLink);
-        when(linkRepository.findByUserId("user1")).thenReturn(links);
+    void redirect_servedFromSnapshot_skipsCounter() {
+        when(linkSnapshot.click("abc123")).thenReturn(Optional.of(ClickResult.recorded(LinkState.from(testLink))));
 
-        List<Link> result = linkService.getUserLinks("user1");
+        String url = linkService.redirect("abc123");
+
+        assertEquals("https://example.com", url);
+        verifyNoInteractions(clickCounter);
+    }
+
+    @Test
+    void click_rejectedLink_returnsOutcomeWithoutThrowing() {
+        testLink.setExpiresAt(LocalDateTime.now().minusHours(1));
+        when(clickCounter.record("abc123")).thenReturn(ClickResult.rejected(LinkState.from(testLink)));
+
+        ClickResult result = linkService.click("abc123");
+
+        assertEquals(ClickOutcome.EXPIRED, result.outcome());
+        verify(negativeLinkCache).remember("abc123", ClickOutcome.EXPIRED);
+    }
+
+    @Test
+    void getUserLinks_lastPage_hasNoNextCursor() {
+        when(config.getLink()).thenReturn(linkConfig);
+        when(linkRepository.findViewsByUserIdAfter("user1", 0L, Limit.of(101))).thenReturn(List.of(LinkView.from(testLink)));
+
+        LinkPage result = linkService.getUserLinks("user1", null, null);
+
+        assertEquals(1, result.links().size());
+        assertFalse(result.hasNext());
+    }
+
+    @Test
+    void getUserLinks_fullPage_returnsLastIdAsCursor() {
+        when(config.getLink()).thenReturn(linkConfig);
+        LinkView first = LinkView.from(testLink);
+        LinkView second = new LinkView(2L, "def456", "https://example.com/2", "user1", 10, 0, LocalDateTime.now(), LocalDateTime.now().plusHours(1));
+        LinkView third = new LinkView(3L, "ghi789", "https://example.com/3", "user1", 10, 0, LocalDateTime.now(), LocalDateTime.now().plusHours(1));
+        when(linkRepository.findViewsByUserIdAfter("user1", 0L, Limit.of(3))).thenReturn(List.of(first, second, third));
+
+        LinkPage result = linkService.getUserLinks("user1", 0L, 2);
 
-        assertEquals(1, result.size());
-        verify(linkRepository).findByUserId("user1");
+        assertEquals(List.of(first, second), result.links());
+        assertEquals(2L, result.nextAfterId());
+    }
+
+    @Test
+    void getUserLinks_limitAboveMax_isCapped() {
+        linkConfig.setMaxPageSize(50);
+        when(config.getLink()).thenReturn(linkConfig);
+        when(linkRepository.findViewsByUserIdAfter("user1", 7L, Limit.of(51))).thenReturn(List.of());
+
+        LinkPage result = linkService.getUserLinks("user1", 7L, 10_000);
+
+        assertTrue(result.links().isEmpty());
+        assertFalse(result.hasNext());
     }
 
     @Test
     void getLink_validShortCode_returnsLink() {
-        when(linkRepository.findByShortCode("abc123")).thenReturn(Optional.of(testLink));
+        when(linkRepository.findViewByShortCode("abc123")).thenReturn(Optional.of(LinkView.from(testLink)));
 
-        Link result = linkService.getLink("abc123");
+        LinkView result = linkService.getLink("abc123");
 
         assertNotNull(result);
-        assertEquals("abc123", result.getShortCode());
+        assertEquals("abc123", result.shortCode());
+        assertEquals("user1", result.userId());
+        verify(linkRepository, never()).findByShortCode(anyString());
     }
 
     @Test
     void getLink_notFound_throwsException() {
-        when(linkRepository.findByShortCode("xyz")).thenReturn(Optional.empty());
+        when(linkRepository.findViewByShortCode("xyz")).thenReturn(Optional.empty());
 
         assertThrows(LinkNotFoundException.class, () ->
                 linkService.getLink("xyz"));
@@ -204,6 +511,20 @@ class LinkServiceTest {
 
         assertEquals(20, result.getClickLimit());
         verify(linkRepository).save(testLink);
+        verify(linkCache).invalidate("abc123");
+    }
+
+    @Test
+    void updateLink_ownershipCheck_usesUserIdColumnNotUser() {
+        // As if the association were an uninitialized proxy: only the user_id column is read
+        testLink.setUser(null);
+        testLink.setUserId("user1");
+        when(linkRepository.findByShortCode("abc123")).thenReturn(Optional.of(testLink));
+        when(linkRepository.save(any(Link.class))).thenReturn(testLink);
+
+        Link result = linkService.updateLink("abc123", "user1", 20);
+
+        assertEquals(20, result.getClickLimit());
     }
 
     @Test
@@ -232,6 +553,7 @@ class LinkServiceTest {
         linkService.deleteLink("abc123", "user1");
 
         verify(linkRepository).delete(testLink);
+        verify(linkCache).invalidate("abc123");
     }
 
     @Test
@@ -0,0 +1,51 @@
+package src.lab.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.impl.MurmurShortCodeGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MurmurShortCodeGeneratorTest {
+
+    private MurmurShortCodeGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        AppConfig config = new AppConfig();
+        config.getLink().setShortCodeLength(6);
+        generator = new MurmurShortCodeGenerator(config);
+    }
+
+    @Test
+    void generate_sameInputs_sameCode() {
+        String code = generator.generate("user1", "https://example.com", 0);
+
+        assertEquals(code, generator.generate("user1", "https://example.com", 0));
+        assertTrue(code.matches("[0-9A-Za-z]{6}"));
+    }
+
+    @Test
+    void generate_differentUsers_differentCodes() {
+        assertNotEquals(generator.generate("user1", "https://example.com", 0),
+                generator.generate("user2", "https://example.com", 0));
+    }
+
+    @Test
+    void generate_nextAttempt_differentCode() {
+        assertNotEquals(generator.generate("user1", "https://example.com", 0),
+                generator.generate("user1", "https://example.com", 1));
+    }
+
+    @Test
+    void generate_hashesTheConcatenationWithoutBuildingIt() {
+        // Every split point crosses a 4-char word or 8-char block boundary differently
+        String whole = "550e8400-e29b-41d4-a716-446655440000https://example.com/path?q=1";
+        String expected = generator.generate(whole, "", 0);
+
+        for (int split = 0; split <= whole.length(); split++) {
+            assertEquals(expected, generator.generate(whole.substring(0, split), whole.substring(split), 0));
+        }
+    }
+}
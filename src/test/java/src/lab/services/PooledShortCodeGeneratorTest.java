@@ -0,0 +1,157 @@
+package src.lab.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.impl.HiLoShortCodeGenerator;
+import src.lab.services.impl.PooledShortCodeGenerator;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PooledShortCodeGeneratorTest {
+
+    @Mock
+    private HiLoShortCodeGenerator source;
+
+    private final SimpleAsyncTaskExecutor refiller = new SimpleAsyncTaskExecutor("short-code-pool-refill-");
+    private AppConfig config;
+    private PooledShortCodeGenerator pool;
+
+    @BeforeEach
+    void setUp() {
+        config = new AppConfig();
+        config.getLink().getCodes().getPool().setCapacity(10);
+        config.getLink().getCodes().getPool().setLowWaterMark(4);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private void sequentialCodes() {
+        AtomicInteger next = new AtomicInteger();
+        when(source.generate(any(), any(), anyInt())).thenAnswer(invocation -> "code" + next.getAndIncrement());
+    }
+
+    private void awaitDepth(int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pool.depth() != depth || pool.refills() == 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "pool depth stuck at " + pool.depth());
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void fillOnStartup_fillsToCapacity() throws InterruptedException {
+        sequentialCodes();
+        pool = new PooledShortCodeGenerator(source, config, refiller);
+
+        pool.fillOnStartup();
+        awaitDepth(10);
+
+        assertEquals(1, pool.refills());
+        assertTrue(pool.maxRefillNanos() > 0);
+        verify(source, times(10)).generate(isNull(), isNull(), eq(0));
+    }
+
+    @Test
+    void generate_servesQueuedCodesWithoutCallingSource() throws InterruptedException {
+        sequentialCodes();
+        pool = new PooledShortCodeGenerator(source, config, refiller);
+        pool.fillOnStartup();
+        awaitDepth(10);
+
+        String code = pool.generate("user1", "https://example.com", 0);
+
+        assertEquals("code0", code);
+        assertEquals(0, pool.emptyPolls());
+        verify(source, never()).generate(eq("user1"), any(), anyInt());
+    }
+
+    @Test
+    void generate_belowLowWaterMark_refillsInBackground() throws InterruptedException {
+        sequentialCodes();
+        pool = new PooledShortCodeGenerator(source, config, refiller);
+        pool.fillOnStartup();
+        awaitDepth(10);
+
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 7; i++) {
+            codes.add(pool.generate("user1", "https://example.com", 0));
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pool.refills() < 2 || pool.depth() < 10) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+
+        assertEquals(7, codes.size());
+        assertFalse(codes.contains("code10"));
+    }
+
+    @Test
+    void generate_emptyPool_fallsBackToSource() {
+        when(source.generate(any(), any(), anyInt())).thenReturn("direct");
+        pool = new PooledShortCodeGenerator(source, config, refiller);
+
+        String code = pool.generate("user1", "https://example.com", 0);
+
+        assertEquals("direct", code);
+        assertEquals(1, pool.emptyPolls());
+        assertTrue(pool.isCollisionFree());
+    }
+
+    @Test
+    void shutdown_waitsForRunningRefill() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger next = new AtomicInteger();
+        when(source.generate(any(), any(), anyInt())).thenAnswer(invocation -> {
+            started.countDown();
+            Thread.sleep(20);
+            return "code" + next.getAndIncrement();
+        });
+        pool = new PooledShortCodeGenerator(source, config, refiller);
+        pool.fillOnStartup();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        pool.shutdown();
+
+        // The refill had finished, stopped short of capacity, by the time shutdown returned
+        assertEquals(1, pool.refills());
+        assertTrue(pool.depth() < 10);
+    }
+
+    @Test
+    void constructor_lowWaterMarkNotBelowCapacity_throws() {
+        config.getLink().getCodes().getPool().setLowWaterMark(10);
+
+        assertThrows(IllegalStateException.class, () -> new PooledShortCodeGenerator(source, config, refiller));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void constructor_strategyNotHiLo_throwsNamingTheSetting() {
+        ObjectProvider<HiLoShortCodeGenerator> none = mock(ObjectProvider.class);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new PooledShortCodeGenerator(none, config, refiller));
+        assertTrue(e.getMessage().contains("app.link.codes.strategy=hi-lo"));
+    }
+}
@@ -0,0 +1,174 @@
+package src.lab.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.Link;
+import src.lab.db.models.LinkState;
+import src.lab.db.models.User;
+import src.lab.db.repositories.ReactiveLinksRepository;
+import src.lab.exceptions.*;
+import src.lab.infra.cache.LinkExpiryScheduler;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.impl.HashShortCodeGenerator;
+import src.lab.services.impl.ReactiveLinkServiceImpl;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveLinkServiceTest {
+
+    @Mock
+    private ReactiveLinksRepository linkRepository;
+
+    @Mock
+    private LinkExpiryScheduler linkExpiryScheduler;
+
+    private ReactiveLinkServiceImpl linkService;
+    private Link testLink;
+
+    @BeforeEach
+    void setUp() {
+        AppConfig config = new AppConfig();
+        config.getLink().setTtlHours(24);
+        config.getLink().setDefaultClickLimit(100);
+        config.getLink().setShortCodeLength(6);
+        linkService = new ReactiveLinkServiceImpl(linkRepository, config, new HashShortCodeGenerator(config), linkExpiryScheduler);
+
+        User user = new User();
+        user.setId("user1");
+
+        testLink = new Link();
+        testLink.setId(1L);
+        testLink.setShortCode("abc123");
+        testLink.setOriginalUrl("https://example.com");
+        testLink.setUser(user);
+        testLink.setClickLimit(10);
+        testLink.setCreatedAt(LocalDateTime.now());
+        testLink.setExpiresAt(LocalDateTime.now().plusHours(24));
+    }
+
+    @Test
+    void createShortLink_validUrl_insertsLinkWithDefaults() {
+        when(linkRepository.existsByShortCode(anyString())).thenReturn(Mono.just(false));
+        when(linkRepository.createUserIfAbsent("user1")).thenReturn(Mono.empty());
+        when(linkRepository.insert(any(Link.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(linkService.createShortLink("user1", "https://example.com", null))
+                .expectNextMatches(link -> link.getClickLimit() == 100 && link.getShortCode().length() == 6)
+                .verifyComplete();
+    }
+
+    @Test
+    void createShortLink_collision_triesNextCode() {
+        when(linkRepository.existsByShortCode(anyString())).thenReturn(Mono.just(true), Mono.just(false));
+        when(linkRepository.createUserIfAbsent("user1")).thenReturn(Mono.empty());
+        when(linkRepository.insert(any(Link.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(linkService.createShortLink("user1", "https://example.com", 5))
+                .expectNextCount(1)
+                .verifyComplete();
+        verify(linkRepository, times(2)).existsByShortCode(anyString());
+    }
+
+    @Test
+    void createShortLink_codeTakenAtInsert_retriesWithNextCode() {
+        when(linkRepository.existsByShortCode(anyString()))
+                .thenReturn(Mono.just(false), Mono.just(true), Mono.just(true), Mono.just(false));
+        when(linkRepository.createUserIfAbsent("user1")).thenReturn(Mono.empty());
+        when(linkRepository.insert(any(Link.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("uk_links_short_code")))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(linkService.createShortLink("user1", "https://example.com", 5))
+                .expectNextCount(1)
+                .verifyComplete();
+        verify(linkRepository, times(2)).insert(any(Link.class));
+        verify(linkExpiryScheduler).schedule(anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void createShortLink_invalidUrl_failsWithoutDatabase() {
+        StepVerifier.create(linkService.createShortLink("user1", "not-a-url", null))
+                .expectError(InvalidUrlException.class)
+                .verify();
+        verifyNoInteractions(linkRepository);
+    }
+
+    @Test
+    void createShortLink_allCodesTaken_fails() {
+        when(linkRepository.existsByShortCode(anyString())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(linkService.createShortLink("user1", "https://example.com", null))
+                .expectError(ShortCodeGenerationException.class)
+                .verify();
+    }
+
+    @Test
+    void redirect_recordedClick_returnsUrl() {
+        when(linkRepository.registerClick(eq("abc123"), any(LocalDateTime.class)))
+                .thenReturn(Mono.just(ClickResult.recorded(LinkState.from(testLink))));
+
+        StepVerifier.create(linkService.redirect("abc123"))
+                .expectNext("https://example.com")
+                .verifyComplete();
+    }
+
+    @Test
+    void redirect_limitReached_fails() {
+        testLink.setClickCount(10);
+        when(linkRepository.registerClick(eq("abc123"), any(LocalDateTime.class)))
+                .thenReturn(Mono.just(ClickResult.rejected(LinkState.from(testLink))));
+
+        StepVerifier.create(linkService.redirect("abc123"))
+                .expectError(LinkLimitReachedException.class)
+                .verify();
+    }
+
+    @Test
+    void redirect_unknownCode_failsWithNotFound() {
+        when(linkRepository.registerClick(eq("xyz"), any(LocalDateTime.class))).thenReturn(Mono.just(ClickResult.notFound()));
+
+        StepVerifier.create(linkService.redirect("xyz"))
+                .expectError(LinkNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void updateLink_otherUser_failsWithoutWrite() {
+        when(linkRepository.findByShortCode("abc123")).thenReturn(Mono.just(testLink));
+
+        StepVerifier.create(linkService.updateLink("abc123", "user2", 50))
+                .expectError(UnauthorizedAccessException.class)
+                .verify();
+        verify(linkRepository, never()).updateClickLimit(anyLong(), anyInt());
+    }
+
+    @Test
+    void deleteLink_owner_deletes() {
+        when(linkRepository.findByShortCode("abc123")).thenReturn(Mono.just(testLink));
+        when(linkRepository.deleteById(1L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(linkService.deleteLink("abc123", "user1"))
+                .verifyComplete();
+        verify(linkRepository).deleteById(1L);
+    }
+
+    @Test
+    void getLink_unknownCode_failsWithNotFound() {
+        when(linkRepository.findByShortCode("xyz")).thenReturn(Mono.empty());
+
+        StepVerifier.create(linkService.getLink("xyz"))
+                .expectError(LinkNotFoundException.class)
+                .verify();
+    }
+}
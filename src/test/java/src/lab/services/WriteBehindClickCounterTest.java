@@ -0,0 +1,318 @@
+package src.lab.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import src.lab.db.models.ClickOutcome;
+import src.lab.db.models.ClickResult;
+import src.lab.db.models.LinkState;
+import src.lab.db.repositories.LinksRepository;
+import src.lab.db.store.ClickJournal;
+import src.lab.db.store.LinkStore;
+import src.lab.infra.cache.LinkCache;
+import src.lab.infra.settings.AppConfig;
+import src.lab.services.impl.WriteBehindClickCounter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindClickCounterTest {
+
+    @Mock
+    private LinksRepository linkRepository;
+
+    @Mock
+    private LinkCache linkCache;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private LinkStore linkStore;
+
+    @TempDir
+    Path journalDirectory;
+
+    private AppConfig config;
+    private WriteBehindClickCounter clickCounter;
+
+    @BeforeEach
+    void setUp() {
+        config = new AppConfig();
+        config.getLink().getClicks().setSyncThreshold(10);
+        clickCounter = counter();
+    }
+
+    private WriteBehindClickCounter counter() {
+        ClickJournal journal = new ClickJournal(jdbcTemplate, transactionManager, config, "jdbc:h2:file:./data/lab");
+        journal.recover();
+        return new WriteBehindClickCounter(linkRepository, linkCache, jdbcTemplate, transactionManager, linkStore, journal, config);
+    }
+
+    private void enableJournal() {
+        config.getLink().getClicks().getJournal().setEnabled(true);
+        config.getLink().getClicks().getJournal().setPath(journalDirectory.toString());
+        config.getLink().getClicks().getJournal().setNodeId("local");
+        clickCounter = counter();
+    }
+
+    private LinkState cached(int clickLimit, int clickCount) {
+        LinkState link = new LinkState(1L, "abc123", "https://example.com", "user1", clickLimit, clickCount, LocalDateTime.now().plusHours(1));
+        when(linkCache.get(eq("abc123"), any())).thenReturn(Optional.of(link));
+        return link;
+    }
+
+    @Test
+    void record_farFromLimit_buffersWithoutDatabaseWrite() {
+        cached(100, 0);
+
+        ClickResult result = clickCounter.record("abc123");
+
+        assertEquals(ClickOutcome.RECORDED, result.outcome());
+        assertEquals("https://example.com", result.link().originalUrl());
+        assertEquals(1, clickCounter.pendingClicks());
+        verifyNoInteractions(linkRepository, jdbcTemplate);
+    }
+
+    @Test
+    void record_nearLimit_countsSynchronously() {
+        LinkState link = cached(100, 95);
+        when(linkRepository.registerClick(eq("abc123"), any(LocalDateTime.class))).thenReturn(ClickResult.recorded(link));
+
+        ClickResult result = clickCounter.record("abc123");
+
+        assertEquals(ClickOutcome.RECORDED, result.outcome());
+        assertEquals(0, clickCounter.pendingClicks());
+        verify(linkRepository).registerClick(eq("abc123"), any(LocalDateTime.class));
+    }
+
+    @Test
+    void record_nearLimitAndExhausted_returnsLimitReached() {
+        cached(100, 99);
+        LinkState exhausted = new LinkState(1L, "abc123", "https://example.com", "user1", 100, 100, LocalDateTime.now().plusHours(1));
+        when(linkRepository.registerClick(eq("abc123"), any(LocalDateTime.class))).thenReturn(ClickResult.rejected(exhausted));
+
+        ClickResult result = clickCounter.record("abc123");
+
+        assertEquals(ClickOutcome.LIMIT_REACHED, result.outcome());
+    }
+
+    @Test
+    void record_unknownCode_returnsNotFound() {
+        when(linkCache.get(eq("xyz"), any())).thenReturn(Optional.empty());
+
+        ClickResult result = clickCounter.record("xyz");
+
+        assertEquals(ClickOutcome.NOT_FOUND, result.outcome());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void record_expiredLink_returnsExpiredWithoutCounting() {
+        LinkState expired = new LinkState(1L, "abc123", "https://example.com", "user1", 100, 0, LocalDateTime.now().minusHours(1));
+        when(linkCache.get(eq("abc123"), any())).thenReturn(Optional.of(expired));
+
+        ClickResult result = clickCounter.record("abc123");
+
+        assertEquals(ClickOutcome.EXPIRED, result.outcome());
+        assertEquals(0, clickCounter.pendingClicks());
+    }
+
+    @Test
+    void flushAll_writesBufferedClicksInOneBatch() {
+        cached(100, 0);
+        clickCounter.record("abc123");
+        clickCounter.record("abc123");
+
+        clickCounter.flushAll();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> args) ->
+                args.size() == 1 && ((Long) args.get(0)[0]) == 2L && args.get(0)[1].equals(1L)));
+        assertEquals(0, clickCounter.pendingClicks());
+    }
+
+    @Test
+    void record_afterFlush_staleStateStillSeesFlushedClicks() {
+        LinkState stale = cached(20, 0);
+        when(linkRepository.registerClick(eq("abc123"), any(LocalDateTime.class))).thenReturn(ClickResult.recorded(stale));
+        for (int i = 0; i < 10; i++) {
+            clickCounter.record("abc123");
+        }
+        clickCounter.flushAll();
+
+        clickCounter.record("abc123");
+
+        verify(linkRepository).registerClick(eq("abc123"), any(LocalDateTime.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void record_codeDeletedAndCreatedAgain_countsNewLinkOnItsOwn() {
+        cached(100, 0);
+        clickCounter.record("abc123");
+        clickCounter.record("abc123");
+        // Deleted and shortened again before a flush: same code, new id
+        LinkState recreated = new LinkState(2L, "abc123", "https://example.com", "user1", 100, 0, LocalDateTime.now().plusHours(1));
+        when(linkCache.get(eq("abc123"), any())).thenReturn(Optional.of(recreated));
+        clickCounter.record("abc123");
+        // The deleted row is gone, so its update matches nothing
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> args = invocation.getArgument(1);
+            return args.stream().mapToInt(row -> row[1].equals(1L) ? 0 : 1).toArray();
+        });
+
+        clickCounter.flushAll();
+        clickCounter.record("abc123");
+        clickCounter.flushAll();
+
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+        assertEquals(Map.of(1L, 2L, 2L, 1L), deltasById(batches.getAllValues().get(0)));
+        assertEquals(Map.of(2L, 1L), deltasById(batches.getAllValues().get(1)));
+        assertEquals(0, clickCounter.pendingClicks());
+    }
+
+    private static Map<Long, Long> deltasById(List<Object[]> batch) {
+        return batch.stream().collect(Collectors.toMap(row -> (Long) row[1], row -> (Long) row[0]));
+    }
+
+    @Test
+    void flushAll_nothingBuffered_skipsDatabase() {
+        clickCounter.flushAll();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void flushAll_withJournal_checkpointsInTheSameTransaction() {
+        enableJournal();
+        // Startup recovery writes a checkpoint of its own
+        clearInvocations(jdbcTemplate, transactionManager);
+        cached(100, 0);
+        clickCounter.record("abc123");
+        clickCounter.record("abc123");
+
+        clickCounter.flushAll();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> args) ->
+                args.size() == 1 && ((Long) args.get(0)[0]) == 2L));
+        verify(jdbcTemplate).update(startsWith("UPDATE click_journal_checkpoint"), anyLong(), eq("local"));
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void record_withJournal_unflushedClicksReplayedAfterRestart() {
+        enableJournal();
+        cached(100, 0);
+        clickCounter.record("abc123");
+        clickCounter.record("abc123");
+        clickCounter.record("abc123");
+
+        // A new instance over the same journal, as after a crash that lost the buffer
+        counter();
+
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE links"), argThat((List<Object[]> args) ->
+                args.size() == 1 && args.get(0)[0].equals(3L) && args.get(0)[1].equals(1L) && args.get(0)[2].equals("abc123")));
+    }
+
+    // A restarted instance whose journal has not been replayed yet
+    private WriteBehindClickCounter unrecoveredCounter() {
+        config.getLink().getClicks().getJournal().setEnabled(true);
+        config.getLink().getClicks().getJournal().setPath(journalDirectory.toString());
+        config.getLink().getClicks().getJournal().setNodeId("local");
+        ClickJournal journal = new ClickJournal(jdbcTemplate, transactionManager, config, "jdbc:h2:file:./data/lab");
+        return new WriteBehindClickCounter(linkRepository, linkCache, jdbcTemplate, transactionManager, linkStore, journal, config);
+    }
+
+    @Test
+    void flushAll_beforeJournalRecovered_keepsClicksBuffered() {
+        clickCounter = unrecoveredCounter();
+        cached(100, 0);
+        clickCounter.record("abc123");
+
+        clickCounter.flushAll();
+
+        assertEquals(1, clickCounter.pendingClicks());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void record_nearLimitBeforeJournalRecovered_isHeldWithoutDatabase() {
+        clickCounter = unrecoveredCounter();
+        cached(100, 95);
+
+        ClickResult result = clickCounter.record("abc123");
+
+        assertEquals(ClickOutcome.QUOTA_RESERVED, result.outcome());
+        assertEquals(0, clickCounter.pendingClicks());
+        verifyNoInteractions(linkRepository, jdbcTemplate);
+    }
+
+    @Test
+    void record_beforeJournalRecovered_countsClicksOfPreviousRun() {
+        enableJournal();
+        cached(100, 0);
+        clickCounter.record("abc123");
+        clickCounter.record("abc123");
+        clickCounter.record("abc123");
+
+        // Restarted: click_count is 85 without the three journaled clicks, so only two more fit under 90
+        clickCounter = unrecoveredCounter();
+        cached(100, 85);
+
+        assertEquals(ClickOutcome.RECORDED, clickCounter.record("abc123").outcome());
+        assertEquals(ClickOutcome.RECORDED, clickCounter.record("abc123").outcome());
+        assertEquals(ClickOutcome.QUOTA_RESERVED, clickCounter.record("abc123").outcome());
+        assertEquals(2, clickCounter.pendingClicks());
+        verify(linkRepository, never()).registerClick(anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void record_concurrentClicks_neverBufferPastThreshold() throws Exception {
+        LinkState link = cached(60, 0);
+        LinkState exhausted = new LinkState(1L, "abc123", "https://example.com", "user1", 60, 60, LocalDateTime.now().plusHours(1));
+        lenient().when(linkRepository.registerClick(eq("abc123"), any(LocalDateTime.class))).thenReturn(ClickResult.rejected(exhausted));
+        AtomicInteger recorded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(executor.submit(() -> {
+                if (clickCounter.record(link.shortCode()).outcome() == ClickOutcome.RECORDED) {
+                    recorded.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertTrue(recorded.get() <= 50);
+    }
+}